@@ -0,0 +1,194 @@
+package com.parik.config;
+
+import com.parik.model.IdempotencyRecord;
+import com.parik.service.IdempotencyService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Фильтр поддержки заголовка {@value IdempotencyService#HEADER} для изменяющих запросов
+ * к записям, пользователям и услугам. Повтор запроса с тем же ключом получает
+ * сохранённый ответ первого запроса: контроллер и сервисы не вызываются,
+ * а таблица записей не читается. Запросы без заголовка обрабатываются как обычно.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    /** Заголовок, которым помечается ответ, возвращённый из сохранённых. */
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final List<String> PATHS = List.of("/api/appointments", "/api/users", "/api/services");
+
+    private static final List<String> METHODS = List.of("POST", "PUT", "PATCH", "DELETE");
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (request.getHeader(IdempotencyService.HEADER) == null || !METHODS.contains(request.getMethod())) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (String prefix : PATHS) {
+            if (path.equals(prefix) || path.startsWith(prefix + "/")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = request.getHeader(IdempotencyService.HEADER).trim();
+        if (key.isEmpty() || key.length() > IdempotencyService.MAX_KEY_LENGTH) {
+            reject(response, HttpStatus.BAD_REQUEST, "Ключ идемпотентности должен содержать от 1 до "
+                + IdempotencyService.MAX_KEY_LENGTH + " символов");
+            return;
+        }
+        byte[] body = request.getInputStream().readAllBytes();
+        IdempotencyService.Attempt attempt = idempotencyService.begin(key, scope(request), hash(body));
+        switch (attempt.getState()) {
+            case REPLAY:
+                replay(response, attempt.getRecord());
+                return;
+            case IN_PROGRESS:
+                reject(response, HttpStatus.CONFLICT, "Запрос с этим ключом идемпотентности ещё выполняется");
+                return;
+            case MISMATCH:
+                reject(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Ключ идемпотентности уже использован для другого запроса");
+                return;
+            default:
+                break;
+        }
+        ContentCachingResponseWrapper cachingResponse = new ContentCachingResponseWrapper(response);
+        boolean stored = false;
+        try {
+            chain.doFilter(new CachedBodyRequest(request, body), cachingResponse);
+            if (cachingResponse.getStatus() < HttpStatus.INTERNAL_SERVER_ERROR.value()) {
+                idempotencyService.complete(attempt.getRecord(), cachingResponse.getStatus(),
+                    cachingResponse.getContentType(), cachingResponse.getContentAsByteArray());
+                stored = true;
+            }
+        } finally {
+            if (!stored) {
+                idempotencyService.abandon(attempt.getRecord());
+            }
+            cachingResponse.copyBodyToResponse();
+        }
+    }
+
+    /**
+     * Область действия ключа: один и тот же ключ разных пользователей или разных
+     * запросов не пересекается.
+     */
+    private static String scope(HttpServletRequest request) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String user = auth != null ? auth.getName() : "anonymousUser";
+        String query = request.getQueryString();
+        return user + ' ' + request.getMethod() + ' ' + request.getRequestURI() + (query != null ? "?" + query : "");
+    }
+
+    private static String hash(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void replay(HttpServletResponse response, IdempotencyRecord record) throws IOException {
+        response.setStatus(record.getStatusCode());
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (record.getContentType() != null) {
+            response.setContentType(record.getContentType());
+        }
+        if (record.getBody() != null) {
+            response.getOutputStream().write(record.getBody());
+        }
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getOutputStream().write(message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Запрос с уже прочитанным телом: тело нужно для отпечатка до вызова контроллера.
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return input.read(buffer, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body),
+                encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -40,12 +40,23 @@ public class SecurityConfig {
                 .requestMatchers("/api/users/**").hasRole("ADMIN")
                 // Мастера: GET для всех авторизованных, остальное только для админа
                 .requestMatchers(HttpMethod.GET, "/api/masters").authenticated()
+                // Графики мастеров: просмотр для всех авторизованных, изменение только для админа
+                .requestMatchers(HttpMethod.GET, "/api/masters/*/working-hours", "/api/masters/*/overrides",
+                    "/api/masters/*/open-intervals").authenticated()
                 .requestMatchers("/api/masters/**").hasRole("ADMIN")
                 // Отчёты: только для админа и мастера
                 .requestMatchers("/api/reports/**").hasAnyRole("ADMIN", "MASTER")
+                // Аналитика выручки: только для админа
+                .requestMatchers("/api/analytics/**").hasRole("ADMIN")
                 .requestMatchers("/api/export-import/**").hasRole("ADMIN")
+                // Очистка просроченных записей: только для админа
+                .requestMatchers("/api/appointments/sweeps").hasRole("ADMIN")
                 // Записи: доступ для всех авторизованных
                 .requestMatchers("/api/appointments/**").hasAnyRole("ADMIN", "MASTER", "CLIENT")
+                // Лист ожидания: доступ для всех авторизованных
+                .requestMatchers("/api/waitlist/**").hasAnyRole("ADMIN", "MASTER", "CLIENT")
+                // Дни закрытия салона: просмотр для всех авторизованных, изменение только для админа (@PreAuthorize)
+                .requestMatchers("/api/closures/**").authenticated()
                 // Услуги: просмотр для всех, редактирование только для админа (контроль через @PreAuthorize)
                 .requestMatchers("/api/services/**").authenticated()
                 .anyRequest().authenticated()
@@ -0,0 +1,43 @@
+package com.parik.controller;
+
+import com.parik.service.AnalyticsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+/**
+ * REST контроллер аналитики.
+ * Предоставляет срезы выручки по мастерам, услугам и периодам.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@RestController
+@RequestMapping("/api/analytics")
+@Tag(name = "Аналитика", description = "API для анализа выручки")
+public class AnalyticsController {
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @GetMapping("/revenue")
+    @Operation(summary = "Получить выручку и число визитов с группировкой по мастеру, услуге и периоду")
+    public ResponseEntity<?> getRevenue(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String groupBy,
+            @RequestParam(defaultValue = "day") String period,
+            @RequestParam(required = false) Integer masterId,
+            @RequestParam(required = false) Integer serviceId) {
+        try {
+            return ResponseEntity.ok(analyticsService.getRevenue(from, to, groupBy, period, masterId, serviceId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
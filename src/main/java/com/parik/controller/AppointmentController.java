@@ -1,17 +1,34 @@
 package com.parik.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parik.dto.AppointmentBatchResultDTO;
+import com.parik.dto.AppointmentOverlapDTO;
+import com.parik.dto.AppointmentPageDTO;
+import com.parik.dto.AutoAssignRequestDTO;
+import com.parik.dto.AvailableSlotDTO;
 import com.parik.model.Appointment;
+import com.parik.model.AppointmentSeries;
+import com.parik.model.AppointmentSweepRun;
+import com.parik.service.AppointmentAvailabilityService;
+import com.parik.service.AppointmentEventBus;
+import com.parik.service.AppointmentSeriesService;
+import com.parik.service.AppointmentSweepService;
 import com.parik.service.JpaAppointmentService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * REST контроллер для управления записями клиентов.
@@ -28,10 +45,72 @@ public class AppointmentController {
     @Autowired
     private JpaAppointmentService appointmentService;
 
+    @Autowired
+    private AppointmentAvailabilityService availabilityService;
+
+    @Autowired
+    private AppointmentEventBus eventBus;
+
+    @Autowired
+    private AppointmentSeriesService seriesService;
+
+    @Autowired
+    private AppointmentSweepService sweepService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /** Заголовок ответа с курсором следующей страницы. */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @GetMapping
-    @Operation(summary = "Получить все записи")
-    public ResponseEntity<List<Appointment>> getAllAppointments() {
-        return ResponseEntity.ok(appointmentService.getAllAppointments());
+    @Operation(summary = "Получить все записи (постранично)")
+    public ResponseEntity<?> getAllAppointments(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean includeVirtual,
+            @RequestParam(defaultValue = "false") boolean includeArchived) {
+        return page(null, null, null, cursor, limit, includeVirtual, includeArchived);
+    }
+
+    /**
+     * Отдаёт страницу записей JSON-массивом, как и прежде, а курсор следующей
+     * страницы передаёт в заголовке {@value #NEXT_CURSOR_HEADER}.
+     * Заголовок отсутствует на последней странице.
+     */
+    private ResponseEntity<?> page(Integer clientId, Integer masterId, String status, String cursor, Integer limit,
+                                   boolean includeVirtual, boolean includeArchived) {
+        AppointmentPageDTO page;
+        try {
+            page = appointmentService.getAppointmentsPage(clientId, masterId, status, cursor, limit,
+                includeVirtual, includeArchived);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Найти записи по ID или имени клиента, мастера, названию услуги")
+    public ResponseEntity<?> searchAppointments(
+            @RequestParam String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        AppointmentPageDTO page;
+        try {
+            page = appointmentService.searchAppointments(q, cursor, limit);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
     }
 
     @GetMapping("/{id}")
@@ -44,14 +123,24 @@ public class AppointmentController {
 
     @GetMapping("/client/{clientId}")
     @Operation(summary = "Получить записи клиента")
-    public ResponseEntity<List<Appointment>> getAppointmentsByClientId(@PathVariable Integer clientId) {
-        return ResponseEntity.ok(appointmentService.getAppointmentsByClientId(clientId));
+    public ResponseEntity<?> getAppointmentsByClientId(
+            @PathVariable Integer clientId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean includeVirtual,
+            @RequestParam(defaultValue = "false") boolean includeArchived) {
+        return page(clientId, null, null, cursor, limit, includeVirtual, includeArchived);
     }
 
     @GetMapping("/master/{masterId}")
     @Operation(summary = "Получить записи мастера")
-    public ResponseEntity<List<Appointment>> getAppointmentsByMasterId(@PathVariable Integer masterId) {
-        return ResponseEntity.ok(appointmentService.getAppointmentsByMasterId(masterId));
+    public ResponseEntity<?> getAppointmentsByMasterId(
+            @PathVariable Integer masterId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean includeVirtual,
+            @RequestParam(defaultValue = "false") boolean includeArchived) {
+        return page(null, masterId, null, cursor, limit, includeVirtual, includeArchived);
     }
 
     @GetMapping("/master/{masterId}/date/{date}")
@@ -64,8 +153,56 @@ public class AppointmentController {
 
     @GetMapping("/status/{status}")
     @Operation(summary = "Получить записи по статусу")
-    public ResponseEntity<List<Appointment>> getAppointmentsByStatus(@PathVariable String status) {
-        return ResponseEntity.ok(appointmentService.getAppointmentsByStatus(status));
+    public ResponseEntity<?> getAppointmentsByStatus(
+            @PathVariable String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean includeVirtual,
+            @RequestParam(defaultValue = "false") boolean includeArchived) {
+        return page(null, null, status, cursor, limit, includeVirtual, includeArchived);
+    }
+
+    @GetMapping("/overlaps")
+    @Operation(summary = "Найти пересекающиеся по времени записи")
+    public ResponseEntity<List<AppointmentOverlapDTO>> getOverlappingAppointments(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from) {
+        LocalDate start = from != null ? from : LocalDate.now();
+        return ResponseEntity.ok(appointmentService.findOverlappingAppointments(start));
+    }
+
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Подписаться на изменения записей (Server-Sent Events)")
+    public SseEmitter streamAppointments(
+            @RequestParam(required = false) Integer masterId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(name = "lastEventId", required = false) String fromEventId,
+            @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+        return eventBus.subscribe(masterId, date, lastEventId != null ? lastEventId : fromEventId);
+    }
+
+    @GetMapping("/availability")
+    @Operation(summary = "Найти свободное время всех мастеров для услуги за период")
+    public ResponseEntity<?> getAvailability(
+            @RequestParam Integer serviceId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        Stream<AvailableSlotDTO> slots;
+        try {
+            slots = availabilityService.findAvailableSlots(serviceId, from, to);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out);
+                 Stream<AvailableSlotDTO> ordered = slots) {
+                json.writeStartArray();
+                for (AvailableSlotDTO slot : (Iterable<AvailableSlotDTO>) ordered::iterator) {
+                    json.writeObject(slot);
+                }
+                json.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
     @PostMapping
@@ -79,6 +216,56 @@ public class AppointmentController {
         }
     }
 
+    @PostMapping("/auto-assign")
+    @Operation(summary = "Записать клиента к любому мастеру с наименьшим дроблением расписания")
+    public ResponseEntity<?> autoAssign(@RequestBody AutoAssignRequestDTO request) {
+        try {
+            Appointment created = appointmentService.autoAssign(request);
+            return ResponseEntity.status(HttpStatus.CREATED).body(created);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/batch")
+    @Operation(summary = "Создать пакет записей")
+    public ResponseEntity<List<AppointmentBatchResultDTO>> createAppointmentsBatch(
+            @RequestBody List<Appointment> appointments,
+            @RequestParam(defaultValue = "true") boolean atomic) {
+        List<AppointmentBatchResultDTO> results = appointmentService.createAppointmentsBatch(appointments, atomic);
+        boolean rejected = !results.isEmpty() && results.stream().noneMatch(AppointmentBatchResultDTO::isCreated);
+        return ResponseEntity.status(rejected ? HttpStatus.BAD_REQUEST : HttpStatus.OK).body(results);
+    }
+
+    @PostMapping("/series")
+    @Operation(summary = "Создать серию повторяющихся записей")
+    public ResponseEntity<?> createSeries(@RequestBody AppointmentSeries series) {
+        try {
+            AppointmentSeries created = appointmentService.createSeries(series);
+            return ResponseEntity.status(HttpStatus.CREATED).body(created);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/series/{id}")
+    @Operation(summary = "Получить серию повторяющихся записей по ID")
+    public ResponseEntity<AppointmentSeries> getSeriesById(@PathVariable Integer id) {
+        return seriesService.getSeriesById(id)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PutMapping("/series/{id}/end")
+    @Operation(summary = "Завершить серию и отменить её предстоящие записи")
+    public ResponseEntity<?> endSeries(@PathVariable Integer id) {
+        try {
+            return ResponseEntity.ok(appointmentService.endSeries(id));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @PutMapping("/{id}")
     @Operation(summary = "Обновить запись")
     public ResponseEntity<?> updateAppointment(@PathVariable Integer id, @RequestBody Appointment appointment) {
@@ -112,6 +299,43 @@ public class AppointmentController {
         }
     }
 
+    @PutMapping("/master/{masterId}/date/{date}/complete")
+    @Operation(summary = "Отметить выполненными все запланированные записи мастера на дату")
+    public ResponseEntity<List<Integer>> completeMasterDay(
+            @PathVariable Integer masterId,
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(appointmentService.completeMasterDay(masterId, date));
+    }
+
+    @PutMapping("/master/{masterId}/cancel")
+    @Operation(summary = "Отменить все запланированные записи мастера за период")
+    public ResponseEntity<?> cancelMasterRange(
+            @PathVariable Integer masterId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return ResponseEntity.ok(appointmentService.cancelMasterRange(masterId, from, to));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/sweeps")
+    @Operation(summary = "Получить итоги последних запусков очистки просроченных записей")
+    public ResponseEntity<List<AppointmentSweepRun>> getSweepRuns() {
+        return ResponseEntity.ok(sweepService.getRecentRuns());
+    }
+
+    @PostMapping("/sweeps")
+    @Operation(summary = "Запустить очистку просроченных записей")
+    public ResponseEntity<?> sweepExpiredAppointments() {
+        try {
+            return ResponseEntity.ok(sweepService.sweep());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @DeleteMapping("/{id}")
     @Operation(summary = "Удалить запись")
     public ResponseEntity<?> deleteAppointment(@PathVariable Integer id) {
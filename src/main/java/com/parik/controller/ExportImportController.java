@@ -322,7 +322,7 @@ public class ExportImportController {
                 String.valueOf(appointment.getServiceId()),
                 appointment.getDate().toString(),
                 appointment.getTime().toString(),
-                appointment.getStatus()
+                appointment.getStatus().getLabel()
             });
         }
         csvWriter.close();
@@ -48,6 +48,7 @@ public class MainController {
      * @param search поисковый запрос (опционально)
      * @param sortBy поле для сортировки (опционально)
      * @param order порядок сортировки (asc/desc, по умолчанию asc)
+     * @param page номер страницы отсортированного списка с нуля (опционально)
      * @param tab активная вкладка (services/masters/appointments/reports, по умолчанию services)
      * @return имя представления "index"
      */
@@ -56,6 +57,7 @@ public class MainController {
                        @RequestParam(required = false) String search,
                        @RequestParam(required = false) String sortBy,
                        @RequestParam(required = false, defaultValue = "asc") String order,
+                       @RequestParam(required = false) Integer page,
                        @RequestParam(required = false, defaultValue = "services") String tab) {
         
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -70,7 +72,12 @@ public class MainController {
         if (search != null && !search.isEmpty() && tab.equals("services")) {
             services = serviceService.searchServices(search);
         } else if (tab.equals("services")) {
-            services = serviceService.getAllServices(sortBy != null ? sortBy : "name", order);
+            try {
+                services = serviceService.getAllServices(sortBy, order, page, null).getContent();
+            } catch (RuntimeException e) {
+                // Неподдерживаемая сортировка из адресной строки: показываем порядок по умолчанию
+                services = serviceService.getAllServices(null, null, null, null).getContent();
+            }
         } else {
             services = serviceService.getAllServices();
         }
@@ -92,7 +99,11 @@ public class MainController {
         } else if (search != null && !search.isEmpty() && tab.equals("appointments")) {
             appointments = appointmentService.searchAppointments(search);
         } else if (tab.equals("appointments") && sortBy != null) {
-            appointments = appointmentService.getAllAppointments(sortBy, order);
+            try {
+                appointments = appointmentService.getAllAppointments(sortBy, order, page, null).getContent();
+            } catch (RuntimeException e) {
+                appointments = appointmentService.getAllAppointments();
+            }
         } else {
             appointments = appointmentService.getAllAppointments();
         }
@@ -1,5 +1,6 @@
 package com.parik.controller;
 
+import com.parik.model.DailyRevenue;
 import com.parik.model.Report;
 import com.parik.service.JpaReportService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -68,6 +69,21 @@ public class ReportController {
         return ResponseEntity.ok(reportService.getReportsByDateRange(startDate, endDate));
     }
 
+    /**
+     * Получает ежедневные итоги выполненных записей за период.
+     * 
+     * @param from начальная дата периода
+     * @param to конечная дата периода
+     * @return ResponseEntity с итогами дней, в которые были выполненные записи
+     */
+    @GetMapping("/daily")
+    @Operation(summary = "Получить ежедневные итоги выполненных записей за период")
+    public ResponseEntity<List<DailyRevenue>> getDailyRevenue(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(reportService.getDailyRevenue(from, to));
+    }
+
     /**
      * Создаёт новый отчёт.
      * 
@@ -88,6 +104,7 @@ public class ReportController {
     /**
      * Генерирует отчёт за указанную дату.
      * Автоматически подсчитывает количество клиентов и общий доход.
+     * Повторный вызов пересчитывает отчёт за ту же дату.
      * 
      * @param date дата для генерации отчёта
      * @return ResponseEntity с созданным отчётом или сообщением об ошибке
@@ -104,6 +121,27 @@ public class ReportController {
         }
     }
 
+    /**
+     * Генерирует отчёты за каждый день периода.
+     * Существующие отчёты периода пересчитываются.
+     * 
+     * @param from начальная дата периода
+     * @param to конечная дата периода (включительно)
+     * @return ResponseEntity с созданными отчётами или сообщением об ошибке
+     */
+    @PostMapping("/generate")
+    @Operation(summary = "Сгенерировать отчёты за каждый день периода")
+    public ResponseEntity<?> generateReportsForRange(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            List<Report> reports = reportService.generateReportsForRange(from, to);
+            return ResponseEntity.status(HttpStatus.CREATED).body(reports);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     /**
      * Обновляет существующий отчёт.
      * 
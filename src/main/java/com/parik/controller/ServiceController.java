@@ -29,12 +29,23 @@ public class ServiceController {
 
     @GetMapping
     @Operation(summary = "Получить все услуги")
-    public ResponseEntity<List<Service>> getAllServices(
-            @RequestParam(required = false) String search) {
+    public ResponseEntity<?> getAllServices(
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false) String order,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
         if (search != null && !search.isEmpty()) {
             return ResponseEntity.ok(serviceService.searchServices(search));
         }
-        return ResponseEntity.ok(serviceService.getAllServices());
+        if (sortBy == null && order == null && page == null && size == null) {
+            return ResponseEntity.ok(serviceService.getAllServices());
+        }
+        try {
+            return ResponseEntity.ok(serviceService.getAllServices(sortBy, order, page, size).getContent());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @GetMapping("/{id}")
@@ -1,9 +1,11 @@
 package com.parik.controller;
 
+import com.parik.model.AppointmentStatus;
 import com.parik.repository.JpaAppointmentRepository;
 import com.parik.repository.JpaMasterRepository;
 import com.parik.repository.JpaServiceRepository;
 import com.parik.repository.JpaUserRepository;
+import com.parik.service.MasterScheduleCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -36,6 +38,9 @@ public class StatisticsController {
     @Autowired
     private JpaAppointmentRepository appointmentRepository;
 
+    @Autowired
+    private MasterScheduleCache scheduleCache;
+
     @GetMapping
     public ResponseEntity<Map<String, Object>> getStatistics() {
         Map<String, Object> stats = new HashMap<>();
@@ -45,13 +50,20 @@ public class StatisticsController {
         stats.put("totalServices", serviceRepository.count());
         stats.put("totalAppointments", appointmentRepository.count());
         
-        long completedAppointments = appointmentRepository.findByStatus("Выполнена").size();
+        long completedAppointments = appointmentRepository.countByStatus(AppointmentStatus.COMPLETED);
         stats.put("completedAppointments", completedAppointments);
         
-        long plannedAppointments = appointmentRepository.findByStatus("Запланирована").size();
+        long plannedAppointments = appointmentRepository.countByStatus(AppointmentStatus.PLANNED);
         stats.put("plannedAppointments", plannedAppointments);
         
+        long noShowAppointments = appointmentRepository.countByStatus(AppointmentStatus.NO_SHOW);
+        stats.put("noShowAppointments", noShowAppointments);
+        
         return ResponseEntity.ok(stats);
     }
-}
 
+    @GetMapping("/schedule-cache")
+    public ResponseEntity<Map<String, Object>> getScheduleCacheStatistics() {
+        return ResponseEntity.ok(scheduleCache.getStatistics());
+    }
+}
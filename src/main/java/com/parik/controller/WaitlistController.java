@@ -0,0 +1,90 @@
+package com.parik.controller;
+
+import com.parik.model.Appointment;
+import com.parik.model.WaitlistEntry;
+import com.parik.service.JpaAppointmentService;
+import com.parik.service.WaitlistService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * REST контроллер листа ожидания.
+ * Предоставляет API endpoints для регистрации заявок на освободившееся время,
+ * их просмотра, отзыва и принятия предложенного времени.
+ * 
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@RestController
+@RequestMapping("/api/waitlist")
+@Tag(name = "Лист ожидания", description = "API для записи в лист ожидания")
+public class WaitlistController {
+
+    @Autowired
+    private WaitlistService waitlistService;
+
+    @Autowired
+    private JpaAppointmentService appointmentService;
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Получить заявку по ID")
+    public ResponseEntity<WaitlistEntry> getEntryById(@PathVariable Integer id) {
+        return waitlistService.getEntryById(id)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/client/{clientId}")
+    @Operation(summary = "Получить заявки клиента")
+    public ResponseEntity<List<WaitlistEntry>> getEntriesByClientId(@PathVariable Integer clientId) {
+        return ResponseEntity.ok(waitlistService.getEntriesByClientId(clientId));
+    }
+
+    @GetMapping("/master/{masterId}/date/{date}")
+    @Operation(summary = "Получить очередь ожидания мастера на дату")
+    public ResponseEntity<List<WaitlistEntry>> getWaitingEntries(
+            @PathVariable Integer masterId,
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(waitlistService.getWaitingEntries(masterId, date));
+    }
+
+    @PostMapping
+    @Operation(summary = "Записаться в лист ожидания")
+    public ResponseEntity<?> register(@RequestBody WaitlistEntry entry) {
+        try {
+            WaitlistEntry created = waitlistService.register(entry);
+            return ResponseEntity.status(HttpStatus.CREATED).body(created);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/{id}/accept")
+    @Operation(summary = "Принять предложенное время и создать запись")
+    public ResponseEntity<?> acceptOffer(@PathVariable Integer id) {
+        try {
+            Appointment created = appointmentService.acceptWaitlistOffer(id);
+            return ResponseEntity.status(HttpStatus.CREATED).body(created);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Отозвать заявку")
+    public ResponseEntity<?> withdraw(@PathVariable Integer id) {
+        try {
+            return ResponseEntity.ok(waitlistService.withdraw(id));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
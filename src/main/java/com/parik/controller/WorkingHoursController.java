@@ -0,0 +1,139 @@
+package com.parik.controller;
+
+import com.parik.dto.WorkingIntervalDTO;
+import com.parik.model.MasterScheduleOverride;
+import com.parik.model.MasterWorkingHours;
+import com.parik.model.SalonClosure;
+import com.parik.service.WorkingHoursService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * REST контроллер для управления рабочим временем мастеров.
+ * Предоставляет API endpoints для недельных графиков, исключений из графика,
+ * дней закрытия салона и получения действующих интервалов работы мастера.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@RestController
+@RequestMapping("/api")
+@Tag(name = "Рабочее время", description = "API для управления графиками мастеров")
+public class WorkingHoursController {
+
+    @Autowired
+    private WorkingHoursService workingHoursService;
+
+    @GetMapping("/masters/{id}/working-hours")
+    @Operation(summary = "Получить недельный график мастера")
+    public ResponseEntity<List<MasterWorkingHours>> getTemplate(@PathVariable Integer id) {
+        return ResponseEntity.ok(workingHoursService.getTemplate(id));
+    }
+
+    @PutMapping("/masters/{id}/working-hours")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Заменить недельный график мастера")
+    public ResponseEntity<?> replaceTemplate(@PathVariable Integer id, @RequestBody List<MasterWorkingHours> hours) {
+        try {
+            return ResponseEntity.ok(workingHoursService.replaceTemplate(id, hours));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/masters/{id}/overrides")
+    @Operation(summary = "Получить исключения из графика мастера за период")
+    public ResponseEntity<?> getOverrides(
+            @PathVariable Integer id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return ResponseEntity.ok(workingHoursService.getOverrides(id, from, to));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PutMapping("/masters/{id}/overrides/{date}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Задать рабочее время мастера на дату (пустой список - выходной)")
+    public ResponseEntity<?> setOverride(
+            @PathVariable Integer id,
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestBody List<WorkingIntervalDTO> intervals) {
+        try {
+            List<MasterScheduleOverride> saved = workingHoursService.setOverride(id, date, intervals);
+            return ResponseEntity.ok(saved);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/masters/{id}/overrides/{date}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Удалить исключение из графика мастера на дату")
+    public ResponseEntity<?> deleteOverride(
+            @PathVariable Integer id,
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        try {
+            workingHoursService.deleteOverride(id, date);
+            return ResponseEntity.noContent().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/masters/{id}/open-intervals")
+    @Operation(summary = "Получить действующие интервалы работы мастера за период")
+    public ResponseEntity<?> getOpenIntervals(
+            @PathVariable Integer id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return ResponseEntity.ok(workingHoursService.getOpenIntervals(id, from, to));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/closures")
+    @Operation(summary = "Получить дни закрытия салона за период")
+    public ResponseEntity<List<SalonClosure>> getClosures(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(workingHoursService.getClosures(from, to));
+    }
+
+    @PostMapping("/closures")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Отметить день закрытия салона")
+    public ResponseEntity<?> addClosure(@RequestBody SalonClosure closure) {
+        try {
+            SalonClosure created = workingHoursService.addClosure(closure);
+            return ResponseEntity.status(HttpStatus.CREATED).body(created);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/closures/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Удалить день закрытия салона")
+    public ResponseEntity<?> deleteClosure(@PathVariable Integer id) {
+        try {
+            workingHoursService.deleteClosure(id);
+            return ResponseEntity.noContent().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.parik.dto;
+
+import com.parik.model.Appointment;
+
+/**
+ * DTO (Data Transfer Object) для передачи результата создания одной записи из пакета.
+ * Содержит порядковый номер записи в запросе и либо созданную запись, либо текст ошибки.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+public class AppointmentBatchResultDTO {
+    private int index;
+    private boolean created;
+    private Appointment appointment;
+    private String error;
+
+    public AppointmentBatchResultDTO() {
+    }
+
+    public AppointmentBatchResultDTO(int index) {
+        this.index = index;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public boolean isCreated() {
+        return created;
+    }
+
+    public void setCreated(boolean created) {
+        this.created = created;
+    }
+
+    public Appointment getAppointment() {
+        return appointment;
+    }
+
+    public void setAppointment(Appointment appointment) {
+        this.appointment = appointment;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
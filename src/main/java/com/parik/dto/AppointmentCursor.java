@@ -0,0 +1,108 @@
+package com.parik.dto;
+
+import com.parik.model.Appointment;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Base64;
+
+/**
+ * Позиция в списке записей для постраничной выдачи по ключу (date, time, id).
+ * Передаётся клиенту в виде непрозрачной строки и указывает на последнюю
+ * выданную запись; следующая страница начинается строго после неё.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+public class AppointmentCursor implements Comparable<AppointmentCursor> {
+    private static final String SEPARATOR = "|";
+
+    private final LocalDate date;
+    private final LocalTime time;
+    private final Integer id;
+
+    public AppointmentCursor(LocalDate date, LocalTime time, Integer id) {
+        this.date = date;
+        this.time = time;
+        this.id = id;
+    }
+
+    /**
+     * Возвращает позицию перед первой записью. Список выдаётся от новых записей
+     * к старым, поэтому начальная позиция больше любого реального ключа.
+     *
+     * @return начальная позиция
+     */
+    public static AppointmentCursor first() {
+        return new AppointmentCursor(LocalDate.of(9999, 12, 31), LocalTime.MAX, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Возвращает позицию сразу после указанной записи.
+     * Виртуальный визит серии ещё не имеет идентификатора, поэтому его ключом служит
+     * отрицательный идентификатор серии: на одну дату у серии не больше одного визита.
+     *
+     * @param appointment последняя выданная запись
+     * @return позиция для запроса следующей страницы
+     */
+    public static AppointmentCursor after(Appointment appointment) {
+        Integer id = appointment.getId() != null ? appointment.getId() : -appointment.getSeriesId();
+        return new AppointmentCursor(appointment.getDate(), appointment.getTime(), id);
+    }
+
+    /**
+     * Разбирает строку курсора, полученную от клиента.
+     *
+     * @param token строка курсора; пустое значение означает первую страницу
+     * @return позиция в списке
+     * @throws RuntimeException если курсор повреждён
+     */
+    public static AppointmentCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return first();
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR);
+            return new AppointmentCursor(LocalDate.parse(parts[0]), LocalTime.parse(parts[1]),
+                Integer.valueOf(parts[2]));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Неверный курсор страницы");
+        }
+    }
+
+    /**
+     * Кодирует позицию в непрозрачную строку для передачи клиенту.
+     *
+     * @return строка курсора
+     */
+    public String encode() {
+        String raw = date + SEPARATOR + time + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Сравнивает позиции в порядке ключа (date, time, id).
+     */
+    @Override
+    public int compareTo(AppointmentCursor other) {
+        int result = date.compareTo(other.date);
+        if (result == 0) {
+            result = time.compareTo(other.time);
+        }
+        return result != 0 ? result : id.compareTo(other.id);
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public LocalTime getTime() {
+        return time;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+}
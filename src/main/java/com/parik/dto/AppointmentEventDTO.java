@@ -0,0 +1,109 @@
+package com.parik.dto;
+
+import com.parik.model.Appointment;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * DTO (Data Transfer Object) для передачи события изменения записи.
+ * Содержит состояние записи после изменения, а при переносе записи -
+ * прежних мастера и дату, чтобы событие получили экраны обоих мастеров.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+public class AppointmentEventDTO {
+
+    /**
+     * Тип изменения записи.
+     */
+    public enum Type {
+        CREATED, UPDATED, CANCELLED, COMPLETED, DELETED
+    }
+
+    private long eventId;
+    private Type type;
+    private Appointment appointment;
+    private Integer previousMasterId;
+    private LocalDate previousDate;
+    private LocalDateTime occurredAt;
+
+    public AppointmentEventDTO() {
+    }
+
+    public AppointmentEventDTO(long eventId, Type type, Appointment appointment,
+                               Integer previousMasterId, LocalDate previousDate) {
+        this.eventId = eventId;
+        this.type = type;
+        this.appointment = appointment;
+        this.previousMasterId = previousMasterId;
+        this.previousDate = previousDate;
+        this.occurredAt = LocalDateTime.now();
+    }
+
+    /**
+     * Проверяет, относится ли событие к мастеру и дате.
+     * Пустой фильтр совпадает с любым значением.
+     *
+     * @param masterId идентификатор мастера или null
+     * @param date дата или null
+     * @return true, если событие затрагивает мастера на эту дату
+     */
+    public boolean matches(Integer masterId, LocalDate date) {
+        return matches(appointment.getMasterId(), appointment.getDate(), masterId, date)
+            || (previousMasterId != null && matches(previousMasterId, previousDate, masterId, date));
+    }
+
+    private static boolean matches(Integer eventMasterId, LocalDate eventDate, Integer masterId, LocalDate date) {
+        return (masterId == null || masterId.equals(eventMasterId)) && (date == null || date.equals(eventDate));
+    }
+
+    public long getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(long eventId) {
+        this.eventId = eventId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public Appointment getAppointment() {
+        return appointment;
+    }
+
+    public void setAppointment(Appointment appointment) {
+        this.appointment = appointment;
+    }
+
+    public Integer getPreviousMasterId() {
+        return previousMasterId;
+    }
+
+    public void setPreviousMasterId(Integer previousMasterId) {
+        this.previousMasterId = previousMasterId;
+    }
+
+    public LocalDate getPreviousDate() {
+        return previousDate;
+    }
+
+    public void setPreviousDate(LocalDate previousDate) {
+        this.previousDate = previousDate;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    public void setOccurredAt(LocalDateTime occurredAt) {
+        this.occurredAt = occurredAt;
+    }
+}
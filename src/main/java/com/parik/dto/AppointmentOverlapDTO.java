@@ -0,0 +1,60 @@
+package com.parik.dto;
+
+import java.time.LocalDate;
+
+/**
+ * DTO (Data Transfer Object) для передачи найденного пересечения записей.
+ * Описывает пару записей одного мастера, интервалы которых накладываются друг на друга.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+public class AppointmentOverlapDTO {
+    private Integer masterId;
+    private LocalDate date;
+    private Integer appointmentId;
+    private Integer overlappingAppointmentId;
+
+    public AppointmentOverlapDTO() {
+    }
+
+    public AppointmentOverlapDTO(Integer masterId, LocalDate date,
+                                 Integer appointmentId, Integer overlappingAppointmentId) {
+        this.masterId = masterId;
+        this.date = date;
+        this.appointmentId = appointmentId;
+        this.overlappingAppointmentId = overlappingAppointmentId;
+    }
+
+    public Integer getMasterId() {
+        return masterId;
+    }
+
+    public void setMasterId(Integer masterId) {
+        this.masterId = masterId;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public Integer getAppointmentId() {
+        return appointmentId;
+    }
+
+    public void setAppointmentId(Integer appointmentId) {
+        this.appointmentId = appointmentId;
+    }
+
+    public Integer getOverlappingAppointmentId() {
+        return overlappingAppointmentId;
+    }
+
+    public void setOverlappingAppointmentId(Integer overlappingAppointmentId) {
+        this.overlappingAppointmentId = overlappingAppointmentId;
+    }
+}
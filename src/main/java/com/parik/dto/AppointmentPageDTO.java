@@ -0,0 +1,41 @@
+package com.parik.dto;
+
+import com.parik.model.Appointment;
+
+import java.util.List;
+
+/**
+ * DTO (Data Transfer Object) для передачи страницы записей.
+ * Содержит записи страницы и курсор следующей страницы, если она есть.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+public class AppointmentPageDTO {
+    private List<Appointment> items;
+    private String nextCursor;
+
+    public AppointmentPageDTO() {
+    }
+
+    public AppointmentPageDTO(List<Appointment> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Appointment> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Appointment> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,63 @@
+package com.parik.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * DTO (Data Transfer Object) для записи клиента к любому мастеру.
+ * Описывает услугу, дату и желаемое окно времени, в которое должна уложиться запись.
+ * Если окно не указано, подходит любое время в пределах рабочего дня.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+public class AutoAssignRequestDTO {
+    private Integer clientId;
+    private Integer serviceId;
+    private LocalDate date;
+    private LocalTime from;
+    private LocalTime to;
+
+    public AutoAssignRequestDTO() {
+    }
+
+    public Integer getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(Integer clientId) {
+        this.clientId = clientId;
+    }
+
+    public Integer getServiceId() {
+        return serviceId;
+    }
+
+    public void setServiceId(Integer serviceId) {
+        this.serviceId = serviceId;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public LocalTime getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalTime from) {
+        this.from = from;
+    }
+
+    public LocalTime getTo() {
+        return to;
+    }
+
+    public void setTo(LocalTime to) {
+        this.to = to;
+    }
+}
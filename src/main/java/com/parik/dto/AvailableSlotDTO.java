@@ -0,0 +1,60 @@
+package com.parik.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * DTO (Data Transfer Object) для передачи свободного времени мастера.
+ * Описывает время начала, на которое можно записаться на выбранную услугу.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+public class AvailableSlotDTO {
+    private Integer masterId;
+    private LocalDate date;
+    private LocalTime time;
+    private LocalTime endTime;
+
+    public AvailableSlotDTO() {
+    }
+
+    public AvailableSlotDTO(Integer masterId, LocalDate date, LocalTime time, LocalTime endTime) {
+        this.masterId = masterId;
+        this.date = date;
+        this.time = time;
+        this.endTime = endTime;
+    }
+
+    public Integer getMasterId() {
+        return masterId;
+    }
+
+    public void setMasterId(Integer masterId) {
+        this.masterId = masterId;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public LocalTime getTime() {
+        return time;
+    }
+
+    public void setTime(LocalTime time) {
+        this.time = time;
+    }
+
+    public LocalTime getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(LocalTime endTime) {
+        this.endTime = endTime;
+    }
+}
@@ -0,0 +1,63 @@
+package com.parik.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * DTO (Data Transfer Object) для передачи строки среза выручки.
+ * Поля измерений, по которым срез не группируется, равны null;
+ * период задаётся датой его начала (день, понедельник недели или первое число месяца).
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+public class RevenueCubeRowDTO {
+    private LocalDate period;
+    private Integer masterId;
+    private Integer serviceId;
+    private long visits;
+    private BigDecimal income;
+
+    public RevenueCubeRowDTO() {
+    }
+
+    public LocalDate getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(LocalDate period) {
+        this.period = period;
+    }
+
+    public Integer getMasterId() {
+        return masterId;
+    }
+
+    public void setMasterId(Integer masterId) {
+        this.masterId = masterId;
+    }
+
+    public Integer getServiceId() {
+        return serviceId;
+    }
+
+    public void setServiceId(Integer serviceId) {
+        this.serviceId = serviceId;
+    }
+
+    public long getVisits() {
+        return visits;
+    }
+
+    public void setVisits(long visits) {
+        this.visits = visits;
+    }
+
+    public BigDecimal getIncome() {
+        return income;
+    }
+
+    public void setIncome(BigDecimal income) {
+        this.income = income;
+    }
+}
@@ -0,0 +1,51 @@
+package com.parik.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * DTO (Data Transfer Object) для передачи интервала работы мастера.
+ * Описывает интервал [начало, конец) на дату; при задании исключения из графика
+ * дата берётся из адреса запроса.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+public class WorkingIntervalDTO {
+    private LocalDate date;
+    private LocalTime start;
+    private LocalTime end;
+
+    public WorkingIntervalDTO() {
+    }
+
+    public WorkingIntervalDTO(LocalDate date, LocalTime start, LocalTime end) {
+        this.date = date;
+        this.start = start;
+        this.end = end;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public LocalTime getStart() {
+        return start;
+    }
+
+    public void setStart(LocalTime start) {
+        this.start = start;
+    }
+
+    public LocalTime getEnd() {
+        return end;
+    }
+
+    public void setEnd(LocalTime end) {
+        this.end = end;
+    }
+}
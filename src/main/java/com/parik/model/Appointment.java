@@ -1,6 +1,7 @@
 package com.parik.model;
 
 import jakarta.persistence.*;
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -34,8 +35,17 @@ public class Appointment {
     @Column(nullable = false)
     private LocalTime time;
     
-    @Column(nullable = false, length = 20)
-    private String status;
+    @Column
+    private Integer duration;
+    
+    @Column(precision = 10, scale = 2)
+    private BigDecimal price;
+    
+    @Column(nullable = false)
+    private AppointmentStatus status;
+    
+    @Column(name = "series_id")
+    private Integer seriesId;
     
     @Column(name = "created_at")
     private LocalDateTime createdAt;
@@ -63,7 +73,7 @@ public class Appointment {
      * @param updatedAt дата и время последнего обновления
      */
     public Appointment(Integer id, Integer clientId, Integer masterId, Integer serviceId, 
-                       LocalDate date, LocalTime time, String status, 
+                       LocalDate date, LocalTime time, AppointmentStatus status, 
                        LocalDateTime createdAt, LocalDateTime updatedAt) {
         this.id = id;
         this.clientId = clientId;
@@ -125,14 +135,68 @@ public class Appointment {
         this.time = time;
     }
 
-    public String getStatus() {
+    /**
+     * Получает длительность записи в минутах, зафиксированную при бронировании.
+     * 
+     * @return длительность записи в минутах
+     */
+    public Integer getDuration() {
+        return duration;
+    }
+
+    /**
+     * Устанавливает длительность записи в минутах.
+     * 
+     * @param duration длительность записи в минутах
+     */
+    public void setDuration(Integer duration) {
+        this.duration = duration;
+    }
+
+    /**
+     * Получает цену услуги, зафиксированную при бронировании.
+     * 
+     * @return цена записи или null для старой записи, цена которой ещё не заполнена
+     */
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    /**
+     * Устанавливает цену записи.
+     * 
+     * @param price цена записи
+     */
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public AppointmentStatus getStatus() {
         return status;
     }
 
-    public void setStatus(String status) {
+    public void setStatus(AppointmentStatus status) {
         this.status = status;
     }
 
+    /**
+     * Возвращает идентификатор серии повторяющихся записей, к которой относится запись.
+     * 
+     * @return идентификатор серии или null для разовой записи
+     */
+    public Integer getSeriesId() {
+        return seriesId;
+    }
+
+    /**
+     * Устанавливает идентификатор серии повторяющихся записей.
+     * 
+     * @param seriesId идентификатор серии или null для разовой записи
+     */
+    public void setSeriesId(Integer seriesId) {
+        this.seriesId = seriesId;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
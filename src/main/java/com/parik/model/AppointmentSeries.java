@@ -0,0 +1,182 @@
+package com.parik.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Модель серии повторяющихся записей.
+ * Хранит правило повторения: дату первого визита, интервал в днях и дату окончания.
+ * Отдельные записи серии создаются в таблице записей только до горизонта
+ * бронирования; более поздние визиты существуют лишь как вычисляемые по правилу.
+ * 
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Entity
+@Table(name = "appointment_series")
+public class AppointmentSeries {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+    
+    @Column(name = "client_id", nullable = false)
+    private Integer clientId;
+    
+    @Column(name = "master_id", nullable = false)
+    private Integer masterId;
+    
+    @Column(name = "service_id", nullable = false)
+    private Integer serviceId;
+    
+    @Column(name = "anchor_date", nullable = false)
+    private LocalDate anchorDate;
+    
+    @Column(nullable = false)
+    private LocalTime time;
+    
+    @Column(name = "interval_days", nullable = false)
+    private Integer intervalDays;
+    
+    @Column(name = "end_date")
+    private LocalDate endDate;
+    
+    @Column(name = "materialized_until", nullable = false)
+    private LocalDate materializedUntil;
+    
+    @Column(nullable = false)
+    private boolean active = true;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    /**
+     * Конструктор по умолчанию.
+     */
+    public AppointmentSeries() {
+    }
+
+    /**
+     * Возвращает дату последнего визита серии не позже указанной даты.
+     * Вычисляется по правилу без перебора предыдущих визитов.
+     * 
+     * @param date граница
+     * @return дата визита или null, если до границы визитов нет
+     */
+    public LocalDate occurrenceOnOrBefore(LocalDate date) {
+        LocalDate bound = endDate != null && endDate.isBefore(date) ? endDate : date;
+        if (bound.isBefore(anchorDate)) {
+            return null;
+        }
+        long steps = ChronoUnit.DAYS.between(anchorDate, bound) / intervalDays;
+        return anchorDate.plusDays(steps * intervalDays);
+    }
+
+    /**
+     * Возвращает дату первого визита серии строго после указанной даты.
+     * 
+     * @param date граница
+     * @return дата визита или null, если серия к этому времени закончилась
+     */
+    public LocalDate occurrenceAfter(LocalDate date) {
+        LocalDate next;
+        if (date.isBefore(anchorDate)) {
+            next = anchorDate;
+        } else {
+            long steps = ChronoUnit.DAYS.between(anchorDate, date) / intervalDays + 1;
+            next = anchorDate.plusDays(steps * intervalDays);
+        }
+        return endDate != null && next.isAfter(endDate) ? null : next;
+    }
+
+    // Getters and Setters
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Integer getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(Integer clientId) {
+        this.clientId = clientId;
+    }
+
+    public Integer getMasterId() {
+        return masterId;
+    }
+
+    public void setMasterId(Integer masterId) {
+        this.masterId = masterId;
+    }
+
+    public Integer getServiceId() {
+        return serviceId;
+    }
+
+    public void setServiceId(Integer serviceId) {
+        this.serviceId = serviceId;
+    }
+
+    public LocalDate getAnchorDate() {
+        return anchorDate;
+    }
+
+    public void setAnchorDate(LocalDate anchorDate) {
+        this.anchorDate = anchorDate;
+    }
+
+    public LocalTime getTime() {
+        return time;
+    }
+
+    public void setTime(LocalTime time) {
+        this.time = time;
+    }
+
+    public Integer getIntervalDays() {
+        return intervalDays;
+    }
+
+    public void setIntervalDays(Integer intervalDays) {
+        this.intervalDays = intervalDays;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+
+    public LocalDate getMaterializedUntil() {
+        return materializedUntil;
+    }
+
+    public void setMaterializedUntil(LocalDate materializedUntil) {
+        this.materializedUntil = materializedUntil;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
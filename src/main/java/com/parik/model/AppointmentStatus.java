@@ -0,0 +1,94 @@
+package com.parik.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Статус записи на услугу.
+ * В базе хранится компактным числовым кодом, а в JSON API передаётся
+ * прежним текстовым названием (Запланирована, Выполнена, Отменена, Не явился).
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+public enum AppointmentStatus {
+    PLANNED((short) 1, "Запланирована"),
+    COMPLETED((short) 2, "Выполнена"),
+    CANCELLED((short) 3, "Отменена"),
+    /** Клиент не пришёл: статус проставляет фоновая очистка просроченных записей. */
+    NO_SHOW((short) 4, "Не явился");
+
+    private final short code;
+    private final String label;
+
+    AppointmentStatus(short code, String label) {
+        this.code = code;
+        this.label = label;
+    }
+
+    /**
+     * Возвращает код статуса, хранимый в базе данных.
+     *
+     * @return код статуса
+     */
+    public short getCode() {
+        return code;
+    }
+
+    /**
+     * Возвращает название статуса для отображения и JSON API.
+     *
+     * @return название статуса
+     */
+    @JsonValue
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Проверяет, занимает ли запись в этом статусе время мастера.
+     *
+     * @return false только для отменённых записей
+     */
+    public boolean occupiesTime() {
+        return this != CANCELLED;
+    }
+
+    /**
+     * Находит статус по коду из базы данных.
+     *
+     * @param code код статуса
+     * @return статус
+     * @throws IllegalArgumentException если код неизвестен
+     */
+    public static AppointmentStatus fromCode(short code) {
+        for (AppointmentStatus status : values()) {
+            if (status.code == code) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный код статуса: " + code);
+    }
+
+    /**
+     * Находит статус по названию. Для удобства принимается и имя константы.
+     *
+     * @param value название статуса (например, «Запланирована») или имя константы (PLANNED)
+     * @return статус
+     * @throws RuntimeException если статус неизвестен
+     */
+    @JsonCreator
+    public static AppointmentStatus fromLabel(String value) {
+        for (AppointmentStatus status : values()) {
+            if (status.label.equals(value) || status.name().equalsIgnoreCase(value)) {
+                return status;
+            }
+        }
+        throw new RuntimeException("Неизвестный статус записи: " + value);
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,24 @@
+package com.parik.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Преобразует статус записи в числовой код SMALLINT и обратно.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Converter(autoApply = true)
+public class AppointmentStatusConverter implements AttributeConverter<AppointmentStatus, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(AppointmentStatus status) {
+        return status != null ? status.getCode() : null;
+    }
+
+    @Override
+    public AppointmentStatus convertToEntityAttribute(Short code) {
+        return code != null ? AppointmentStatus.fromCode(code) : null;
+    }
+}
@@ -0,0 +1,112 @@
+package com.parik.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Модель запуска фоновой очистки просроченных записей.
+ * Хранит итог запуска: границу дат, целевой статус, число порций и переведённых записей.
+ * 
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Entity
+@Table(name = "appointment_sweep_runs")
+public class AppointmentSweepRun {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+    
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+    
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+    
+    @Column(name = "cutoff_date", nullable = false)
+    private LocalDate cutoffDate;
+    
+    @Column(name = "target_status", nullable = false)
+    private AppointmentStatus targetStatus;
+    
+    @Column(nullable = false)
+    private int chunks;
+    
+    @Column(nullable = false)
+    private int swept;
+    
+    @Column(length = 500)
+    private String error;
+
+    /**
+     * Конструктор по умолчанию.
+     */
+    public AppointmentSweepRun() {
+    }
+
+    // Getters and Setters
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public LocalDate getCutoffDate() {
+        return cutoffDate;
+    }
+
+    public void setCutoffDate(LocalDate cutoffDate) {
+        this.cutoffDate = cutoffDate;
+    }
+
+    public AppointmentStatus getTargetStatus() {
+        return targetStatus;
+    }
+
+    public void setTargetStatus(AppointmentStatus targetStatus) {
+        this.targetStatus = targetStatus;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public void setChunks(int chunks) {
+        this.chunks = chunks;
+    }
+
+    public int getSwept() {
+        return swept;
+    }
+
+    public void setSwept(int swept) {
+        this.swept = swept;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,68 @@
+package com.parik.model;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Модель ежедневных итогов выполненных записей.
+ * Строка дня ведётся триггером базы данных при каждом изменении выполненной записи,
+ * поэтому приложение её только читает.
+ * 
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Entity
+@Table(name = "daily_revenue")
+public class DailyRevenue {
+    @Id
+    private LocalDate date;
+    
+    @Column(name = "completed_count", nullable = false)
+    private int completedCount;
+    
+    @Column(name = "distinct_clients", nullable = false)
+    private int distinctClients;
+    
+    @Column(nullable = false, precision = 12, scale = 2)
+    private BigDecimal income;
+
+    /**
+     * Конструктор по умолчанию.
+     */
+    public DailyRevenue() {
+    }
+
+    // Getters and Setters
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public int getCompletedCount() {
+        return completedCount;
+    }
+
+    public void setCompletedCount(int completedCount) {
+        this.completedCount = completedCount;
+    }
+
+    public int getDistinctClients() {
+        return distinctClients;
+    }
+
+    public void setDistinctClients(int distinctClients) {
+        this.distinctClients = distinctClients;
+    }
+
+    public BigDecimal getIncome() {
+        return income;
+    }
+
+    public void setIncome(BigDecimal income) {
+        this.income = income;
+    }
+}
@@ -0,0 +1,102 @@
+package com.parik.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Модель сохранённого результата запроса с ключом идемпотентности.
+ * Пока запрос выполняется, код ответа не заполнен; после выполнения хранит ответ,
+ * который возвращается на повтор запроса с тем же ключом.
+ * 
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+public class IdempotencyRecord {
+    private String key;
+    private String scope;
+    private String requestHash;
+    private Integer statusCode;
+    private String contentType;
+    private byte[] body;
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt;
+
+    /**
+     * Конструктор по умолчанию.
+     */
+    public IdempotencyRecord() {
+    }
+
+    /**
+     * Проверяет, выполнен ли запрос и сохранён ли его ответ.
+     * 
+     * @return true, если ответ сохранён
+     */
+    public boolean isCompleted() {
+        return statusCode != null;
+    }
+
+    // Getters and Setters
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public void setScope(String scope) {
+        this.scope = scope;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public void setRequestHash(String requestHash) {
+        this.requestHash = requestHash;
+    }
+
+    public Integer getStatusCode() {
+        return statusCode;
+    }
+
+    public void setStatusCode(Integer statusCode) {
+        this.statusCode = statusCode;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public void setBody(byte[] body) {
+        this.body = body;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,80 @@
+package com.parik.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Модель исключения из графика мастера на конкретную дату.
+ * Интервалы исключений на дату заменяют недельный график этого дня;
+ * строка без времени начала и конца означает выходной.
+ * 
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Entity
+@Table(name = "master_schedule_overrides")
+public class MasterScheduleOverride {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+    
+    @Column(name = "master_id", nullable = false)
+    private Integer masterId;
+    
+    @Column(nullable = false)
+    private LocalDate date;
+    
+    @Column(name = "start_time")
+    private LocalTime startTime;
+    
+    @Column(name = "end_time")
+    private LocalTime endTime;
+
+    /**
+     * Конструктор по умолчанию.
+     */
+    public MasterScheduleOverride() {
+    }
+
+    // Getters and Setters
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Integer getMasterId() {
+        return masterId;
+    }
+
+    public void setMasterId(Integer masterId) {
+        this.masterId = masterId;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public LocalTime getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(LocalTime startTime) {
+        this.startTime = startTime;
+    }
+
+    public LocalTime getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(LocalTime endTime) {
+        this.endTime = endTime;
+    }
+}
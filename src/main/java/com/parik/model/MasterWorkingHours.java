@@ -0,0 +1,79 @@
+package com.parik.model;
+
+import jakarta.persistence.*;
+import java.time.LocalTime;
+
+/**
+ * Модель интервала недельного графика работы мастера.
+ * График дня недели хранится списком интервалов [начало, конец);
+ * дни недели нумеруются по ISO: 1 - понедельник, 7 - воскресенье.
+ * 
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Entity
+@Table(name = "master_working_hours")
+public class MasterWorkingHours {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+    
+    @Column(name = "master_id", nullable = false)
+    private Integer masterId;
+    
+    @Column(nullable = false)
+    private Integer weekday;
+    
+    @Column(name = "start_time", nullable = false)
+    private LocalTime startTime;
+    
+    @Column(name = "end_time", nullable = false)
+    private LocalTime endTime;
+
+    /**
+     * Конструктор по умолчанию.
+     */
+    public MasterWorkingHours() {
+    }
+
+    // Getters and Setters
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Integer getMasterId() {
+        return masterId;
+    }
+
+    public void setMasterId(Integer masterId) {
+        this.masterId = masterId;
+    }
+
+    public Integer getWeekday() {
+        return weekday;
+    }
+
+    public void setWeekday(Integer weekday) {
+        this.weekday = weekday;
+    }
+
+    public LocalTime getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(LocalTime startTime) {
+        this.startTime = startTime;
+    }
+
+    public LocalTime getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(LocalTime endTime) {
+        this.endTime = endTime;
+    }
+}
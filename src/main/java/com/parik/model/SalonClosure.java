@@ -0,0 +1,56 @@
+package com.parik.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Модель дня, когда салон закрыт.
+ * В такой день не работает ни один мастер, независимо от графиков и исключений.
+ * 
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Entity
+@Table(name = "salon_closures")
+public class SalonClosure {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+    
+    @Column(nullable = false, unique = true)
+    private LocalDate date;
+    
+    @Column(length = 200)
+    private String reason;
+
+    /**
+     * Конструктор по умолчанию.
+     */
+    public SalonClosure() {
+    }
+
+    // Getters and Setters
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+}
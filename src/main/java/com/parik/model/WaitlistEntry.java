@@ -0,0 +1,171 @@
+package com.parik.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Модель заявки в листе ожидания.
+ * Клиент указывает мастера, услугу, дату и интервал времени, в который готов прийти.
+ * При отмене записи у мастера освободившееся время предлагается первой подходящей заявке
+ * или сразу бронируется, если клиент согласен на автоматическую запись.
+ * 
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Entity
+@Table(name = "waitlist_entries")
+public class WaitlistEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+    
+    @Column(name = "client_id", nullable = false)
+    private Integer clientId;
+    
+    @Column(name = "master_id", nullable = false)
+    private Integer masterId;
+    
+    @Column(name = "service_id", nullable = false)
+    private Integer serviceId;
+    
+    @Column(nullable = false)
+    private LocalDate date;
+    
+    @Column(name = "window_start", nullable = false)
+    private LocalTime windowStart;
+    
+    @Column(name = "window_end", nullable = false)
+    private LocalTime windowEnd;
+    
+    @Column(name = "auto_book", nullable = false)
+    private boolean autoBook;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private WaitlistStatus status;
+    
+    @Column(name = "offered_time")
+    private LocalTime offeredTime;
+    
+    @Column(name = "offer_expires_at")
+    private LocalDateTime offerExpiresAt;
+    
+    @Column(name = "appointment_id")
+    private Integer appointmentId;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    /**
+     * Конструктор по умолчанию.
+     */
+    public WaitlistEntry() {
+    }
+
+    // Getters and Setters
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Integer getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(Integer clientId) {
+        this.clientId = clientId;
+    }
+
+    public Integer getMasterId() {
+        return masterId;
+    }
+
+    public void setMasterId(Integer masterId) {
+        this.masterId = masterId;
+    }
+
+    public Integer getServiceId() {
+        return serviceId;
+    }
+
+    public void setServiceId(Integer serviceId) {
+        this.serviceId = serviceId;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public LocalTime getWindowStart() {
+        return windowStart;
+    }
+
+    public void setWindowStart(LocalTime windowStart) {
+        this.windowStart = windowStart;
+    }
+
+    public LocalTime getWindowEnd() {
+        return windowEnd;
+    }
+
+    public void setWindowEnd(LocalTime windowEnd) {
+        this.windowEnd = windowEnd;
+    }
+
+    public boolean isAutoBook() {
+        return autoBook;
+    }
+
+    public void setAutoBook(boolean autoBook) {
+        this.autoBook = autoBook;
+    }
+
+    public WaitlistStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(WaitlistStatus status) {
+        this.status = status;
+    }
+
+    public LocalTime getOfferedTime() {
+        return offeredTime;
+    }
+
+    public void setOfferedTime(LocalTime offeredTime) {
+        this.offeredTime = offeredTime;
+    }
+
+    public LocalDateTime getOfferExpiresAt() {
+        return offerExpiresAt;
+    }
+
+    public void setOfferExpiresAt(LocalDateTime offerExpiresAt) {
+        this.offerExpiresAt = offerExpiresAt;
+    }
+
+    public Integer getAppointmentId() {
+        return appointmentId;
+    }
+
+    public void setAppointmentId(Integer appointmentId) {
+        this.appointmentId = appointmentId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,20 @@
+package com.parik.model;
+
+/**
+ * Состояние заявки в листе ожидания.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+public enum WaitlistStatus {
+    /** Заявка ждёт освободившегося времени. */
+    WAITING,
+    /** Клиенту предложено освободившееся время, ожидается подтверждение. */
+    OFFERED,
+    /** По заявке создана запись. */
+    BOOKED,
+    /** Заявка отозвана клиентом. */
+    WITHDRAWN,
+    /** Клиент не ответил на предложение вовремя, время предложено следующей заявке. */
+    EXPIRED
+}
@@ -1,7 +1,9 @@
 package com.parik.repository;
 
 import com.parik.model.Appointment;
+import com.parik.model.AppointmentStatus;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
@@ -10,16 +12,28 @@ import org.springframework.stereotype.Repository;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Time;
+import java.sql.Types;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Repository
 public class AppointmentRepository {
 
+    /** Размер пакета при групповой вставке записей. */
+    public static final int BATCH_SIZE = 100;
+
+    /** Колонки записей в явном порядке: секции архива могут хранить их в другом. */
+    private static final String PAGE_COLUMNS =
+        "id, client_id, master_id, service_id, date, time, duration, price, status, series_id, created_at, updated_at";
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
@@ -35,7 +49,10 @@ public class AppointmentRepository {
         if (rs.getTime("time") != null) {
             appointment.setTime(rs.getTime("time").toLocalTime());
         }
-        appointment.setStatus(rs.getString("status"));
+        appointment.setDuration(rs.getObject("duration", Integer.class));
+        appointment.setPrice(rs.getBigDecimal("price"));
+        appointment.setStatus(AppointmentStatus.fromCode(rs.getShort("status")));
+        appointment.setSeriesId(rs.getObject("series_id", Integer.class));
         if (rs.getTimestamp("created_at") != null) {
             appointment.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
         }
@@ -71,9 +88,60 @@ public class AppointmentRepository {
         return jdbcTemplate.query(sql, appointmentRowMapper, masterId, Date.valueOf(date));
     }
 
-    public List<Appointment> findByStatus(String status) {
+    public List<Appointment> findActiveByMasterIdAndDateBetween(Integer masterId, LocalDate from, LocalDate to) {
+        String sql = "SELECT * FROM appointments WHERE master_id = ? AND date BETWEEN ? AND ? " +
+                     "AND status <> " + AppointmentStatus.CANCELLED.getCode() + " ORDER BY date, time";
+        return jdbcTemplate.query(sql, appointmentRowMapper, masterId, Date.valueOf(from), Date.valueOf(to));
+    }
+
+    public List<Appointment> findByStatus(AppointmentStatus status) {
         String sql = "SELECT * FROM appointments WHERE status = ? ORDER BY date DESC, time DESC";
-        return jdbcTemplate.query(sql, appointmentRowMapper, status);
+        return jdbcTemplate.query(sql, appointmentRowMapper, status.getCode());
+    }
+
+    /**
+     * Возвращает страницу записей вместе с архивом (appointments_archive) в порядке убывания
+     * ключа (date, time, id), начиная строго после переданной позиции.
+     * Каждая таблица читается своим индексом по ключу страницы, результаты сливаются.
+     * Фильтры, равные null, не применяются.
+     *
+     * @param clientId ID клиента или null
+     * @param masterId ID мастера или null
+     * @param status статус или null
+     * @param date дата позиции
+     * @param time время позиции
+     * @param id ID позиции
+     * @param limit размер выборки
+     * @return записи страницы
+     */
+    public List<Appointment> findPageIncludingArchive(Integer clientId, Integer masterId, AppointmentStatus status,
+                                                      LocalDate date, LocalTime time, Integer id, int limit) {
+        StringBuilder where = new StringBuilder("(date, time, id) < (?, ?, ?)");
+        List<Object> filters = new ArrayList<>();
+        filters.add(Date.valueOf(date));
+        filters.add(Time.valueOf(time));
+        filters.add(id);
+        if (clientId != null) {
+            where.append(" AND client_id = ?");
+            filters.add(clientId);
+        }
+        if (masterId != null) {
+            where.append(" AND master_id = ?");
+            filters.add(masterId);
+        }
+        if (status != null) {
+            where.append(" AND status = ?");
+            filters.add(status.getCode());
+        }
+        String order = " ORDER BY date DESC, time DESC, id DESC LIMIT ?";
+        String sql = "(SELECT " + PAGE_COLUMNS + " FROM appointments WHERE " + where + order + ") UNION ALL " +
+                     "(SELECT " + PAGE_COLUMNS + " FROM appointments_archive WHERE " + where + order + ")" + order;
+        List<Object> args = new ArrayList<>(filters);
+        args.add(limit);
+        args.addAll(filters);
+        args.add(limit);
+        args.add(limit);
+        return jdbcTemplate.query(sql, appointmentRowMapper, args.toArray());
     }
 
     public Appointment save(Appointment appointment) {
@@ -85,8 +153,8 @@ public class AppointmentRepository {
     }
 
     private Appointment insert(Appointment appointment) {
-        String sql = "INSERT INTO appointments (client_id, master_id, service_id, date, time, status, created_at, updated_at) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO appointments (client_id, master_id, service_id, date, time, duration, status, " +
+                     "created_at, updated_at, series_id, price) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
         KeyHolder keyHolder = new GeneratedKeyHolder();
         
         jdbcTemplate.update(connection -> {
@@ -96,10 +164,13 @@ public class AppointmentRepository {
             ps.setInt(3, appointment.getServiceId());
             ps.setDate(4, Date.valueOf(appointment.getDate()));
             ps.setTime(5, Time.valueOf(appointment.getTime()));
-            ps.setString(6, appointment.getStatus());
+            ps.setObject(6, appointment.getDuration());
+            ps.setShort(7, appointment.getStatus().getCode());
             LocalDateTime now = LocalDateTime.now();
-            ps.setTimestamp(7, java.sql.Timestamp.valueOf(now));
             ps.setTimestamp(8, java.sql.Timestamp.valueOf(now));
+            ps.setTimestamp(9, java.sql.Timestamp.valueOf(now));
+            ps.setObject(10, appointment.getSeriesId(), Types.INTEGER);
+            ps.setBigDecimal(11, appointment.getPrice());
             return ps;
         }, keyHolder);
 
@@ -107,12 +178,58 @@ public class AppointmentRepository {
         return appointment;
     }
 
+    /**
+     * Вставляет записи пакетами через JDBC batch и проставляет им сгенерированные идентификаторы.
+     * Транзакционность определяется вызывающим кодом.
+     * 
+     * @param appointments записи для вставки
+     * @return вставленные записи
+     */
+    public List<Appointment> insertAll(List<Appointment> appointments) {
+        String sql = "INSERT INTO appointments (client_id, master_id, service_id, date, time, duration, status, " +
+                     "created_at, updated_at, series_id, price) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        for (int offset = 0; offset < appointments.size(); offset += BATCH_SIZE) {
+            List<Appointment> chunk = appointments.subList(offset, Math.min(offset + BATCH_SIZE, appointments.size()));
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(sql, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Appointment appointment = chunk.get(i);
+                        ps.setInt(1, appointment.getClientId());
+                        ps.setInt(2, appointment.getMasterId());
+                        ps.setInt(3, appointment.getServiceId());
+                        ps.setDate(4, Date.valueOf(appointment.getDate()));
+                        ps.setTime(5, Time.valueOf(appointment.getTime()));
+                        ps.setObject(6, appointment.getDuration());
+                        ps.setShort(7, appointment.getStatus().getCode());
+                        ps.setTimestamp(8, java.sql.Timestamp.valueOf(appointment.getCreatedAt()));
+                        ps.setTimestamp(9, java.sql.Timestamp.valueOf(appointment.getUpdatedAt()));
+                        ps.setObject(10, appointment.getSeriesId(), Types.INTEGER);
+                        ps.setBigDecimal(11, appointment.getPrice());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return chunk.size();
+                    }
+                }, keyHolder);
+
+            List<Map<String, Object>> keys = keyHolder.getKeyList();
+            for (int i = 0; i < chunk.size(); i++) {
+                chunk.get(i).setId(((Number) keys.get(i).get("id")).intValue());
+            }
+        }
+        return appointments;
+    }
+
     private Appointment update(Appointment appointment) {
         String sql = "UPDATE appointments SET client_id = ?, master_id = ?, service_id = ?, " +
-                     "date = ?, time = ?, status = ? WHERE id = ?";
+                     "date = ?, time = ?, duration = ?, price = ?, status = ?, series_id = ? WHERE id = ?";
         jdbcTemplate.update(sql, appointment.getClientId(), appointment.getMasterId(), 
                           appointment.getServiceId(), Date.valueOf(appointment.getDate()),
-                          Time.valueOf(appointment.getTime()), appointment.getStatus(), appointment.getId());
+                          Time.valueOf(appointment.getTime()), appointment.getDuration(), appointment.getPrice(),
+                          appointment.getStatus().getCode(), appointment.getSeriesId(), appointment.getId());
         return appointment;
     }
 
@@ -0,0 +1,80 @@
+package com.parik.repository;
+
+import com.parik.model.IdempotencyRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Репозиторий ключей идемпотентности (таблица idempotency_keys).
+ * 
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Repository
+public class IdempotencyRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final RowMapper<IdempotencyRecord> recordRowMapper = (rs, rowNum) -> {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setKey(rs.getString("idem_key"));
+        record.setScope(rs.getString("scope"));
+        record.setRequestHash(rs.getString("request_hash"));
+        record.setStatusCode(rs.getObject("status_code", Integer.class));
+        record.setContentType(rs.getString("content_type"));
+        record.setBody(rs.getBytes("response_body"));
+        record.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        record.setExpiresAt(rs.getTimestamp("expires_at").toLocalDateTime());
+        return record;
+    };
+
+    public Optional<IdempotencyRecord> find(String key, String scope) {
+        String sql = "SELECT * FROM idempotency_keys WHERE idem_key = ? AND scope = ?";
+        List<IdempotencyRecord> records = jdbcTemplate.query(sql, recordRowMapper, key, scope);
+        return records.isEmpty() ? Optional.empty() : Optional.of(records.get(0));
+    }
+
+    /**
+     * Занимает ключ для выполнения запроса.
+     * 
+     * @param record ключ, область и отпечаток запроса
+     * @return true, если ключ занят этим вызовом; false, если он уже существует
+     */
+    public boolean claim(IdempotencyRecord record) {
+        String sql = "INSERT INTO idempotency_keys (idem_key, scope, request_hash, created_at, expires_at) " +
+                     "VALUES (?, ?, ?, ?, ?) ON CONFLICT (idem_key, scope) DO NOTHING";
+        return jdbcTemplate.update(sql, record.getKey(), record.getScope(), record.getRequestHash(),
+            Timestamp.valueOf(record.getCreatedAt()), Timestamp.valueOf(record.getExpiresAt())) == 1;
+    }
+
+    public void complete(IdempotencyRecord record) {
+        String sql = "UPDATE idempotency_keys SET status_code = ?, content_type = ?, response_body = ? " +
+                     "WHERE idem_key = ? AND scope = ?";
+        jdbcTemplate.update(sql, record.getStatusCode(), record.getContentType(), record.getBody(),
+            record.getKey(), record.getScope());
+    }
+
+    public void delete(String key, String scope) {
+        String sql = "DELETE FROM idempotency_keys WHERE idem_key = ? AND scope = ?";
+        jdbcTemplate.update(sql, key, scope);
+    }
+
+    /**
+     * Удаляет ключи с истёкшим сроком хранения.
+     * 
+     * @param now текущий момент
+     * @return число удалённых ключей
+     */
+    public int deleteExpired(LocalDateTime now) {
+        String sql = "DELETE FROM idempotency_keys WHERE expires_at < ?";
+        return jdbcTemplate.update(sql, Timestamp.valueOf(now));
+    }
+}
@@ -1,13 +1,19 @@
 package com.parik.repository;
 
 import com.parik.model.Appointment;
+import com.parik.model.AppointmentStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Репозиторий для работы с записями клиентов в базе данных.
@@ -19,29 +25,37 @@ import java.util.List;
 @Repository
 public interface JpaAppointmentRepository extends JpaRepository<Appointment, Integer> {
     /**
-     * Находит все записи клиента.
+     * Возвращает страницу записей без подсчёта общего числа строк.
+     * 
+     * @param pageable номер, размер и сортировка страницы
+     * @return страница записей
+     */
+    Slice<Appointment> findAllBy(Pageable pageable);
+
+    /**
+     * Находит все записи клиента, от новых к старым.
      * 
      * @param clientId идентификатор клиента
      * @return список записей клиента
      */
-    List<Appointment> findByClientId(Integer clientId);
+    List<Appointment> findByClientIdOrderByDateDescTimeDesc(Integer clientId);
     
     /**
-     * Находит все записи мастера.
+     * Находит все записи мастера в порядке даты и времени.
      * 
      * @param masterId идентификатор мастера
      * @return список записей мастера
      */
-    List<Appointment> findByMasterId(Integer masterId);
+    List<Appointment> findByMasterIdOrderByDateAscTimeAsc(Integer masterId);
     
     /**
-     * Находит все записи мастера на указанную дату.
+     * Находит все записи мастера на указанную дату в порядке времени.
      * 
      * @param masterId идентификатор мастера
      * @param date дата записи
      * @return список записей мастера на дату
      */
-    List<Appointment> findByMasterIdAndDate(Integer masterId, LocalDate date);
+    List<Appointment> findByMasterIdAndDateOrderByTimeAsc(Integer masterId, LocalDate date);
     
     /**
      * Находит все записи с указанным статусом.
@@ -49,16 +63,256 @@ public interface JpaAppointmentRepository extends JpaRepository<Appointment, Int
      * @param status статус записи
      * @return список записей с указанным статусом
      */
-    List<Appointment> findByStatus(String status);
+    List<Appointment> findByStatus(AppointmentStatus status);
+
+    /**
+     * Подсчитывает записи с указанным статусом.
+     * 
+     * @param status статус записи
+     * @return количество записей
+     */
+    long countByStatus(AppointmentStatus status);
     
     /**
-     * Находит все записи клиента или мастера.
+     * Находит идентификаторы записей серии начиная с даты в указанном статусе.
+     * Сами записи не загружаются: каждая перечитывается под блокировкой своего дня.
+     * 
+     * @param seriesId идентификатор серии
+     * @param date начальная дата
+     * @param status статус записи
+     * @return идентификаторы записей серии
+     */
+    @Query("SELECT a.id FROM Appointment a WHERE a.seriesId = :seriesId AND a.date >= :date AND a.status = :status")
+    List<Integer> findIdsBySeriesFrom(@Param("seriesId") Integer seriesId, @Param("date") LocalDate date,
+                                      @Param("status") AppointmentStatus status);
+
+    /**
+     * Возвращает страницу записей клиента или мастера после курсора в порядке от новых к старым.
+     * Каждая ветка читает не больше страницы по своему индексу (client_id, date, time, id)
+     * или (master_id, date, time, id); запись, подходящая под обе ветки, выдаётся один раз.
      * 
      * @param clientId идентификатор клиента
      * @param masterId идентификатор мастера
-     * @return список записей клиента или мастера
+     * @param date дата последней выданной записи
+     * @param time время последней выданной записи
+     * @param id идентификатор последней выданной записи
+     * @param limit размер страницы
+     * @return записи страницы
      */
-    @Query("SELECT a FROM Appointment a WHERE a.clientId = :clientId OR a.masterId = :masterId")
-    List<Appointment> findByClientOrMaster(@Param("clientId") Integer clientId, @Param("masterId") Integer masterId);
-}
+    @Query(value = "SELECT * FROM (" +
+                   "(SELECT * FROM appointments WHERE client_id = :clientId " +
+                   "AND (date, time, id) < (:date, :time, :id) " +
+                   "ORDER BY date DESC, time DESC, id DESC LIMIT :limit) " +
+                   "UNION " +
+                   "(SELECT * FROM appointments WHERE master_id = :masterId " +
+                   "AND (date, time, id) < (:date, :time, :id) " +
+                   "ORDER BY date DESC, time DESC, id DESC LIMIT :limit)) a " +
+                   "ORDER BY date DESC, time DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<Appointment> findPageByClientOrMaster(@Param("clientId") Integer clientId,
+                                               @Param("masterId") Integer masterId,
+                                               @Param("date") LocalDate date, @Param("time") LocalTime time,
+                                               @Param("id") Integer id, @Param("limit") int limit);
+
+    /**
+     * Ищет записи по имени клиента, мастера или названию услуги.
+     * Сначала по триграммным индексам (pg_trgm) находятся подходящие клиенты, мастера и услуги,
+     * затем их записи - по индексам client_id, master_id и service_id, без чтения всей таблицы.
+     * Релевантность записи - наибольшее сходство слов запроса с одним из трёх имён.
+     * 
+     * @param query строка поиска
+     * @param pattern шаблон ILIKE для поиска подстроки (с экранированными % и _)
+     * @param limit размер страницы
+     * @param offset число пропускаемых записей
+     * @return записи от наиболее релевантных, при равной релевантности - от новых к старым
+     */
+    @Query(value = "WITH clients AS (SELECT id, word_similarity(:query, username) AS rank FROM users " +
+                   "WHERE username ILIKE :pattern OR :query <% username), " +
+                   "masters_found AS (SELECT id, word_similarity(:query, name) AS rank FROM masters " +
+                   "WHERE name ILIKE :pattern OR :query <% name), " +
+                   "services_found AS (SELECT id, word_similarity(:query, name) AS rank FROM services " +
+                   "WHERE name ILIKE :pattern OR :query <% name), " +
+                   "hits AS (" +
+                   "SELECT a.id, a.date, c.rank FROM clients c JOIN appointments a ON a.client_id = c.id " +
+                   "UNION ALL SELECT a.id, a.date, m.rank FROM masters_found m JOIN appointments a ON a.master_id = m.id " +
+                   "UNION ALL SELECT a.id, a.date, s.rank FROM services_found s JOIN appointments a ON a.service_id = s.id), " +
+                   "ranked AS (SELECT id, date, max(rank) AS rank FROM hits GROUP BY id, date) " +
+                   "SELECT a.* FROM ranked r JOIN appointments a ON a.id = r.id AND a.date = r.date " +
+                   "ORDER BY r.rank DESC, a.date DESC, a.time DESC, a.id DESC LIMIT :limit OFFSET :offset",
+           nativeQuery = true)
+    List<Appointment> search(@Param("query") String query, @Param("pattern") String pattern,
+                             @Param("limit") int limit, @Param("offset") int offset);
+
+    /**
+     * Находит интервалы занятости мастера на дату с учётом длительности записей.
+     * Для старых записей без сохранённой длительности используется длительность услуги.
+     * Каждая строка содержит идентификатор записи, время начала и длительность в минутах.
+     * 
+     * @param masterId идентификатор мастера
+     * @param date дата записи
+     * @return строки [id, time, duration] неотменённых записей
+     */
+    @Query("SELECT a.id, a.time, COALESCE(a.duration, s.duration) FROM Appointment a, Service s " +
+           "WHERE s.id = a.serviceId AND a.masterId = :masterId AND a.date = :date " +
+           "AND a.status <> com.parik.model.AppointmentStatus.CANCELLED")
+    List<Object[]> findBookedIntervals(@Param("masterId") Integer masterId, @Param("date") LocalDate date);
+
+    /**
+     * Потоково выдаёт неотменённые записи начиная с даты, упорядоченные
+     * по мастеру, дате и времени, для поиска пересечений проходом «сортировка и заметание».
+     * Каждая строка содержит идентификатор, мастера, дату, время начала и длительность.
+     * 
+     * @param from начальная дата
+     * @return поток строк [id, masterId, date, time, duration]
+     */
+    @Query("SELECT a.id, a.masterId, a.date, a.time, COALESCE(a.duration, s.duration) FROM Appointment a, Service s " +
+           "WHERE s.id = a.serviceId AND a.status <> com.parik.model.AppointmentStatus.CANCELLED " +
+           "AND a.date >= :from " +
+           "ORDER BY a.masterId, a.date, a.time, a.id")
+    Stream<Object[]> streamBookedIntervalsFrom(@Param("from") LocalDate from);
+
+    /**
+     * Находит интервалы занятости всех мастеров за период одним запросом.
+     * Каждая строка содержит мастера, дату, время начала и длительность в минутах.
+     * 
+     * @param from начальная дата периода
+     * @param to конечная дата периода
+     * @return строки [masterId, date, time, duration], упорядоченные по дате, мастеру и времени
+     */
+    @Query("SELECT a.masterId, a.date, a.time, COALESCE(a.duration, s.duration) FROM Appointment a, Service s " +
+           "WHERE s.id = a.serviceId AND a.status <> com.parik.model.AppointmentStatus.CANCELLED " +
+           "AND a.date BETWEEN :from AND :to " +
+           "ORDER BY a.date, a.masterId, a.time")
+    List<Object[]> findBookedIntervalsBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
 
+    /**
+     * Возвращает страницу всех записей после курсора в порядке от новых к старым.
+     * Сравнение строк по (date, time, id) позволяет базе начать чтение индекса
+     * сразу с позиции курсора, поэтому дальние страницы не дороже первой.
+     * 
+     * @param date дата последней выданной записи
+     * @param time время последней выданной записи
+     * @param id идентификатор последней выданной записи
+     * @param limit размер страницы
+     * @return записи страницы
+     */
+    @Query(value = "SELECT * FROM appointments WHERE (date, time, id) < (:date, :time, :id) " +
+                   "ORDER BY date DESC, time DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<Appointment> findPage(@Param("date") LocalDate date, @Param("time") LocalTime time,
+                               @Param("id") Integer id, @Param("limit") int limit);
+
+    /**
+     * Возвращает страницу записей клиента после курсора в порядке от новых к старым.
+     * 
+     * @param clientId идентификатор клиента
+     * @param date дата последней выданной записи
+     * @param time время последней выданной записи
+     * @param id идентификатор последней выданной записи
+     * @param limit размер страницы
+     * @return записи страницы
+     */
+    @Query(value = "SELECT * FROM appointments WHERE client_id = :clientId " +
+                   "AND (date, time, id) < (:date, :time, :id) " +
+                   "ORDER BY date DESC, time DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<Appointment> findPageByClientId(@Param("clientId") Integer clientId, @Param("date") LocalDate date,
+                                         @Param("time") LocalTime time, @Param("id") Integer id,
+                                         @Param("limit") int limit);
+
+    /**
+     * Возвращает страницу записей мастера после курсора в порядке от новых к старым.
+     * 
+     * @param masterId идентификатор мастера
+     * @param date дата последней выданной записи
+     * @param time время последней выданной записи
+     * @param id идентификатор последней выданной записи
+     * @param limit размер страницы
+     * @return записи страницы
+     */
+    @Query(value = "SELECT * FROM appointments WHERE master_id = :masterId " +
+                   "AND (date, time, id) < (:date, :time, :id) " +
+                   "ORDER BY date DESC, time DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<Appointment> findPageByMasterId(@Param("masterId") Integer masterId, @Param("date") LocalDate date,
+                                         @Param("time") LocalTime time, @Param("id") Integer id,
+                                         @Param("limit") int limit);
+
+    /**
+     * Возвращает страницу записей с указанным статусом после курсора в порядке от новых к старым.
+     * 
+     * @param status код статуса записи
+     * @param date дата последней выданной записи
+     * @param time время последней выданной записи
+     * @param id идентификатор последней выданной записи
+     * @param limit размер страницы
+     * @return записи страницы
+     */
+    @Query(value = "SELECT * FROM appointments WHERE status = :status " +
+                   "AND (date, time, id) < (:date, :time, :id) " +
+                   "ORDER BY date DESC, time DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<Appointment> findPageByStatus(@Param("status") short status, @Param("date") LocalDate date,
+                                       @Param("time") LocalTime time, @Param("id") Integer id,
+                                       @Param("limit") int limit);
+
+    /**
+     * Переводит все записи мастера на дату из одного статуса в другой одним запросом.
+     * 
+     * @param masterId идентификатор мастера
+     * @param date дата
+     * @param fromStatus код текущего статуса
+     * @param toStatus код нового статуса
+     * @return изменённые записи: строки [id, client_id, master_id, service_id, date, time, duration, series_id, price]
+     */
+    @Transactional
+    @Query(value = "UPDATE appointments SET status = :toStatus, updated_at = CURRENT_TIMESTAMP " +
+                   "WHERE master_id = :masterId AND date = :date AND status = :fromStatus " +
+                   "RETURNING id, client_id, master_id, service_id, date, time, duration, series_id, price",
+           nativeQuery = true)
+    List<Object[]> transitionMasterDay(@Param("masterId") Integer masterId, @Param("date") LocalDate date,
+                                       @Param("fromStatus") short fromStatus, @Param("toStatus") short toStatus);
+
+    /**
+     * Переводит все записи мастера за период из одного статуса в другой одним запросом.
+     * 
+     * @param masterId идентификатор мастера
+     * @param from начальная дата периода
+     * @param to конечная дата периода (включительно)
+     * @param fromStatus код текущего статуса
+     * @param toStatus код нового статуса
+     * @return изменённые записи: строки [id, client_id, master_id, service_id, date, time, duration, series_id, price]
+     */
+    @Transactional
+    @Query(value = "UPDATE appointments SET status = :toStatus, updated_at = CURRENT_TIMESTAMP " +
+                   "WHERE master_id = :masterId AND date BETWEEN :from AND :to AND status = :fromStatus " +
+                   "RETURNING id, client_id, master_id, service_id, date, time, duration, series_id, price",
+           nativeQuery = true)
+    List<Object[]> transitionMasterRange(@Param("masterId") Integer masterId, @Param("from") LocalDate from,
+                                         @Param("to") LocalDate to, @Param("fromStatus") short fromStatus,
+                                         @Param("toStatus") short toStatus);
+
+    /**
+     * Переводит очередную порцию записей с датой раньше указанной из одного статуса в другой.
+     * Порция выбирается по возрастанию ключа (date, time, id) строго после переданной позиции.
+     * Строки, заблокированные другими транзакциями, пропускаются (SKIP LOCKED): запрос
+     * не ждёт бронирований, а пропущенные строки обработает следующий запуск.
+     * 
+     * @param before граница дат (не включительно)
+     * @param date дата позиции
+     * @param time время позиции
+     * @param id идентификатор позиции
+     * @param limit размер порции
+     * @param fromStatus код текущего статуса
+     * @param toStatus код нового статуса
+     * @return изменённые записи: строки [id, client_id, master_id, service_id, date, time, duration, series_id, price]
+     */
+    @Transactional
+    @Query(value = "WITH chunk AS (" +
+                   "SELECT id, date FROM appointments " +
+                   "WHERE status = :fromStatus AND date < :before AND (date, time, id) > (:date, :time, :id) " +
+                   "ORDER BY date, time, id LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+                   "UPDATE appointments a SET status = :toStatus, updated_at = CURRENT_TIMESTAMP " +
+                   "FROM chunk WHERE a.id = chunk.id AND a.date = chunk.date " +
+                   "RETURNING a.id, a.client_id, a.master_id, a.service_id, a.date, a.time, a.duration, a.series_id, a.price",
+           nativeQuery = true)
+    List<Object[]> transitionExpiredChunk(@Param("before") LocalDate before, @Param("date") LocalDate date,
+                                          @Param("time") LocalTime time, @Param("id") Integer id,
+                                          @Param("limit") int limit, @Param("fromStatus") short fromStatus,
+                                          @Param("toStatus") short toStatus);
+}
@@ -0,0 +1,43 @@
+package com.parik.repository;
+
+import com.parik.model.AppointmentSeries;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Репозиторий для работы с сериями повторяющихся записей в базе данных.
+ * 
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Repository
+public interface JpaAppointmentSeriesRepository extends JpaRepository<AppointmentSeries, Integer> {
+    /**
+     * Находит действующие серии, у которых после созданных записей ещё остались визиты.
+     * Пустые фильтры не ограничивают выборку.
+     * 
+     * @param clientId идентификатор клиента или null
+     * @param masterId идентификатор мастера или null
+     * @return список серий
+     */
+    @Query("SELECT s FROM AppointmentSeries s WHERE s.active = true " +
+           "AND (s.endDate IS NULL OR s.endDate > s.materializedUntil) " +
+           "AND (:clientId IS NULL OR s.clientId = :clientId) " +
+           "AND (:masterId IS NULL OR s.masterId = :masterId)")
+    List<AppointmentSeries> findOpen(@Param("clientId") Integer clientId, @Param("masterId") Integer masterId);
+
+    /**
+     * Находит действующие серии, записи которых созданы не до горизонта бронирования.
+     * 
+     * @param horizon горизонт бронирования
+     * @return список серий
+     */
+    @Query("SELECT s FROM AppointmentSeries s WHERE s.active = true AND s.materializedUntil < :horizon " +
+           "AND (s.endDate IS NULL OR s.endDate > s.materializedUntil)")
+    List<AppointmentSeries> findDueForExtension(@Param("horizon") LocalDate horizon);
+}
@@ -0,0 +1,23 @@
+package com.parik.repository;
+
+import com.parik.model.AppointmentSweepRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Репозиторий для работы с журналом запусков очистки просроченных записей.
+ * 
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Repository
+public interface JpaAppointmentSweepRunRepository extends JpaRepository<AppointmentSweepRun, Integer> {
+    /**
+     * Находит последние запуски очистки, от новых к старым.
+     * 
+     * @return до 20 последних запусков
+     */
+    List<AppointmentSweepRun> findTop20ByOrderByStartedAtDesc();
+}
@@ -0,0 +1,26 @@
+package com.parik.repository;
+
+import com.parik.model.DailyRevenue;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Репозиторий для чтения ежедневных итогов выполненных записей.
+ * 
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Repository
+public interface JpaDailyRevenueRepository extends JpaRepository<DailyRevenue, LocalDate> {
+    /**
+     * Находит итоги за период. Дни без выполненных записей в результат не попадают.
+     * 
+     * @param from начальная дата периода
+     * @param to конечная дата периода
+     * @return итоги по возрастанию даты
+     */
+    List<DailyRevenue> findByDateBetweenOrderByDateAsc(LocalDate from, LocalDate to);
+}
@@ -0,0 +1,42 @@
+package com.parik.repository;
+
+import com.parik.model.MasterScheduleOverride;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Репозиторий для работы с исключениями из графиков мастеров.
+ * 
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Repository
+public interface JpaMasterScheduleOverrideRepository extends JpaRepository<MasterScheduleOverride, Integer> {
+    /**
+     * Находит исключения мастера за период.
+     * 
+     * @param masterId идентификатор мастера
+     * @param from начальная дата периода
+     * @param to конечная дата периода
+     * @return исключения по дате и времени начала
+     */
+    List<MasterScheduleOverride> findByMasterIdAndDateBetweenOrderByDateAscStartTimeAsc(
+        Integer masterId, LocalDate from, LocalDate to);
+
+    /**
+     * Удаляет исключения мастера на дату.
+     * 
+     * @param masterId идентификатор мастера
+     * @param date дата
+     * @return количество удалённых строк
+     */
+    @Modifying
+    @Query("DELETE FROM MasterScheduleOverride o WHERE o.masterId = :masterId AND o.date = :date")
+    int deleteByMasterIdAndDate(@Param("masterId") Integer masterId, @Param("date") LocalDate date);
+}
@@ -0,0 +1,83 @@
+package com.parik.repository;
+
+import com.parik.model.MasterWorkingHours;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Репозиторий для работы с рабочим временем мастеров: недельными графиками
+ * и вычислением действующих интервалов работы с учётом исключений и закрытий салона.
+ * 
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Repository
+public interface JpaMasterWorkingHoursRepository extends JpaRepository<MasterWorkingHours, Integer> {
+    /**
+     * Находит недельный график мастера.
+     * 
+     * @param masterId идентификатор мастера
+     * @return интервалы графика по дням недели и времени начала
+     */
+    List<MasterWorkingHours> findByMasterIdOrderByWeekdayAscStartTimeAsc(Integer masterId);
+
+    /**
+     * Удаляет недельный график мастера.
+     * 
+     * @param masterId идентификатор мастера
+     */
+    @Modifying
+    @Query("DELETE FROM MasterWorkingHours w WHERE w.masterId = :masterId")
+    void deleteByMasterId(@Param("masterId") Integer masterId);
+
+    /**
+     * Вычисляет действующие интервалы работы мастеров за период одним запросом.
+     * Для каждого мастера и дня, кроме дней закрытия салона, берутся интервалы исключения
+     * на эту дату, если оно есть (исключение без времени - выходной); иначе интервалы
+     * недельного графика для дня недели; мастер без графика работает в окно по умолчанию.
+     * 
+     * @param allMasters вычислять ли интервалы всех мастеров
+     * @param masterId идентификатор мастера, если allMasters = false
+     * @param from начальная дата периода
+     * @param to конечная дата периода (включительно)
+     * @param dayStart начало окна по умолчанию
+     * @param dayEnd конец окна по умолчанию
+     * @return строки [masterId, date, start_time, end_time], упорядоченные по мастеру, дате и началу
+     */
+    @Query(value = "WITH days AS (" +
+                   "  SELECT CAST(d AS date) AS day " +
+                   "  FROM generate_series(CAST(:from AS date), CAST(:to AS date), INTERVAL '1 day') d " +
+                   "  WHERE NOT EXISTS (SELECT 1 FROM salon_closures c WHERE c.date = CAST(d AS date))" +
+                   "), ms AS (" +
+                   "  SELECT m.id, EXISTS (SELECT 1 FROM master_working_hours w WHERE w.master_id = m.id) AS scheduled " +
+                   "  FROM masters m WHERE :allMasters OR m.id = :masterId" +
+                   ") " +
+                   "SELECT ms.id, days.day, o.start_time, o.end_time " +
+                   "FROM ms CROSS JOIN days " +
+                   "JOIN master_schedule_overrides o ON o.master_id = ms.id AND o.date = days.day " +
+                   "WHERE o.start_time IS NOT NULL " +
+                   "UNION ALL " +
+                   "SELECT ms.id, days.day, w.start_time, w.end_time " +
+                   "FROM ms CROSS JOIN days " +
+                   "JOIN master_working_hours w ON w.master_id = ms.id AND w.weekday = EXTRACT(ISODOW FROM days.day) " +
+                   "WHERE NOT EXISTS (SELECT 1 FROM master_schedule_overrides o " +
+                   "                  WHERE o.master_id = ms.id AND o.date = days.day) " +
+                   "UNION ALL " +
+                   "SELECT ms.id, days.day, CAST(:dayStart AS time), CAST(:dayEnd AS time) " +
+                   "FROM ms CROSS JOIN days " +
+                   "WHERE NOT ms.scheduled " +
+                   "AND NOT EXISTS (SELECT 1 FROM master_schedule_overrides o " +
+                   "                WHERE o.master_id = ms.id AND o.date = days.day) " +
+                   "ORDER BY 1, 2, 3",
+           nativeQuery = true)
+    List<Object[]> findOpenIntervals(@Param("allMasters") boolean allMasters, @Param("masterId") Integer masterId,
+                                     @Param("from") LocalDate from, @Param("to") LocalDate to,
+                                     @Param("dayStart") LocalTime dayStart, @Param("dayEnd") LocalTime dayEnd);
+}
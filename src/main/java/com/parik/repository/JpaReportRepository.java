@@ -2,7 +2,10 @@ package com.parik.repository;
 
 import com.parik.model.Report;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -24,5 +27,35 @@ public interface JpaReportRepository extends JpaRepository<Report, Integer> {
      * @return список отчётов за период
      */
     List<Report> findByReportDateBetween(LocalDate startDate, LocalDate endDate);
-}
 
+    /**
+     * Проверяет, есть ли отчёт за дату.
+     * 
+     * @param reportDate дата отчёта
+     * @return true, если отчёт существует
+     */
+    boolean existsByReportDate(LocalDate reportDate);
+
+    /**
+     * Создаёт или пересчитывает отчёты за каждый день периода одним запросом.
+     * Итоги берутся из daily_revenue, дни без выполненных записей получают нулевые отчёты;
+     * существующий отчёт за дату обновляется (ключ - уникальный report_date).
+     * 
+     * @param from начальная дата периода
+     * @param to конечная дата периода (включительно)
+     * @return отчёты периода в порядке дат
+     */
+    @Transactional
+    @Query(value = "WITH upserted AS (" +
+                   "INSERT INTO reports (report_date, total_clients, total_income, created_at) " +
+                   "SELECT CAST(g.day AS date), COALESCE(r.distinct_clients, 0), COALESCE(r.income, 0), " +
+                   "CURRENT_TIMESTAMP " +
+                   "FROM generate_series(CAST(:from AS timestamp), CAST(:to AS timestamp), INTERVAL '1 day') AS g(day) " +
+                   "LEFT JOIN daily_revenue r ON r.date = CAST(g.day AS date) " +
+                   "ON CONFLICT (report_date) DO UPDATE SET total_clients = EXCLUDED.total_clients, " +
+                   "total_income = EXCLUDED.total_income, created_at = EXCLUDED.created_at " +
+                   "RETURNING id, report_date, total_clients, total_income, created_at) " +
+                   "SELECT * FROM upserted ORDER BY report_date",
+           nativeQuery = true)
+    List<Report> upsertDailyReports(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
@@ -0,0 +1,34 @@
+package com.parik.repository;
+
+import com.parik.model.SalonClosure;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Репозиторий для работы с днями закрытия салона.
+ * 
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Repository
+public interface JpaSalonClosureRepository extends JpaRepository<SalonClosure, Integer> {
+    /**
+     * Находит дни закрытия за период.
+     * 
+     * @param from начальная дата периода
+     * @param to конечная дата периода
+     * @return дни закрытия по возрастанию даты
+     */
+    List<SalonClosure> findByDateBetweenOrderByDateAsc(LocalDate from, LocalDate to);
+
+    /**
+     * Проверяет, закрыт ли салон в указанный день.
+     * 
+     * @param date дата
+     * @return true, если день уже отмечен закрытым
+     */
+    boolean existsByDate(LocalDate date);
+}
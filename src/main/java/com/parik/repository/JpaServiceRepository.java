@@ -1,6 +1,8 @@
 package com.parik.repository;
 
 import com.parik.model.Service;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -17,6 +19,14 @@ import java.util.List;
  */
 @Repository
 public interface JpaServiceRepository extends JpaRepository<Service, Integer> {
+    /**
+     * Возвращает страницу услуг без подсчёта общего числа строк.
+     * 
+     * @param pageable номер, размер и сортировка страницы
+     * @return страница услуг
+     */
+    Slice<Service> findAllBy(Pageable pageable);
+
     /**
      * Находит услуги, название которых содержит указанную строку (без учета регистра).
      * 
@@ -33,5 +43,13 @@ public interface JpaServiceRepository extends JpaRepository<Service, Integer> {
      */
     @Query("SELECT s FROM Service s WHERE s.name LIKE %:query% OR s.description LIKE %:query%")
     List<Service> search(@Param("query") String query);
+
+    /**
+     * Возвращает длительность самой короткой услуги.
+     * 
+     * @return длительность в минутах или null, если услуг нет
+     */
+    @Query("SELECT MIN(s.duration) FROM Service s")
+    Integer findMinDuration();
 }
 
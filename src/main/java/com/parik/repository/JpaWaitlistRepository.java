@@ -0,0 +1,67 @@
+package com.parik.repository;
+
+import com.parik.model.WaitlistEntry;
+import com.parik.model.WaitlistStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Репозиторий для работы с листом ожидания в базе данных.
+ * 
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Repository
+public interface JpaWaitlistRepository extends JpaRepository<WaitlistEntry, Integer> {
+    /**
+     * Находит заявки клиента, от новых к старым.
+     * 
+     * @param clientId идентификатор клиента
+     * @return список заявок клиента
+     */
+    List<WaitlistEntry> findByClientIdOrderByCreatedAtDesc(Integer clientId);
+
+    /**
+     * Находит заявки к мастеру на дату в указанном состоянии в порядке очереди.
+     * 
+     * @param masterId идентификатор мастера
+     * @param date дата
+     * @param status состояние заявок
+     * @return список заявок
+     */
+    List<WaitlistEntry> findByMasterIdAndDateAndStatusOrderByCreatedAtAscIdAsc(
+        Integer masterId, LocalDate date, WaitlistStatus status);
+
+    /**
+     * Находит ожидающие заявки к мастеру на дату в порядке очереди и блокирует их
+     * до конца транзакции, чтобы одно освободившееся время не досталось двум заявкам.
+     * Запрос обслуживается частичным индексом по (master_id, date) ожидающих заявок.
+     * 
+     * @param masterId идентификатор мастера
+     * @param date дата
+     * @return ожидающие заявки
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM WaitlistEntry w WHERE w.masterId = :masterId AND w.date = :date " +
+           "AND w.status = com.parik.model.WaitlistStatus.WAITING ORDER BY w.createdAt, w.id")
+    List<WaitlistEntry> findWaitingForUpdate(@Param("masterId") Integer masterId, @Param("date") LocalDate date);
+
+    /**
+     * Находит заявки с предложением времени, срок ответа на которое истёк.
+     * Запрос обслуживается частичным индексом по offer_expires_at заявок с предложением.
+     * 
+     * @param now текущий момент
+     * @return заявки с просроченным предложением
+     */
+    @Query("SELECT w FROM WaitlistEntry w WHERE w.status = com.parik.model.WaitlistStatus.OFFERED " +
+           "AND w.offerExpiresAt < :now ORDER BY w.offerExpiresAt, w.id")
+    List<WaitlistEntry> findExpiredOffers(@Param("now") LocalDateTime now);
+}
@@ -53,6 +53,33 @@ public class ReportRepository {
         return jdbcTemplate.query(sql, reportRowMapper, Date.valueOf(startDate), Date.valueOf(endDate));
     }
 
+    public boolean existsByDate(LocalDate reportDate) {
+        String sql = "SELECT EXISTS (SELECT 1 FROM reports WHERE report_date = ?)";
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sql, Boolean.class, Date.valueOf(reportDate)));
+    }
+
+    /**
+     * Создаёт или пересчитывает отчёты за каждый день периода одним запросом.
+     * Итоги берутся из daily_revenue, дни без выполненных записей получают нулевые отчёты;
+     * существующий отчёт за дату обновляется (ключ - уникальный report_date).
+     *
+     * @param from начальная дата периода
+     * @param to конечная дата периода (включительно)
+     * @return отчёты периода в порядке дат
+     */
+    public List<Report> upsertDailyReports(LocalDate from, LocalDate to) {
+        String sql = "WITH upserted AS (" +
+                     "INSERT INTO reports (report_date, total_clients, total_income, created_at) " +
+                     "SELECT g.day::date, COALESCE(r.distinct_clients, 0), COALESCE(r.income, 0), CURRENT_TIMESTAMP " +
+                     "FROM generate_series(?::timestamp, ?::timestamp, INTERVAL '1 day') AS g(day) " +
+                     "LEFT JOIN daily_revenue r ON r.date = g.day::date " +
+                     "ON CONFLICT (report_date) DO UPDATE SET total_clients = EXCLUDED.total_clients, " +
+                     "total_income = EXCLUDED.total_income, created_at = EXCLUDED.created_at " +
+                     "RETURNING *) " +
+                     "SELECT * FROM upserted ORDER BY report_date";
+        return jdbcTemplate.query(sql, reportRowMapper, Date.valueOf(from), Date.valueOf(to));
+    }
+
     public Report save(Report report) {
         if (report.getId() == null) {
             return insert(report);
@@ -0,0 +1,80 @@
+package com.parik.repository;
+
+import com.parik.dto.RevenueCubeRowDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Репозиторий куба выручки (таблица revenue_cube).
+ * Срезы строятся группировкой ячеек куба и не читают таблицу записей.
+ * 
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Repository
+public class RevenueCubeRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Суммирует ячейки куба за период.
+     * 
+     * @param period единица периода для date_trunc (day, week, month) или null - без разбивки по периодам
+     * @param byMaster группировать ли по мастеру
+     * @param byService группировать ли по услуге
+     * @param from начальная дата периода
+     * @param to конечная дата периода
+     * @param masterId отбор по мастеру или null
+     * @param serviceId отбор по услуге или null
+     * @return строки среза, упорядоченные по периоду, мастеру и услуге
+     */
+    public List<RevenueCubeRowDTO> aggregate(String period, boolean byMaster, boolean byService,
+                                             LocalDate from, LocalDate to, Integer masterId, Integer serviceId) {
+        List<String> groups = new ArrayList<>();
+        if (period != null) {
+            groups.add("date_trunc('" + period + "', date)::date");
+        }
+        if (byMaster) {
+            groups.add("master_id");
+        }
+        if (byService) {
+            groups.add("service_id");
+        }
+        StringBuilder sql = new StringBuilder("SELECT ")
+            .append(period != null ? groups.get(0) : "NULL::date").append(" AS period, ")
+            .append(byMaster ? "master_id" : "NULL::int").append(" AS master_id, ")
+            .append(byService ? "service_id" : "NULL::int").append(" AS service_id, ")
+            .append("COALESCE(sum(visits), 0) AS visits, COALESCE(sum(income), 0) AS income ")
+            .append("FROM revenue_cube WHERE date BETWEEN ? AND ?");
+        List<Object> args = new ArrayList<>(List.of(Date.valueOf(from), Date.valueOf(to)));
+        if (masterId != null) {
+            sql.append(" AND master_id = ?");
+            args.add(masterId);
+        }
+        if (serviceId != null) {
+            sql.append(" AND service_id = ?");
+            args.add(serviceId);
+        }
+        if (!groups.isEmpty()) {
+            String columns = String.join(", ", groups);
+            sql.append(" GROUP BY ").append(columns).append(" ORDER BY ").append(columns);
+        }
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+            RevenueCubeRowDTO row = new RevenueCubeRowDTO();
+            Date start = rs.getDate("period");
+            row.setPeriod(start != null ? start.toLocalDate() : null);
+            row.setMasterId(rs.getObject("master_id", Integer.class));
+            row.setServiceId(rs.getObject("service_id", Integer.class));
+            row.setVisits(rs.getLong("visits"));
+            row.setIncome(rs.getBigDecimal("income"));
+            return row;
+        }, args.toArray());
+    }
+}
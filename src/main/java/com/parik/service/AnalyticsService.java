@@ -0,0 +1,68 @@
+package com.parik.service;
+
+import com.parik.dto.RevenueCubeRowDTO;
+import com.parik.repository.RevenueCubeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Сервис аналитики выручки.
+ * Строит срезы выручки и числа визитов по мастерам, услугам и периодам
+ * из куба revenue_cube, который ведётся триггером на таблице записей.
+ * 
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@org.springframework.stereotype.Service
+public class AnalyticsService {
+
+    @Autowired
+    private RevenueCubeRepository revenueCubeRepository;
+
+    @Value("${parik.analytics.max-range-days:1096}")
+    private int maxRangeDays;
+
+    /**
+     * Получает срез выручки за период.
+     * 
+     * @param from начальная дата периода
+     * @param to конечная дата периода
+     * @param groupBy измерения через запятую: master, service (пусто - без группировки)
+     * @param period разбивка по времени: day, week, month или total
+     * @param masterId отбор по мастеру (необязательно)
+     * @param serviceId отбор по услуге (необязательно)
+     * @return строки среза
+     */
+    public List<RevenueCubeRowDTO> getRevenue(LocalDate from, LocalDate to, String groupBy, String period,
+                                              Integer masterId, Integer serviceId) {
+        if (from.isAfter(to)) {
+            throw new RuntimeException("Начальная дата не может быть позже конечной");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxRangeDays) {
+            throw new RuntimeException("Период не может превышать " + maxRangeDays + " дн.");
+        }
+        boolean byMaster = false;
+        boolean byService = false;
+        if (groupBy != null && !groupBy.isBlank()) {
+            for (String dimension : groupBy.split(",")) {
+                switch (dimension.trim().toLowerCase()) {
+                    case "master" -> byMaster = true;
+                    case "service" -> byService = true;
+                    default -> throw new RuntimeException("Неизвестное измерение: " + dimension.trim());
+                }
+            }
+        }
+        String unit = switch (period == null ? "day" : period.trim().toLowerCase()) {
+            case "day" -> "day";
+            case "week" -> "week";
+            case "month" -> "month";
+            case "total" -> null;
+            default -> throw new RuntimeException("Неизвестный период: " + period);
+        };
+        return revenueCubeRepository.aggregate(unit, byMaster, byService, from, to, masterId, serviceId);
+    }
+}
@@ -0,0 +1,291 @@
+package com.parik.service;
+
+import com.parik.dto.AvailableSlotDTO;
+import com.parik.model.Master;
+import com.parik.repository.JpaAppointmentRepository;
+import com.parik.repository.JpaMasterRepository;
+import com.parik.repository.JpaServiceRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Сервис поиска свободного времени мастеров.
+ * Загружает занятость и рабочее время всех мастеров за период двумя запросами
+ * и вычисляет свободные интервалы в памяти вычитанием записей из интервалов работы.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Service
+public class AppointmentAvailabilityService {
+
+    private static final Comparator<AvailableSlotDTO> BY_TIME =
+        Comparator.comparing(AvailableSlotDTO::getTime).thenComparing(AvailableSlotDTO::getMasterId);
+
+    /** Порядок вариантов подбора: [неиспользуемые минуты, число остатков, размер интервала, начало, мастер]. */
+    private static final Comparator<long[]> BEST_FIT = Arrays::compare;
+
+    @Autowired
+    private JpaAppointmentRepository appointmentRepository;
+
+    @Autowired
+    private JpaMasterRepository masterRepository;
+
+    @Autowired
+    private JpaServiceRepository serviceRepository;
+
+    @Autowired
+    private AppointmentSlotIndex slotIndex;
+
+    @Autowired
+    private WorkingHoursService workingHours;
+
+    @Value("${parik.booking.slot-step-minutes:15}")
+    private int slotStepMinutes;
+
+    @Value("${parik.booking.max-range-days:31}")
+    private int maxRangeDays;
+
+    /**
+     * Находит все времена, на которые можно записаться на услугу к любому мастеру за период.
+     * Запрос к базе выполняется сразу, а сами варианты формируются лениво по дням
+     * и выдаются в порядке даты и времени. Для сегодняшнего дня варианты начинаются
+     * не раньше текущего времени.
+     *
+     * @param serviceId идентификатор услуги
+     * @param from начальная дата периода, не раньше сегодняшней
+     * @param to конечная дата периода (включительно)
+     * @return поток свободных вариантов записи, упорядоченный по времени
+     * @throws RuntimeException если период задан неверно, начинается в прошлом или услуга не найдена
+     */
+    public Stream<AvailableSlotDTO> findAvailableSlots(Integer serviceId, LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        checkNotPast(from);
+        int duration = slotIndex.durationOf(serviceId);
+        List<Integer> masterIds = masterRepository.findAll().stream()
+            .map(Master::getId)
+            .sorted()
+            .collect(Collectors.toList());
+        Map<LocalDate, Map<Integer, List<int[]>>> busy = loadBusyIntervals(from, to);
+        Map<LocalDate, Map<Integer, List<int[]>>> open = workingHours.openIntervals(from, to);
+
+        return from.datesUntil(to.plusDays(1))
+            .flatMap(date -> slotsForDate(date, masterIds, busy.getOrDefault(date, Map.of()),
+                open.getOrDefault(date, Map.of()), duration));
+    }
+
+    /**
+     * Подбирает мастера и время для услуги в желаемом окне так, чтобы расписание дня
+     * дробилось как можно меньше (best-fit по свободным интервалам мастеров).
+     * Каждое допустимое по сетке время оценивается по остаткам свободного интервала
+     * до и после записи: в первую очередь минимизируются минуты в остатках короче
+     * самой короткой услуги (на них уже никого не записать), затем число остатков,
+     * затем размер занимаемого интервала - запись ставится в самый тесный подходящий
+     * промежуток, а длинные остаются для длинных услуг. Занятость всех мастеров
+     * и их интервалы работы на дату загружаются двумя запросами, оценка выполняется в памяти.
+     *
+     * @param serviceId идентификатор услуги
+     * @param date дата
+     * @param from начало желаемого окна или null для начала рабочего дня
+     * @param to конец желаемого окна или null для конца рабочего дня
+     * @return варианты от лучшего к худшему; пустой список, если свободного времени нет
+     * @throws RuntimeException если дата, окно или услуга заданы неверно или дата уже прошла
+     */
+    public List<AvailableSlotDTO> rankBestFit(Integer serviceId, LocalDate date, LocalTime from, LocalTime to) {
+        if (date == null) {
+            throw new RuntimeException("Дата не указана");
+        }
+        checkNotPast(date);
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new RuntimeException("Неверное окно времени");
+        }
+        int duration = slotIndex.durationOf(serviceId);
+        Integer shortest = serviceRepository.findMinDuration();
+        int minUsable = shortest != null ? shortest : duration;
+        int windowStart = from != null ? AppointmentSlotIndex.minuteOf(from) : 0;
+        int windowEnd = to != null ? AppointmentSlotIndex.minuteOf(to) : 24 * 60;
+
+        Map<Integer, List<int[]>> busyByMaster = loadBusyIntervals(date, date).getOrDefault(date, Map.of());
+        Map<Integer, List<int[]>> openByMaster = workingHours.openIntervals(date, date).getOrDefault(date, Map.of());
+        List<long[]> scored = new ArrayList<>();
+        for (Map.Entry<Integer, List<int[]>> master : openByMaster.entrySet()) {
+            List<int[]> busy = busyByMaster.getOrDefault(master.getKey(), List.of());
+            for (int[] gap : freeIntervals(date, master.getValue(), busy)) {
+                int last = Math.min(gap[1], windowEnd) - duration;
+                for (int start = ceilToStep(Math.max(gap[0], windowStart)); start <= last; start += slotStepMinutes) {
+                    int before = start - gap[0];
+                    int after = gap[1] - start - duration;
+                    scored.add(new long[]{
+                        unusable(before, minUsable) + unusable(after, minUsable),
+                        (before > 0 ? 1 : 0) + (after > 0 ? 1 : 0),
+                        gap[1] - gap[0],
+                        start,
+                        master.getKey()
+                    });
+                }
+            }
+        }
+        scored.sort(BEST_FIT);
+        List<AvailableSlotDTO> ranked = new ArrayList<>(scored.size());
+        for (long[] candidate : scored) {
+            int start = (int) candidate[3];
+            ranked.add(new AvailableSlotDTO((int) candidate[4], date, toTime(start), toTime(start + duration)));
+        }
+        return ranked;
+    }
+
+    /**
+     * Загружает занятые интервалы всех мастеров за период одним запросом.
+     *
+     * @param from начальная дата периода
+     * @param to конечная дата периода (включительно)
+     * @return интервалы [начало, конец) в минутах, сгруппированные по дате и мастеру
+     *         и упорядоченные по началу
+     */
+    public Map<LocalDate, Map<Integer, List<int[]>>> loadBusyIntervals(LocalDate from, LocalDate to) {
+        Map<LocalDate, Map<Integer, List<int[]>>> busy = new HashMap<>();
+        for (Object[] row : appointmentRepository.findBookedIntervalsBetween(from, to)) {
+            Integer masterId = (Integer) row[0];
+            LocalDate date = (LocalDate) row[1];
+            int start = AppointmentSlotIndex.minuteOf(AppointmentSlotIndex.toLocalTime(row[2]));
+            int end = start + ((Number) row[3]).intValue();
+            busy.computeIfAbsent(date, d -> new HashMap<>())
+                .computeIfAbsent(masterId, m -> new ArrayList<>())
+                .add(new int[]{start, end});
+        }
+        return busy;
+    }
+
+    /**
+     * Вычитает занятые интервалы из рабочего окна.
+     *
+     * @param busy занятые интервалы, упорядоченные по началу
+     * @param openStart начало рабочего окна в минутах
+     * @param openEnd конец рабочего окна в минутах
+     * @return свободные интервалы [начало, конец) в порядке возрастания
+     */
+    public static List<int[]> subtract(List<int[]> busy, int openStart, int openEnd) {
+        List<int[]> free = new ArrayList<>();
+        int cursor = openStart;
+        for (int[] interval : busy) {
+            if (interval[0] >= openEnd) {
+                break;
+            }
+            if (interval[0] > cursor) {
+                free.add(new int[]{cursor, interval[0]});
+            }
+            cursor = Math.max(cursor, interval[1]);
+        }
+        if (cursor < openEnd) {
+            free.add(new int[]{cursor, openEnd});
+        }
+        return free;
+    }
+
+    /**
+     * Вычитает занятые интервалы из интервалов работы мастера на дату.
+     * Для сегодняшнего дня свободное время начинается не раньше текущего момента,
+     * в прошедших днях свободного времени нет.
+     *
+     * @param date дата
+     * @param open интервалы работы, упорядоченные по началу
+     * @param busy занятые интервалы, упорядоченные по началу
+     * @return свободные интервалы [начало, конец) в порядке возрастания
+     */
+    public List<int[]> freeIntervals(LocalDate date, List<int[]> open, List<int[]> busy) {
+        LocalDate today = LocalDate.now();
+        List<int[]> free = new ArrayList<>();
+        if (date.isBefore(today)) {
+            return free;
+        }
+        int earliest = date.equals(today) ? AppointmentSlotIndex.minuteOf(LocalTime.now()) + 1 : 0;
+        for (int[] interval : open) {
+            int start = Math.max(interval[0], earliest);
+            if (start < interval[1]) {
+                free.addAll(subtract(busy, start, interval[1]));
+            }
+        }
+        return free;
+    }
+
+    /**
+     * Возвращает шаг сетки времени записи в минутах.
+     *
+     * @return шаг сетки
+     */
+    public int getSlotStepMinutes() {
+        return slotStepMinutes;
+    }
+
+    /**
+     * Проверяет корректность периода поиска.
+     *
+     * @param from начальная дата
+     * @param to конечная дата
+     * @throws RuntimeException если период задан неверно или слишком велик
+     */
+    public void checkRange(LocalDate from, LocalDate to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new RuntimeException("Неверный период");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxRangeDays) {
+            throw new RuntimeException("Период не может превышать " + maxRangeDays + " дн.");
+        }
+    }
+
+    /**
+     * Запрещает поиск времени в прошедших днях.
+     *
+     * @throws RuntimeException если дата раньше сегодняшней
+     */
+    private static void checkNotPast(LocalDate date) {
+        if (date.isBefore(LocalDate.now())) {
+            throw new RuntimeException("Дата не может быть в прошлом");
+        }
+    }
+
+    private Stream<AvailableSlotDTO> slotsForDate(LocalDate date, List<Integer> masterIds,
+                                                  Map<Integer, List<int[]>> busyByMaster,
+                                                  Map<Integer, List<int[]>> openByMaster, int duration) {
+        List<AvailableSlotDTO> slots = new ArrayList<>();
+        for (Integer masterId : masterIds) {
+            List<int[]> busy = busyByMaster.getOrDefault(masterId, List.of());
+            for (int[] gap : freeIntervals(date, openByMaster.getOrDefault(masterId, List.of()), busy)) {
+                int start = ceilToStep(gap[0]);
+                for (; start + duration <= gap[1]; start += slotStepMinutes) {
+                    slots.add(new AvailableSlotDTO(masterId, date, toTime(start), toTime(start + duration)));
+                }
+            }
+        }
+        slots.sort(BY_TIME);
+        return slots.stream();
+    }
+
+    /**
+     * Минуты остатка, на которые нельзя записать даже самую короткую услугу.
+     */
+    private static int unusable(int remainder, int minUsable) {
+        return remainder > 0 && remainder < minUsable ? remainder : 0;
+    }
+
+    private int ceilToStep(int minute) {
+        return (minute + slotStepMinutes - 1) / slotStepMinutes * slotStepMinutes;
+    }
+
+    private static LocalTime toTime(int minute) {
+        return minute >= 24 * 60 ? LocalTime.MAX : LocalTime.of(minute / 60, minute % 60);
+    }
+}
@@ -0,0 +1,225 @@
+package com.parik.service;
+
+import com.parik.dto.AppointmentEventDTO;
+import com.parik.model.Appointment;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Шина событий изменения записей для экранов мастеров (Server-Sent Events).
+ * Последние события хранятся в кольцевом буфере, чтобы переподключившийся
+ * клиент мог получить пропущенное по идентификатору последнего события.
+ * У каждого подписчика своя ограниченная очередь: события отправляются
+ * отдельным пулом потоков, и медленный клиент не задерживает публикацию.
+ * При переполнении очереди подписчик отключается и при переподключении
+ * дочитывает пропущенное из буфера; если пропущено больше, чем вмещает очередь,
+ * клиент получает событие reset и перечитывает записи целиком.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Component
+public class AppointmentEventBus {
+
+    private static final int SENDER_THREADS = 4;
+
+    /** Идентификатор запуска приложения: номера событий после перезапуска начинаются заново. */
+    private final String instance = Long.toString(System.currentTimeMillis(), 36);
+
+    private final ArrayDeque<AppointmentEventDTO> history = new ArrayDeque<>();
+
+    private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    private final ExecutorService sender = Executors.newFixedThreadPool(SENDER_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "appointment-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long sequence;
+
+    @Value("${parik.events.replay-size:1000}")
+    private int replaySize;
+
+    @Value("${parik.events.subscriber-buffer:256}")
+    private int subscriberBuffer;
+
+    @Value("${parik.events.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    /**
+     * Публикует изменение записи всем подходящим подписчикам.
+     *
+     * @param type тип изменения
+     * @param before состояние записи до изменения (null для новой записи)
+     * @param after состояние записи после изменения (null для удалённой записи)
+     */
+    public void publish(AppointmentEventDTO.Type type, Appointment before, Appointment after) {
+        Appointment current = AppointmentSlotIndex.snapshot(after != null ? after : before);
+        boolean moved = before != null && after != null
+            && (!before.getMasterId().equals(after.getMasterId()) || !before.getDate().equals(after.getDate()));
+        synchronized (history) {
+            AppointmentEventDTO event = new AppointmentEventDTO(++sequence, type, current,
+                moved ? before.getMasterId() : null, moved ? before.getDate() : null);
+            history.addLast(event);
+            while (history.size() > replaySize) {
+                history.removeFirst();
+            }
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(event);
+            }
+        }
+    }
+
+    /**
+     * Подписывает клиента на события.
+     *
+     * @param masterId только события мастера (null - всех мастеров)
+     * @param date только события на дату (null - на любую дату)
+     * @param lastEventId идентификатор последнего полученного события для дочитывания
+     *                    пропущенного (null - только новые события)
+     * @return поток событий
+     */
+    public SseEmitter subscribe(Integer masterId, LocalDate date, String lastEventId) {
+        Subscriber subscriber = new Subscriber(newEmitter(), masterId, date);
+        synchronized (history) {
+            Long from = parseSequence(lastEventId);
+            if (lastEventId != null && !lastEventId.isBlank()) {
+                long oldest = history.isEmpty() ? sequence + 1 : history.getFirst().getEventId();
+                List<AppointmentEventDTO> missed = new ArrayList<>();
+                if (from != null && from <= sequence && from + 1 >= oldest) {
+                    for (AppointmentEventDTO event : history) {
+                        if (event.getEventId() > from && event.matches(masterId, date)) {
+                            missed.add(event);
+                        }
+                    }
+                }
+                if (from == null || from > sequence || from + 1 < oldest || missed.size() > subscriberBuffer) {
+                    // Пропущенные события уже вытеснены из буфера, получены до перезапуска
+                    // или не помещаются в очередь подписчика: клиенту нужно перечитать записи целиком
+                    subscriber.enqueue(SseEmitter.event().name("reset").data(""));
+                } else {
+                    missed.forEach(subscriber::offer);
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        return subscriber.emitter;
+    }
+
+    /**
+     * Возвращает количество активных подписчиков.
+     *
+     * @return количество подписчиков
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(Subscriber::close);
+        sender.shutdownNow();
+    }
+
+    SseEmitter newEmitter() {
+        return new SseEmitter(timeoutMs);
+    }
+
+    private String eventId(AppointmentEventDTO event) {
+        return instance + ":" + event.getEventId();
+    }
+
+    private Long parseSequence(String lastEventId) {
+        if (lastEventId == null || !lastEventId.startsWith(instance + ":")) {
+            return null;
+        }
+        try {
+            return Long.parseLong(lastEventId.substring(instance.length() + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final Integer masterId;
+        private final LocalDate date;
+        private final ArrayBlockingQueue<SseEmitter.SseEventBuilder> queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter, Integer masterId, LocalDate date) {
+            this.emitter = emitter;
+            this.masterId = masterId;
+            this.date = date;
+            this.queue = new ArrayBlockingQueue<>(subscriberBuffer);
+            emitter.onCompletion(this::detach);
+            emitter.onTimeout(this::detach);
+            emitter.onError(e -> detach());
+        }
+
+        private void offer(AppointmentEventDTO event) {
+            if (event.matches(masterId, date)) {
+                enqueue(SseEmitter.event()
+                    .id(eventId(event))
+                    .name("appointment")
+                    .data(event, MediaType.APPLICATION_JSON));
+            }
+        }
+
+        private void enqueue(SseEmitter.SseEventBuilder event) {
+            if (closed) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                close();
+                return;
+            }
+            if (scheduled.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (!closed && (event = queue.poll()) != null) {
+                    emitter.send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                close();
+            } finally {
+                scheduled.set(false);
+                if (!closed && !queue.isEmpty() && scheduled.compareAndSet(false, true)) {
+                    sender.execute(this::drain);
+                }
+            }
+        }
+
+        private void detach() {
+            closed = true;
+            subscribers.remove(this);
+            queue.clear();
+        }
+
+        private void close() {
+            detach();
+            emitter.complete();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.parik.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+/**
+ * Сервис обслуживания месячных секций таблицы записей.
+ * Заранее создаёт секции на горизонт бронирования, чтобы новые записи не попадали
+ * в секцию по умолчанию, и переносит старые месяцы в архив (appointments_archive).
+ * Сами операции выполняют функции ensure_appointment_partitions и
+ * archive_appointment_partitions из db/schema.sql.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Service
+public class AppointmentPartitionService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AppointmentSeriesService seriesService;
+
+    @Value("${parik.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${parik.partitions.archive-after-months:24}")
+    private int archiveAfterMonths;
+
+    /**
+     * Обслуживает секции при запуске приложения, не дожидаясь ночного запуска.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintainPartitions();
+    }
+
+    /**
+     * Создаёт недостающие секции и переносит устаревшие в архив.
+     * Ничего не делает, если схема базы не секционирована.
+     */
+    @Scheduled(cron = "${parik.partitions.maintain-cron:0 20 0 * * *}")
+    public void maintainPartitions() {
+        if (!isPartitioned()) {
+            return;
+        }
+        ensurePartitions();
+        if (archiveAfterMonths > 0) {
+            archivePartitions(LocalDate.now().withDayOfMonth(1).minusMonths(archiveAfterMonths));
+        }
+    }
+
+    /**
+     * Создаёт секции с текущего месяца до горизонта бронирования включительно.
+     * Горизонт - наибольшая из дат: через {@code parik.partitions.months-ahead} месяцев
+     * и горизонт создания визитов серий.
+     *
+     * @return число созданных секций
+     */
+    public int ensurePartitions() {
+        LocalDate today = LocalDate.now();
+        LocalDate until = today.plusMonths(monthsAhead);
+        if (seriesService.horizon().isAfter(until)) {
+            until = seriesService.horizon();
+        }
+        Integer created = jdbcTemplate.queryForObject("SELECT ensure_appointment_partitions(?, ?)",
+            Integer.class, Date.valueOf(today), Date.valueOf(until));
+        return created != null ? created : 0;
+    }
+
+    /**
+     * Переносит в архив секции месяцев, целиком лежащих раньше указанной даты.
+     *
+     * @param before граница архива
+     * @return число перенесённых секций
+     */
+    public int archivePartitions(LocalDate before) {
+        Integer archived = jdbcTemplate.queryForObject("SELECT archive_appointment_partitions(?)",
+            Integer.class, Date.valueOf(before));
+        return archived != null ? archived : 0;
+    }
+
+    private boolean isPartitioned() {
+        Boolean present = jdbcTemplate.queryForObject(
+            "SELECT to_regproc('ensure_appointment_partitions') IS NOT NULL "
+                + "AND to_regproc('archive_appointment_partitions') IS NOT NULL", Boolean.class);
+        return Boolean.TRUE.equals(present);
+    }
+}
@@ -0,0 +1,127 @@
+package com.parik.service;
+
+import com.parik.model.AppointmentStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Сервис заполнения цены у записей, созданных до её фиксации при бронировании.
+ * Цена берётся из текущей цены услуги. Строки обрабатываются порциями, каждая порция -
+ * отдельной короткой транзакцией с паузой между ними, чтобы заполнение не мешало
+ * бронированию; строки, занятые другими транзакциями, пропускаются до следующего запуска.
+ * Заполнение выполняется с флагом parik.rollup_paused, поэтому updated_at не меняется.
+ * Итоги выручки учли выполненные записи без цены по цене услуги на момент выполнения,
+ * которая могла отличаться от текущей: итоги дней, где порция заполнила цену выполненных
+ * записей, пересчитываются в той же транзакции (rebuild_revenue_rollups), иначе
+ * последующая отмена или изменение такой записи вычли бы из итогов другую сумму.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Service
+public class AppointmentPriceBackfillService {
+
+    private static final String FILL_CHUNK =
+        "WITH chunk AS (SELECT id, date FROM appointments WHERE price IS NULL " +
+        "ORDER BY date, id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+        "UPDATE appointments a SET price = s.price FROM chunk, services s " +
+        "WHERE a.id = chunk.id AND a.date = chunk.date AND s.id = a.service_id " +
+        "RETURNING a.date, a.status";
+
+    private static final String REBUILD_ROLLUPS = "SELECT rebuild_revenue_rollups(?::date[])";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${parik.price-backfill.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${parik.price-backfill.chunk-pause-ms:50}")
+    private long chunkPauseMs;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Заполняет цены при запуске приложения. После заполнения новых строк без цены
+     * не появляется, поэтому повторные запуски проходят одним пустым запросом.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        backfill();
+    }
+
+    /**
+     * Заполняет цену у всех записей, где она не задана.
+     *
+     * @return число заполненных записей
+     * @throws RuntimeException если заполнение уже выполняется
+     */
+    public int backfill() {
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("Заполнение цен записей уже выполняется");
+        }
+        try {
+            int size = Math.max(chunkSize, 1);
+            int total = 0;
+            int filled;
+            do {
+                filled = fillChunk(size);
+                total += filled;
+            } while (filled == size && pause());
+            return total;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private int fillChunk(int size) {
+        Integer filled = transactionTemplate.execute(status -> {
+            jdbcTemplate.queryForObject("SELECT set_config('parik.rollup_paused', 'on', true)", String.class);
+            Set<LocalDate> completedDates = new TreeSet<>();
+            int rows = jdbcTemplate.query(FILL_CHUNK, (rs, rowNum) -> {
+                if (rs.getInt("status") == AppointmentStatus.COMPLETED.getCode()) {
+                    completedDates.add(rs.getObject("date", LocalDate.class));
+                }
+                return rowNum;
+            }, size).size();
+            if (!completedDates.isEmpty()) {
+                jdbcTemplate.queryForObject(REBUILD_ROLLUPS, String.class,
+                    completedDates.stream().map(LocalDate::toString).collect(Collectors.joining(",", "{", "}")));
+            }
+            return rows;
+        });
+        return filled != null ? filled : 0;
+    }
+
+    /**
+     * Делает паузу между порциями, уступая базу бронированиям.
+     *
+     * @return false, если поток прерван и заполнение нужно остановить
+     */
+    private boolean pause() {
+        if (chunkPauseMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(chunkPauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.parik.service;
+
+import com.parik.dto.AppointmentCursor;
+import com.parik.model.Appointment;
+import com.parik.model.AppointmentSeries;
+import com.parik.model.AppointmentStatus;
+import com.parik.repository.JpaAppointmentSeriesRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Сервис правил повторяющихся записей.
+ * Проверяет правила серий, вычисляет даты визитов и формирует виртуальные визиты,
+ * ещё не созданные в таблице записей. Визиты вычисляются по правилу начиная
+ * с нужной даты, без разворачивания всей серии.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Service
+public class AppointmentSeriesService {
+
+    @Autowired
+    private JpaAppointmentSeriesRepository seriesRepository;
+
+    @Autowired
+    private AppointmentSlotIndex slotIndex;
+
+    @Value("${parik.series.horizon-days:28}")
+    private int horizonDays;
+
+    @Value("${parik.series.virtual-days:365}")
+    private int virtualDays;
+
+    @Value("${parik.series.max-interval-days:365}")
+    private int maxIntervalDays;
+
+    public Optional<AppointmentSeries> getSeriesById(Integer id) {
+        return seriesRepository.findById(id);
+    }
+
+    /**
+     * Возвращает горизонт бронирования: визиты серий до этой даты включительно
+     * создаются в таблице записей.
+     *
+     * @return дата горизонта
+     */
+    public LocalDate horizon() {
+        return LocalDate.now().plusDays(horizonDays);
+    }
+
+    /**
+     * Проверяет правило новой серии.
+     *
+     * @param series серия
+     * @throws RuntimeException если правило задано неверно
+     */
+    public void validate(AppointmentSeries series) {
+        if (series.getClientId() == null || series.getMasterId() == null || series.getServiceId() == null
+                || series.getAnchorDate() == null || series.getTime() == null || series.getIntervalDays() == null) {
+            throw new RuntimeException("Не заполнены обязательные поля серии");
+        }
+        if (series.getIntervalDays() <= 0 || series.getIntervalDays() > maxIntervalDays) {
+            throw new RuntimeException("Интервал серии должен быть от 1 до " + maxIntervalDays + " дн.");
+        }
+        if (series.getAnchorDate().isBefore(LocalDate.now())) {
+            throw new RuntimeException("Дата первого визита уже прошла");
+        }
+        if (series.getEndDate() != null && series.getEndDate().isBefore(series.getAnchorDate())) {
+            throw new RuntimeException("Дата окончания серии раньше первого визита");
+        }
+        slotIndex.durationOf(series.getServiceId());
+    }
+
+    /**
+     * Возвращает даты визитов серии в периоде (после {@code after}, до {@code until} включительно).
+     *
+     * @param series серия
+     * @param after дата, после которой искать визиты
+     * @param until последняя дата периода
+     * @return даты визитов по возрастанию
+     */
+    public List<LocalDate> occurrencesBetween(AppointmentSeries series, LocalDate after, LocalDate until) {
+        List<LocalDate> dates = new ArrayList<>();
+        for (LocalDate date = series.occurrenceAfter(after);
+             date != null && !date.isAfter(until);
+             date = series.occurrenceAfter(date)) {
+            dates.add(date);
+        }
+        return dates;
+    }
+
+    /**
+     * Создаёт запись для визита серии.
+     *
+     * @param series серия
+     * @param date дата визита
+     * @return несохранённая запись
+     */
+    public Appointment occurrence(AppointmentSeries series, LocalDate date) {
+        Appointment appointment = new Appointment();
+        appointment.setClientId(series.getClientId());
+        appointment.setMasterId(series.getMasterId());
+        appointment.setServiceId(series.getServiceId());
+        appointment.setDate(date);
+        appointment.setTime(series.getTime());
+        appointment.setDuration(slotIndex.durationOf(series.getServiceId()));
+        appointment.setPrice(slotIndex.priceOf(series.getServiceId()));
+        appointment.setStatus(AppointmentStatus.PLANNED);
+        appointment.setSeriesId(series.getId());
+        return appointment;
+    }
+
+    /**
+     * Формирует виртуальные визиты для страницы списка записей.
+     * Для каждой подходящей серии визиты перебираются от позиции курсора назад,
+     * только после уже созданных записей и не дальше заданного окна, и не более
+     * размера страницы.
+     *
+     * @param clientId фильтр по клиенту или null
+     * @param masterId фильтр по мастеру или null
+     * @param position позиция курсора
+     * @param max максимальное количество визитов от каждой серии
+     * @return виртуальные визиты (без идентификатора, с идентификатором серии)
+     */
+    public List<Appointment> virtualOccurrences(Integer clientId, Integer masterId,
+                                                AppointmentCursor position, int max) {
+        List<Appointment> virtual = new ArrayList<>();
+        LocalDate until = LocalDate.now().plusDays(virtualDays);
+        for (AppointmentSeries series : seriesRepository.findOpen(clientId, masterId)) {
+            LocalDate bound = position.getDate().isAfter(until) ? until : position.getDate();
+            int count = 0;
+            for (LocalDate date = series.occurrenceOnOrBefore(bound);
+                 date != null && date.isAfter(series.getMaterializedUntil()) && count < max;
+                 date = date.minusDays(series.getIntervalDays())) {
+                Appointment appointment = occurrence(series, date);
+                if (AppointmentCursor.after(appointment).compareTo(position) < 0) {
+                    virtual.add(appointment);
+                    count++;
+                }
+            }
+        }
+        return virtual;
+    }
+
+    public AppointmentSeries save(AppointmentSeries series) {
+        return seriesRepository.save(series);
+    }
+
+    public List<AppointmentSeries> findDueForExtension() {
+        return seriesRepository.findDueForExtension(horizon());
+    }
+}
@@ -1,13 +1,18 @@
 package com.parik.service;
 
 import com.parik.model.Appointment;
+import com.parik.model.AppointmentStatus;
 import com.parik.repository.AppointmentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
 @Service
 public class AppointmentService {
@@ -15,6 +20,15 @@ public class AppointmentService {
     @Autowired
     private AppointmentRepository appointmentRepository;
 
+    @Autowired
+    private AppointmentSlotIndex slotIndex;
+
+    @Autowired
+    private WorkingHoursService workingHours;
+
+    @Autowired
+    private MasterDayLocks dayLocks;
+
     public List<Appointment> getAllAppointments() {
         return appointmentRepository.findAll();
     }
@@ -35,74 +49,131 @@ public class AppointmentService {
         return appointmentRepository.findByMasterIdAndDate(masterId, date);
     }
 
-    public List<Appointment> getAppointmentsByStatus(String status) {
+    public List<Appointment> getAppointmentsByStatus(AppointmentStatus status) {
         return appointmentRepository.findByStatus(status);
     }
 
     public Appointment createAppointment(Appointment appointment) {
-        // Проверка на конфликты времени
-        List<Appointment> existingAppointments = appointmentRepository
-            .findByMasterIdAndDate(appointment.getMasterId(), appointment.getDate());
-        
-        for (Appointment existing : existingAppointments) {
-            if (!existing.getStatus().equals("Отменена") && 
-                existing.getTime().equals(appointment.getTime())) {
+        // Проверка и сохранение под блокировкой дня мастера, общей с JpaAppointmentService
+        List<ReentrantLock> locks = dayLocks.lock(appointment);
+        try {
+            JpaAppointmentService.requireSameDay(appointment.getTime(), slotIndex.durationOf(appointment.getServiceId()));
+
+            // Проверка рабочего времени мастера
+            if (!workingHours.isOpen(appointment.getMasterId(), appointment.getDate(),
+                    appointment.getTime(), slotIndex.durationOf(appointment.getServiceId()))) {
+                throw new RuntimeException("Мастер не работает в это время");
+            }
+            
+            // Проверка на конфликты времени по индексу слотов
+            if (!slotIndex.isFree(appointment.getMasterId(), appointment.getDate(),
+                    appointment.getTime(), appointment.getServiceId())) {
                 throw new RuntimeException("Это время уже занято");
             }
+            
+            appointment.setDuration(slotIndex.durationOf(appointment.getServiceId()));
+            appointment.setPrice(slotIndex.priceOf(appointment.getServiceId()));
+            if (appointment.getStatus() == null) {
+                appointment.setStatus(AppointmentStatus.PLANNED);
+            }
+            
+            Appointment saved = saveChecked(appointment);
+            slotIndex.add(saved);
+            return saved;
+        } finally {
+            MasterDayLocks.unlock(locks);
         }
-        
-        if (appointment.getStatus() == null) {
-            appointment.setStatus("Запланирована");
-        }
-        
-        return appointmentRepository.save(appointment);
     }
 
     public Appointment updateAppointment(Integer id, Appointment appointmentDetails) {
-        Appointment appointment = appointmentRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Запись не найдена"));
-        
-        if (appointmentDetails.getClientId() != null) {
-            appointment.setClientId(appointmentDetails.getClientId());
-        }
-        if (appointmentDetails.getMasterId() != null) {
-            appointment.setMasterId(appointmentDetails.getMasterId());
-        }
-        if (appointmentDetails.getServiceId() != null) {
-            appointment.setServiceId(appointmentDetails.getServiceId());
-        }
-        if (appointmentDetails.getDate() != null) {
-            appointment.setDate(appointmentDetails.getDate());
-        }
-        if (appointmentDetails.getTime() != null) {
-            appointment.setTime(appointmentDetails.getTime());
-        }
-        if (appointmentDetails.getStatus() != null) {
-            appointment.setStatus(appointmentDetails.getStatus());
-        }
-        
-        return appointmentRepository.save(appointment);
+        return withLocked(id, stored -> JpaAppointmentService.movedTo(stored, appointmentDetails), appointment -> {
+            Appointment before = AppointmentSlotIndex.snapshot(appointment);
+
+            if (appointmentDetails.getClientId() != null) {
+                appointment.setClientId(appointmentDetails.getClientId());
+            }
+            if (appointmentDetails.getMasterId() != null) {
+                appointment.setMasterId(appointmentDetails.getMasterId());
+            }
+            if (appointmentDetails.getServiceId() != null) {
+                // Цена пересчитывается только при смене услуги: согласованная цена не меняется
+                if (!appointmentDetails.getServiceId().equals(appointment.getServiceId())) {
+                    appointment.setPrice(slotIndex.priceOf(appointmentDetails.getServiceId()));
+                }
+                appointment.setServiceId(appointmentDetails.getServiceId());
+                appointment.setDuration(slotIndex.durationOf(appointmentDetails.getServiceId()));
+            }
+            if (appointmentDetails.getDate() != null) {
+                appointment.setDate(appointmentDetails.getDate());
+            }
+            if (appointmentDetails.getTime() != null) {
+                appointment.setTime(appointmentDetails.getTime());
+            }
+            if (appointmentDetails.getStatus() != null) {
+                appointment.setStatus(appointmentDetails.getStatus());
+            }
+            if (AppointmentSlotIndex.occupiesTime(appointment) && JpaAppointmentService.rescheduled(before, appointment)) {
+                JpaAppointmentService.requireSameDay(appointment.getTime(), slotIndex.durationOf(appointment.getServiceId()));
+            }
+            if (AppointmentSlotIndex.occupiesTime(appointment) && JpaAppointmentService.rescheduled(before, appointment)
+                    && !workingHours.isOpen(appointment.getMasterId(), appointment.getDate(),
+                        appointment.getTime(), slotIndex.durationOf(appointment.getServiceId()))) {
+                throw new RuntimeException("Мастер не работает в это время");
+            }
+            if (AppointmentSlotIndex.occupiesTime(appointment) && !slotIndex.isFree(appointment.getMasterId(),
+                    appointment.getDate(), appointment.getTime(), appointment.getServiceId(), id)) {
+                throw new RuntimeException("Это время уже занято");
+            }
+            
+            Appointment saved = saveChecked(appointment);
+            slotIndex.replace(before, saved);
+            return saved;
+        });
     }
 
     public Appointment cancelAppointment(Integer id) {
-        Appointment appointment = appointmentRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Запись не найдена"));
-        appointment.setStatus("Отменена");
-        return appointmentRepository.save(appointment);
+        return setStatus(id, AppointmentStatus.CANCELLED);
     }
 
     public Appointment completeAppointment(Integer id) {
+        return setStatus(id, AppointmentStatus.COMPLETED);
+    }
+
+    private Appointment setStatus(Integer id, AppointmentStatus status) {
+        return withLocked(id, stored -> stored, appointment -> {
+            Appointment before = AppointmentSlotIndex.snapshot(appointment);
+            appointment.setStatus(status);
+            Appointment saved = appointmentRepository.save(appointment);
+            slotIndex.replace(before, saved);
+            return saved;
+        });
+    }
+
+    /**
+     * Выполняет изменение записи, прочитанной под блокировкой дня мастера
+     * (см. {@link MasterDayLocks#withLocked}).
+     */
+    private <T> T withLocked(Integer id, UnaryOperator<Appointment> moveTo, Function<Appointment, T> action) {
+        return dayLocks.withLocked(() -> appointmentRepository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Запись не найдена")), moveTo, action);
+    }
+
+    public void deleteAppointment(Integer id) {
         Appointment appointment = appointmentRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Запись не найдена"));
-        appointment.setStatus("Выполнена");
-        return appointmentRepository.save(appointment);
+        appointmentRepository.deleteById(id);
+        slotIndex.remove(appointment);
     }
 
-    public void deleteAppointment(Integer id) {
-        if (!appointmentRepository.findById(id).isPresent()) {
-            throw new RuntimeException("Запись не найдена");
+    private Appointment saveChecked(Appointment appointment) {
+        try {
+            return appointmentRepository.save(appointment);
+        } catch (DataIntegrityViolationException e) {
+            if (JpaAppointmentService.isOverlapViolation(e)) {
+                slotIndex.evict(appointment.getMasterId(), appointment.getDate());
+                throw new RuntimeException("Это время уже занято");
+            }
+            throw e;
         }
-        appointmentRepository.deleteById(id);
     }
 }
-
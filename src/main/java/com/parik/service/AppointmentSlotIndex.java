@@ -0,0 +1,375 @@
+package com.parik.service;
+
+import com.parik.model.Appointment;
+import com.parik.model.Service;
+import com.parik.repository.JpaAppointmentRepository;
+import com.parik.repository.JpaServiceRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Индекс занятости мастеров в памяти.
+ * Для каждой пары (мастер, дата) хранит интервалы записей с учётом длительности услуги:
+ * упорядоченное по началу множество интервалов для точной проверки пересечений
+ * за O(log n) и битовую карту 5-минутных слотов для быстрого ответа «свободно».
+ * Карта дня строится лениво одним запросом при первом обращении и далее
+ * поддерживается сервисами записей при создании, изменении и удалении.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Component
+public class AppointmentSlotIndex {
+
+    /** Длительность одного слота в минутах. */
+    public static final int SLOT_MINUTES = 5;
+
+    /** Количество слотов в сутках. */
+    public static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private static final int MAX_DAYS = 10_000;
+
+    @Autowired
+    private JpaAppointmentRepository appointmentRepository;
+
+    @Autowired
+    private JpaServiceRepository serviceRepository;
+
+    private final ConcurrentHashMap<DayKey, DaySchedule> days = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<Integer, Integer> serviceDurations = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<Integer, BigDecimal> servicePrices = new ConcurrentHashMap<>();
+
+    /**
+     * Проверяет, свободен ли у мастера интервал, занимаемый услугой с указанного времени.
+     *
+     * @param masterId идентификатор мастера
+     * @param date дата записи
+     * @param time время начала
+     * @param serviceId идентификатор услуги, определяющей длительность
+     * @return true, если интервал не пересекается с другими записями
+     */
+    public boolean isFree(Integer masterId, LocalDate date, LocalTime time, Integer serviceId) {
+        return isFree(masterId, date, time, serviceId, null);
+    }
+
+    /**
+     * Проверяет, свободен ли интервал, не учитывая указанную запись.
+     * Используется при редактировании записи, чтобы она не конфликтовала сама с собой.
+     *
+     * @param masterId идентификатор мастера
+     * @param date дата записи
+     * @param time время начала
+     * @param serviceId идентификатор услуги, определяющей длительность
+     * @param ignoreId идентификатор записи, которую не нужно учитывать (может быть null)
+     * @return true, если интервал не пересекается с другими записями
+     */
+    public boolean isFree(Integer masterId, LocalDate date, LocalTime time, Integer serviceId, Integer ignoreId) {
+        int start = minuteOf(time);
+        return load(masterId, date).isFree(start, start + durationOf(serviceId), ignoreId);
+    }
+
+    /**
+     * Отмечает запись в индексе. Отменённые записи время не занимают.
+     * Если карта дня ещё не загружена, она будет построена из базы при первом обращении.
+     *
+     * @param appointment сохранённая запись
+     */
+    public void add(Appointment appointment) {
+        if (appointment == null || appointment.getId() == null || !occupiesTime(appointment)) {
+            return;
+        }
+        int start = minuteOf(appointment.getTime());
+        int end = start + (appointment.getDuration() != null
+            ? appointment.getDuration() : durationOf(appointment.getServiceId()));
+        days.computeIfPresent(new DayKey(appointment.getMasterId(), appointment.getDate()), (key, day) -> {
+            day.put(appointment.getId(), start, end);
+            return day;
+        });
+    }
+
+    /**
+     * Удаляет запись из индекса.
+     *
+     * @param appointment запись в состоянии до изменения или удаления
+     */
+    public void remove(Appointment appointment) {
+        if (appointment == null || appointment.getId() == null) {
+            return;
+        }
+        days.computeIfPresent(new DayKey(appointment.getMasterId(), appointment.getDate()), (key, day) -> {
+            day.remove(appointment.getId());
+            return day;
+        });
+    }
+
+    /**
+     * Заменяет состояние записи в индексе: удаляет прежнее и добавляет новое.
+     *
+     * @param before запись до изменения
+     * @param after запись после изменения
+     */
+    public void replace(Appointment before, Appointment after) {
+        remove(before);
+        add(after);
+    }
+
+    /**
+     * Сбрасывает карту дня мастера. Следующая проверка перечитает её из базы.
+     *
+     * @param masterId идентификатор мастера
+     * @param date дата
+     */
+    public void evict(Integer masterId, LocalDate date) {
+        days.remove(new DayKey(masterId, date));
+    }
+
+    /**
+     * Сбрасывает длительность услуги и все карты дней, так как
+     * интервалы уже загруженных записей с этой услугой могли измениться.
+     *
+     * @param serviceId идентификатор изменённой или удалённой услуги
+     */
+    public void evictService(Integer serviceId) {
+        serviceDurations.remove(serviceId);
+        servicePrices.remove(serviceId);
+        days.clear();
+    }
+
+    /**
+     * Полностью очищает индекс.
+     */
+    public void clear() {
+        days.clear();
+        serviceDurations.clear();
+        servicePrices.clear();
+    }
+
+    /**
+     * Возвращает длительность услуги в минутах.
+     * Справочник услуг мал и меняется редко, поэтому длительности кешируются.
+     *
+     * @param serviceId идентификатор услуги
+     * @return длительность в минутах
+     * @throws RuntimeException если услуга не найдена
+     */
+    public int durationOf(Integer serviceId) {
+        if (serviceId == null) {
+            throw new RuntimeException("Услуга не указана");
+        }
+        return serviceDurations.computeIfAbsent(serviceId, id -> serviceRepository.findById(id)
+            .map(Service::getDuration)
+            .orElseThrow(() -> new RuntimeException("Услуга не найдена")));
+    }
+
+    /**
+     * Возвращает текущую цену услуги, фиксируемую в новых записях.
+     * Кешируется вместе с длительностью и сбрасывается при изменении услуги.
+     *
+     * @param serviceId идентификатор услуги
+     * @return цена услуги
+     * @throws RuntimeException если услуга не найдена
+     */
+    public BigDecimal priceOf(Integer serviceId) {
+        if (serviceId == null) {
+            throw new RuntimeException("Услуга не указана");
+        }
+        return servicePrices.computeIfAbsent(serviceId, id -> serviceRepository.findById(id)
+            .map(Service::getPrice)
+            .orElseThrow(() -> new RuntimeException("Услуга не найдена")));
+    }
+
+    /**
+     * Снимок состояния записи, достаточный для последующего удаления её из индекса.
+     * Нужен, так как сервисы изменяют загруженную сущность на месте.
+     *
+     * @param appointment запись
+     * @return копия ключевых полей записи
+     */
+    public static Appointment snapshot(Appointment appointment) {
+        Appointment copy = new Appointment();
+        copy.setId(appointment.getId());
+        copy.setClientId(appointment.getClientId());
+        copy.setMasterId(appointment.getMasterId());
+        copy.setServiceId(appointment.getServiceId());
+        copy.setDate(appointment.getDate());
+        copy.setTime(appointment.getTime());
+        copy.setDuration(appointment.getDuration());
+        copy.setPrice(appointment.getPrice());
+        copy.setStatus(appointment.getStatus());
+        return copy;
+    }
+
+    static int minuteOf(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    /**
+     * Проверяет, заканчивается ли запись в день своего начала.
+     * Индекс хранит занятость по дням и переходящие на следующий день записи не учитывает.
+     */
+    static boolean endsSameDay(LocalTime time, int duration) {
+        return minuteOf(time) + duration <= MINUTES_PER_DAY;
+    }
+
+    static boolean occupiesTime(Appointment appointment) {
+        return appointment.getStatus() == null || appointment.getStatus().occupiesTime();
+    }
+
+    private DaySchedule load(Integer masterId, LocalDate date) {
+        if (days.size() > MAX_DAYS) {
+            LocalDate today = LocalDate.now();
+            days.keySet().removeIf(key -> key.date.isBefore(today));
+        }
+        return days.computeIfAbsent(new DayKey(masterId, date), key -> {
+            DaySchedule day = new DaySchedule();
+            for (Object[] row : appointmentRepository.findBookedIntervals(masterId, date)) {
+                int start = minuteOf(toLocalTime(row[1]));
+                day.put((Integer) row[0], start, start + ((Number) row[2]).intValue());
+            }
+            return day;
+        });
+    }
+
+    static LocalTime toLocalTime(Object value) {
+        return value instanceof Time ? ((Time) value).toLocalTime() : (LocalTime) value;
+    }
+
+    static LocalDate toLocalDate(Object value) {
+        return value instanceof java.sql.Date ? ((java.sql.Date) value).toLocalDate() : (LocalDate) value;
+    }
+
+    private static final class DayKey {
+        private final Integer masterId;
+        private final LocalDate date;
+
+        private DayKey(Integer masterId, LocalDate date) {
+            this.masterId = masterId;
+            this.date = date;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof DayKey)) {
+                return false;
+            }
+            DayKey other = (DayKey) o;
+            return Objects.equals(masterId, other.masterId) && Objects.equals(date, other.date);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hashCode(masterId) + Objects.hashCode(date);
+        }
+    }
+
+    /**
+     * Полуоткрытый интервал [start, end) в минутах от начала суток.
+     */
+    private static final class Interval {
+        private static final Comparator<Interval> ORDER =
+            Comparator.<Interval>comparingInt(i -> i.start).thenComparingInt(i -> i.id);
+
+        private final int id;
+        private final int start;
+        private final int end;
+
+        private Interval(int id, int start, int end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Занятость одного дня мастера.
+     * Интервалы упорядочены по началу; пересекать новый интервал могут только те,
+     * что начинаются в окне (start - maxLength, end), поэтому проверка выполняется
+     * поиском в дереве. Битовая карта слотов со счётчиками позволяет сразу ответить
+     * «свободно», если ни один слот интервала не занят.
+     */
+    private static final class DaySchedule {
+        private final TreeSet<Interval> intervals = new TreeSet<>(Interval.ORDER);
+        private final Map<Integer, Interval> byId = new HashMap<>();
+        private final long[] bits = new long[(SLOTS_PER_DAY + 63) / 64];
+        private final short[] slotCounts = new short[SLOTS_PER_DAY];
+        private int maxLength;
+
+        synchronized boolean isFree(int start, int end, Integer ignoreId) {
+            if (!anyBitSet(start, end)) {
+                return true;
+            }
+            Interval from = new Interval(Integer.MIN_VALUE, start - maxLength, 0);
+            Interval to = new Interval(Integer.MIN_VALUE, end, 0);
+            for (Interval other : intervals.subSet(from, false, to, false)) {
+                if (other.end > start && other.start < end
+                        && (ignoreId == null || other.id != ignoreId)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        synchronized void put(Integer id, int start, int end) {
+            remove(id);
+            Interval interval = new Interval(id, start, end);
+            intervals.add(interval);
+            byId.put(id, interval);
+            maxLength = Math.max(maxLength, end - start);
+            for (int slot = firstSlot(start); slot < lastSlot(end); slot++) {
+                if (slotCounts[slot]++ == 0) {
+                    bits[slot >>> 6] |= 1L << slot;
+                }
+            }
+        }
+
+        synchronized void remove(Integer id) {
+            Interval interval = byId.remove(id);
+            if (interval == null) {
+                return;
+            }
+            intervals.remove(interval);
+            for (int slot = firstSlot(interval.start); slot < lastSlot(interval.end); slot++) {
+                if (--slotCounts[slot] == 0) {
+                    bits[slot >>> 6] &= ~(1L << slot);
+                }
+            }
+        }
+
+        private boolean anyBitSet(int start, int end) {
+            int last = lastSlot(end);
+            for (int slot = firstSlot(start); slot < last; slot = (slot | 63) + 1) {
+                long word = bits[slot >>> 6] >>> (slot & 63);
+                if (word != 0) {
+                    return slot + Long.numberOfTrailingZeros(word) < last;
+                }
+            }
+            return false;
+        }
+
+        private static int firstSlot(int minute) {
+            return Math.max(0, Math.min(minute, MINUTES_PER_DAY)) / SLOT_MINUTES;
+        }
+
+        private static int lastSlot(int minute) {
+            return (Math.max(0, Math.min(minute, MINUTES_PER_DAY)) + SLOT_MINUTES - 1) / SLOT_MINUTES;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.parik.service;
+
+import com.parik.dto.AppointmentCursor;
+import com.parik.model.Appointment;
+import com.parik.model.AppointmentStatus;
+import com.parik.model.AppointmentSweepRun;
+import com.parik.repository.JpaAppointmentSweepRunRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Сервис фоновой очистки просроченных записей.
+ * Записи, оставшиеся запланированными после своей даты, переводятся в целевой статус
+ * (по умолчанию «Не явился»). Записи обрабатываются порциями по возрастанию ключа
+ * (date, time, id), каждая порция - отдельной короткой транзакцией, а между порциями
+ * делается пауза, чтобы очистка не мешала бронированию. Итог каждого запуска
+ * сохраняется в журнал appointment_sweep_runs.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Service
+public class AppointmentSweepService {
+
+    /** Позиция перед первой записью в порядке возрастания ключа. */
+    private static final AppointmentCursor START = new AppointmentCursor(LocalDate.of(1, 1, 1), LocalTime.MIN, 0);
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    @Autowired
+    private JpaAppointmentService appointmentService;
+
+    @Autowired
+    private JpaAppointmentSweepRunRepository runRepository;
+
+    @Value("${parik.sweep.target-status:NO_SHOW}")
+    private String targetStatus;
+
+    @Value("${parik.sweep.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${parik.sweep.chunk-pause-ms:50}")
+    private long chunkPauseMs;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public List<AppointmentSweepRun> getRecentRuns() {
+        return runRepository.findTop20ByOrderByStartedAtDesc();
+    }
+
+    /**
+     * Запускает очистку по расписанию.
+     * Если предыдущий запуск ещё не завершён, новый пропускается.
+     */
+    @Scheduled(cron = "${parik.sweep.cron:0 5 * * * *}")
+    public void scheduledSweep() {
+        if (running.compareAndSet(false, true)) {
+            runSweep();
+        }
+    }
+
+    /**
+     * Переводит все запланированные записи с датой раньше сегодняшней в целевой статус.
+     * Ошибка не прерывает работу приложения: она сохраняется в итоге запуска,
+     * а уже обработанные порции остаются зафиксированными.
+     *
+     * @return итог запуска
+     * @throws RuntimeException если очистка уже выполняется или целевой статус задан неверно
+     */
+    public AppointmentSweepRun sweep() {
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("Очистка просроченных записей уже выполняется");
+        }
+        return runSweep();
+    }
+
+    private AppointmentSweepRun runSweep() {
+        AppointmentSweepRun run = new AppointmentSweepRun();
+        try {
+            AppointmentStatus target = AppointmentStatus.fromLabel(targetStatus);
+            if (target == AppointmentStatus.PLANNED) {
+                throw new RuntimeException("Целевой статус очистки не может быть «" + target.getLabel() + "»");
+            }
+            run.setTargetStatus(target);
+            run.setStartedAt(LocalDateTime.now());
+            run.setCutoffDate(LocalDate.now());
+            sweepChunks(run);
+        } finally {
+            running.set(false);
+        }
+        return runRepository.save(run);
+    }
+
+    private void sweepChunks(AppointmentSweepRun run) {
+        AppointmentStatus target = run.getTargetStatus();
+        try {
+            AppointmentCursor position = START;
+            int size = Math.max(chunkSize, 1);
+            List<Appointment> chunk;
+            do {
+                chunk = appointmentService.expirePlannedChunk(run.getCutoffDate(), position, size, target);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                run.setChunks(run.getChunks() + 1);
+                run.setSwept(run.getSwept() + chunk.size());
+                for (Appointment appointment : chunk) {
+                    AppointmentCursor key = AppointmentCursor.after(appointment);
+                    if (key.compareTo(position) > 0) {
+                        position = key;
+                    }
+                }
+            } while (chunk.size() == size && pause());
+        } catch (RuntimeException e) {
+            String message = String.valueOf(e.getMessage());
+            run.setError(message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+        }
+        run.setFinishedAt(LocalDateTime.now());
+    }
+
+    /**
+     * Делает паузу между порциями, уступая базу бронированиям.
+     *
+     * @return false, если поток прерван и очистку нужно остановить
+     */
+    private boolean pause() {
+        if (chunkPauseMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(chunkPauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
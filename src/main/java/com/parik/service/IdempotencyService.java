@@ -0,0 +1,204 @@
+package com.parik.service;
+
+import com.parik.model.IdempotencyRecord;
+import com.parik.repository.IdempotencyRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Сервис ключей идемпотентности (заголовок {@value #HEADER}).
+ * Первый запрос с ключом занимает его и выполняется, его ответ сохраняется;
+ * повтор запроса с тем же ключом получает сохранённый ответ без повторного выполнения.
+ * Ответы хранятся в двух уровнях: ограниченный по размеру кэш недавних ключей в памяти
+ * и таблица idempotency_keys, общая для всех экземпляров приложения.
+ * Ключи действуют в пределах пользователя, метода и адреса запроса и удаляются
+ * по истечении срока хранения.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    public static final int MAX_KEY_LENGTH = 100;
+
+    /**
+     * Итог попытки начать запрос с ключом.
+     */
+    public enum State {
+        /** Ключ занят, запрос нужно выполнить. */
+        STARTED,
+        /** Запрос уже выполнен, нужно вернуть сохранённый ответ. */
+        REPLAY,
+        /** Запрос с этим ключом ещё выполняется. */
+        IN_PROGRESS,
+        /** Ключ уже использован с другим телом запроса. */
+        MISMATCH
+    }
+
+    /**
+     * Попытка начать запрос: итог и запись ключа.
+     */
+    public static class Attempt {
+        private final State state;
+        private final IdempotencyRecord record;
+
+        Attempt(State state, IdempotencyRecord record) {
+            this.state = state;
+            this.record = record;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public IdempotencyRecord getRecord() {
+            return record;
+        }
+    }
+
+    @Autowired
+    private IdempotencyRepository idempotencyRepository;
+
+    @Value("${parik.idempotency.cache-size:10000}")
+    private int cacheSize;
+
+    @Value("${parik.idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${parik.idempotency.in-progress-timeout-seconds:60}")
+    private long inProgressTimeoutSeconds;
+
+    /** Выполненные запросы в порядке последнего обращения. */
+    private final LinkedHashMap<String, IdempotencyRecord> recent = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, IdempotencyRecord> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    /**
+     * Начинает запрос с ключом идемпотентности.
+     * Ключ, занятый дольше {@code parik.idempotency.in-progress-timeout-seconds} без сохранённого ответа,
+     * считается брошенным (экземпляр приложения остановился во время запроса) и занимается заново.
+     *
+     * @param key ключ из заголовка
+     * @param scope область ключа: пользователь, метод и адрес запроса
+     * @param requestHash отпечаток тела запроса
+     * @return итог попытки
+     */
+    public Attempt begin(String key, String scope, String requestHash) {
+        LocalDateTime now = LocalDateTime.now();
+        IdempotencyRecord cached = cached(key, scope, now);
+        if (cached != null) {
+            return replay(cached, requestHash);
+        }
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setKey(key);
+        record.setScope(scope);
+        record.setRequestHash(requestHash);
+        record.setCreatedAt(now);
+        record.setExpiresAt(now.plusHours(ttlHours));
+        if (idempotencyRepository.claim(record)) {
+            return new Attempt(State.STARTED, record);
+        }
+        Optional<IdempotencyRecord> existing = idempotencyRepository.find(key, scope);
+        if (existing.isEmpty()) {
+            return new Attempt(State.IN_PROGRESS, null);
+        }
+        IdempotencyRecord stored = existing.get();
+        boolean abandoned = !stored.isCompleted()
+            && stored.getCreatedAt().plusSeconds(inProgressTimeoutSeconds).isBefore(now);
+        if (stored.getExpiresAt().isBefore(now) || abandoned) {
+            idempotencyRepository.delete(key, scope);
+            return idempotencyRepository.claim(record)
+                ? new Attempt(State.STARTED, record) : new Attempt(State.IN_PROGRESS, null);
+        }
+        if (!stored.getRequestHash().equals(requestHash)) {
+            return new Attempt(State.MISMATCH, stored);
+        }
+        if (!stored.isCompleted()) {
+            return new Attempt(State.IN_PROGRESS, stored);
+        }
+        remember(stored);
+        return new Attempt(State.REPLAY, stored);
+    }
+
+    /**
+     * Сохраняет ответ выполненного запроса.
+     *
+     * @param record запись ключа, полученная из {@link #begin}
+     * @param statusCode код ответа
+     * @param contentType тип содержимого ответа или null
+     * @param body тело ответа
+     */
+    public void complete(IdempotencyRecord record, int statusCode, String contentType, byte[] body) {
+        record.setStatusCode(statusCode);
+        record.setContentType(contentType);
+        record.setBody(body);
+        idempotencyRepository.complete(record);
+        remember(record);
+    }
+
+    /**
+     * Освобождает ключ запроса, завершившегося ошибкой сервера, чтобы повтор выполнился заново.
+     *
+     * @param record запись ключа, полученная из {@link #begin}
+     */
+    public void abandon(IdempotencyRecord record) {
+        idempotencyRepository.delete(record.getKey(), record.getScope());
+    }
+
+    /**
+     * Удаляет ключи с истёкшим сроком хранения из таблицы и кэша.
+     */
+    @Scheduled(cron = "${parik.idempotency.purge-cron:0 30 * * * *}")
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (recent) {
+            Iterator<IdempotencyRecord> records = recent.values().iterator();
+            while (records.hasNext()) {
+                if (records.next().getExpiresAt().isBefore(now)) {
+                    records.remove();
+                }
+            }
+        }
+        idempotencyRepository.deleteExpired(now);
+    }
+
+    private Attempt replay(IdempotencyRecord stored, String requestHash) {
+        return stored.getRequestHash().equals(requestHash)
+            ? new Attempt(State.REPLAY, stored) : new Attempt(State.MISMATCH, stored);
+    }
+
+    private IdempotencyRecord cached(String key, String scope, LocalDateTime now) {
+        synchronized (recent) {
+            IdempotencyRecord record = recent.get(cacheKey(key, scope));
+            if (record != null && record.getExpiresAt().isBefore(now)) {
+                recent.remove(cacheKey(key, scope));
+                return null;
+            }
+            return record;
+        }
+    }
+
+    private void remember(IdempotencyRecord record) {
+        synchronized (recent) {
+            recent.put(cacheKey(record.getKey(), record.getScope()), record);
+        }
+    }
+
+    private static String cacheKey(String key, String scope) {
+        return scope + '\n' + key;
+    }
+}
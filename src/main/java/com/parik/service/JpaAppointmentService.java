@@ -1,15 +1,47 @@
 package com.parik.service;
 
+import com.parik.dto.AppointmentBatchResultDTO;
+import com.parik.dto.AppointmentCursor;
+import com.parik.dto.AppointmentEventDTO;
+import com.parik.dto.AppointmentOverlapDTO;
+import com.parik.dto.AppointmentPageDTO;
+import com.parik.dto.AutoAssignRequestDTO;
+import com.parik.dto.AvailableSlotDTO;
 import com.parik.model.Appointment;
+import com.parik.model.AppointmentSeries;
+import com.parik.model.AppointmentStatus;
+import com.parik.model.WaitlistEntry;
+import com.parik.repository.AppointmentRepository;
 import com.parik.repository.JpaAppointmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Sort;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Slice;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.SQLException;
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 /**
  * Сервис для работы с записями клиентов.
@@ -22,27 +54,133 @@ import java.util.Optional;
 @Service
 public class JpaAppointmentService {
 
+    private static final Logger log = LoggerFactory.getLogger(JpaAppointmentService.class);
+
+    /** SQLSTATE нарушения ограничения-исключения PostgreSQL. */
+    private static final String EXCLUSION_VIOLATION = "23P01";
+
     @Autowired
     private JpaAppointmentRepository appointmentRepository;
 
+    @Autowired
+    private AppointmentRepository jdbcAppointmentRepository;
+
+    @Autowired
+    private AppointmentSlotIndex slotIndex;
+
+    @Autowired
+    private MasterDayLocks dayLocks;
+
+    @Autowired
+    private MasterScheduleCache scheduleCache;
+
+    @Autowired
+    private AppointmentAvailabilityService availabilityService;
+
+    @Autowired
+    private WorkingHoursService workingHours;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private AppointmentEventBus eventBus;
+
+    @Autowired
+    private WaitlistService waitlistService;
+
+    @Autowired
+    private AppointmentSeriesService seriesService;
+
+    @Value("${parik.pagination.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${parik.pagination.max-size:200}")
+    private int maxPageSize;
+
+    /**
+     * Допустимые сортировки списка записей. Каждая обслуживается индексом по ключу
+     * (…, date, time, id) или первичным ключом (id, date).
+     */
+    static final SortRegistry SORTS = new SortRegistry("date")
+        .register("date", "date", "time")
+        .register("clientId", "clientId", "date", "time")
+        .register("masterId", "masterId", "date", "time")
+        .register("id");
+
     public List<Appointment> getAllAppointments() {
-        return appointmentRepository.findAll(Sort.by("date").descending().and(Sort.by("time").descending()));
+        return appointmentRepository.findAll(SORTS.resolve("date", "desc"));
     }
 
-    public List<Appointment> getAllAppointments(String sortBy, String order) {
-        Sort sort = order.equalsIgnoreCase("desc") 
-            ? Sort.by(sortBy).descending() 
-            : Sort.by(sortBy).ascending();
-        return appointmentRepository.findAll(sort);
+    /**
+     * Возвращает страницу записей с сортировкой из {@link #SORTS}.
+     *
+     * @param sortBy ключ сортировки или null для сортировки по дате
+     * @param order asc или desc
+     * @param page номер страницы с нуля или null для первой
+     * @param size размер страницы или null для размера по умолчанию
+     * @return страница записей
+     * @throws RuntimeException если сортировка не поддерживается
+     */
+    public Slice<Appointment> getAllAppointments(String sortBy, String order, Integer page, Integer size) {
+        int pageSize = size == null || size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+        return appointmentRepository.findAllBy(SORTS.page(sortBy, order, page, pageSize));
     }
 
+    /**
+     * Ищет записи для страницы записей: первая страница результатов поиска.
+     *
+     * @param query ID клиента или мастера либо часть имени клиента, мастера или названия услуги
+     * @return найденные записи
+     */
     public List<Appointment> searchAppointments(String query) {
+        return searchAppointments(query, null, null).getItems();
+    }
+
+    /**
+     * Ищет записи по ID клиента или мастера либо по имени клиента, мастера или названию услуги.
+     * Числовой запрос ищется как ID и выдаётся от новых записей к старым постранично по ключу
+     * (date, time, id); текстовый - по триграммным индексам с учётом опечаток, результаты
+     * упорядочены по релевантности, курсор страницы - смещение в результатах.
+     *
+     * @param query строка поиска
+     * @param cursor курсор, полученный с предыдущей страницей, или null для первой
+     * @param limit запрошенный размер страницы или null для размера по умолчанию
+     * @return страница найденных записей с курсором следующей страницы
+     * @throws RuntimeException если запрос пуст или курсор повреждён
+     */
+    public AppointmentPageDTO searchAppointments(String query, String cursor, Integer limit) {
+        String text = query != null ? query.trim() : "";
+        if (text.isEmpty()) {
+            throw new RuntimeException("Пустой поисковый запрос");
+        }
+        int size = limit == null || limit <= 0 ? defaultPageSize : Math.min(limit, maxPageSize);
+        if (text.chars().allMatch(Character::isDigit) && text.length() < 10) {
+            Integer id = Integer.valueOf(text);
+            AppointmentCursor after = AppointmentCursor.decode(cursor);
+            List<Appointment> rows = appointmentRepository.findPageByClientOrMaster(id, id,
+                after.getDate(), after.getTime(), after.getId(), size + 1);
+            if (rows.size() <= size) {
+                return new AppointmentPageDTO(rows, null);
+            }
+            List<Appointment> items = new ArrayList<>(rows.subList(0, size));
+            return new AppointmentPageDTO(items, AppointmentCursor.after(items.get(size - 1)).encode());
+        }
+        int offset;
         try {
-            Integer id = Integer.parseInt(query);
-            return appointmentRepository.findByClientOrMaster(id, id);
+            offset = cursor == null || cursor.isBlank() ? 0 : Integer.parseInt(cursor);
         } catch (NumberFormatException e) {
-            return appointmentRepository.findAll();
+            offset = -1;
         }
+        if (offset < 0) {
+            throw new RuntimeException("Неверный курсор страницы");
+        }
+        String pattern = "%" + text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        List<Appointment> rows = appointmentRepository.search(text, pattern, size + 1, offset);
+        if (rows.size() <= size) {
+            return new AppointmentPageDTO(rows, null);
+        }
+        return new AppointmentPageDTO(new ArrayList<>(rows.subList(0, size)), String.valueOf(offset + size));
     }
 
     public Optional<Appointment> getAppointmentById(Integer id) {
@@ -50,34 +188,291 @@ public class JpaAppointmentService {
     }
 
     public List<Appointment> getAppointmentsByClientId(Integer clientId) {
-        return appointmentRepository.findByClientId(clientId);
+        return appointmentRepository.findByClientIdOrderByDateDescTimeDesc(clientId);
     }
 
     public List<Appointment> getAppointmentsByMasterId(Integer masterId) {
-        return appointmentRepository.findByMasterId(masterId);
+        return appointmentRepository.findByMasterIdOrderByDateAscTimeAsc(masterId);
     }
 
     public List<Appointment> getAppointmentsByMasterIdAndDate(Integer masterId, LocalDate date) {
-        return appointmentRepository.findByMasterIdAndDate(masterId, date);
+        return scheduleCache.get(masterId, date,
+            () -> appointmentRepository.findByMasterIdAndDateOrderByTimeAsc(masterId, date));
     }
 
-    public List<Appointment> getAppointmentsByStatus(String status) {
+    public List<Appointment> getAppointmentsByStatus(AppointmentStatus status) {
         return appointmentRepository.findByStatus(status);
     }
 
+    /**
+     * Возвращает страницу записей, отфильтрованных по клиенту, мастеру или статусу
+     * (не более одного фильтра), в порядке от новых к старым.
+     * Страница запрашивается на одну запись больше, чтобы без отдельного подсчёта
+     * определить, есть ли следующая.
+     *
+     * @param clientId идентификатор клиента или null
+     * @param masterId идентификатор мастера или null
+     * @param status название статуса или null
+     * @param cursor курсор, полученный с предыдущей страницей, или null для первой
+     * @param limit запрошенный размер страницы или null для размера по умолчанию
+     * @param includeVirtual добавлять ли ещё не созданные визиты повторяющихся серий
+     * @param includeArchived читать ли также архив записей (appointments_archive)
+     * @return страница записей с курсором следующей страницы
+     * @throws RuntimeException если курсор повреждён или статус неизвестен
+     */
+    public AppointmentPageDTO getAppointmentsPage(Integer clientId, Integer masterId, String status,
+                                                  String cursor, Integer limit, boolean includeVirtual,
+                                                  boolean includeArchived) {
+        AppointmentCursor position = AppointmentCursor.decode(cursor);
+        AppointmentStatus statusFilter = status != null ? AppointmentStatus.fromLabel(status) : null;
+        int size = limit == null || limit <= 0 ? defaultPageSize : Math.min(limit, maxPageSize);
+        int fetch = size + 1;
+        List<Appointment> rows;
+        if (includeArchived) {
+            rows = jdbcAppointmentRepository.findPageIncludingArchive(clientId, masterId, statusFilter,
+                position.getDate(), position.getTime(), position.getId(), fetch);
+        } else if (clientId != null) {
+            rows = appointmentRepository.findPageByClientId(clientId,
+                position.getDate(), position.getTime(), position.getId(), fetch);
+        } else if (masterId != null) {
+            rows = appointmentRepository.findPageByMasterId(masterId,
+                position.getDate(), position.getTime(), position.getId(), fetch);
+        } else if (status != null) {
+            rows = appointmentRepository.findPageByStatus(statusFilter.getCode(),
+                position.getDate(), position.getTime(), position.getId(), fetch);
+        } else {
+            rows = appointmentRepository.findPage(
+                position.getDate(), position.getTime(), position.getId(), fetch);
+        }
+        if (includeVirtual && (statusFilter == null || statusFilter == AppointmentStatus.PLANNED)) {
+            List<Appointment> virtual = seriesService.virtualOccurrences(clientId, masterId, position, fetch);
+            if (!virtual.isEmpty()) {
+                rows = new ArrayList<>(rows);
+                rows.addAll(virtual);
+                rows.sort(Comparator.comparing(AppointmentCursor::after).reversed());
+                rows = rows.subList(0, Math.min(fetch, rows.size()));
+            }
+        }
+        if (rows.size() <= size) {
+            return new AppointmentPageDTO(rows, null);
+        }
+        List<Appointment> items = new ArrayList<>(rows.subList(0, size));
+        return new AppointmentPageDTO(items, AppointmentCursor.after(items.get(size - 1)).encode());
+    }
+
+    /**
+     * Создаёт серию повторяющихся записей и записи её визитов до горизонта бронирования.
+     * Занятость и рабочее время мастера на весь период проверяются одним запросом
+     * по диапазону дат каждое; если хотя бы один визит пересекается с другой записью
+     * или выходит за рабочее время мастера, серия не создаётся.
+     *
+     * @param series правило серии
+     * @return сохранённая серия
+     * @throws RuntimeException если правило неверно или время занято
+     */
+    public AppointmentSeries createSeries(AppointmentSeries series) {
+        seriesService.validate(series);
+        series.setId(null);
+        series.setActive(true);
+        series.setCreatedAt(LocalDateTime.now());
+        LocalDate until = series.getEndDate() != null && series.getEndDate().isBefore(seriesService.horizon())
+            ? series.getEndDate() : seriesService.horizon();
+        List<Appointment> occurrences = new ArrayList<>();
+        for (LocalDate date : seriesService.occurrencesBetween(series, series.getAnchorDate().minusDays(1), until)) {
+            Appointment occurrence = seriesService.occurrence(series, date);
+            prepareNewAppointment(occurrence);
+            occurrences.add(occurrence);
+        }
+        series.setMaterializedUntil(until.isBefore(series.getAnchorDate())
+            ? series.getAnchorDate().minusDays(1) : until);
+
+        List<ReentrantLock> locks = lockDays(occurrences.toArray(new Appointment[0]));
+        try {
+            if (!occurrences.isEmpty()) {
+                LocalDate first = occurrences.get(0).getDate();
+                LocalDate last = occurrences.get(occurrences.size() - 1).getDate();
+                Map<LocalDate, List<int[]>> open = workingHours.openIntervals(series.getMasterId(), first, last);
+                List<String> closed = new ArrayList<>();
+                for (Appointment occurrence : occurrences) {
+                    if (!withinHours(open, occurrence)) {
+                        closed.add(occurrence.getDate().toString());
+                    }
+                }
+                if (!closed.isEmpty()) {
+                    throw new RuntimeException("Мастер не работает в это время: " + String.join(", ", closed));
+                }
+                Map<LocalDate, List<int[]>> busy = loadBusyByDate(series.getMasterId(), first, last);
+                List<String> conflicts = new ArrayList<>();
+                for (Appointment occurrence : occurrences) {
+                    if (!claim(busy, occurrence)) {
+                        conflicts.add(occurrence.getDate().toString());
+                    }
+                }
+                if (!conflicts.isEmpty()) {
+                    throw new RuntimeException("Это время уже занято: " + String.join(", ", conflicts));
+                }
+            }
+            AppointmentSeries saved;
+            try {
+                saved = transactionTemplate.execute(status -> {
+                    AppointmentSeries created = seriesService.save(series);
+                    occurrences.forEach(occurrence -> occurrence.setSeriesId(created.getId()));
+                    jdbcAppointmentRepository.insertAll(occurrences);
+                    return created;
+                });
+            } catch (DataIntegrityViolationException e) {
+                occurrences.forEach(occurrence -> slotIndex.evict(occurrence.getMasterId(), occurrence.getDate()));
+                throw isOverlapViolation(e) ? new RuntimeException("Это время уже занято") : e;
+            }
+            for (Appointment occurrence : occurrences) {
+                changed(AppointmentEventDTO.Type.CREATED, null, occurrence);
+            }
+            return saved;
+        } finally {
+            unlock(locks);
+        }
+    }
+
+    /**
+     * Продлевает созданные записи действующих серий до текущего горизонта бронирования.
+     * Выполняется ежедневно. Визиты, время которых к моменту продления уже занято
+     * или приходится на нерабочее время мастера, пропускаются. Серия, которую не удалось
+     * продлить, записывается в журнал и продлевается при следующем запуске.
+     */
+    @Scheduled(cron = "${parik.series.extend-cron:0 10 0 * * *}")
+    public void extendSeries() {
+        LocalDate horizon = seriesService.horizon();
+        for (AppointmentSeries series : seriesService.findDueForExtension()) {
+            try {
+                extendSeries(series, horizon);
+            } catch (RuntimeException e) {
+                log.warn("Серия {} не продлена, повтор при следующем запуске", series.getId(), e);
+            }
+        }
+    }
+
+    private void extendSeries(AppointmentSeries series, LocalDate horizon) {
+        LocalDate until = series.getEndDate() != null && series.getEndDate().isBefore(horizon)
+            ? series.getEndDate() : horizon;
+        List<Appointment> occurrences = new ArrayList<>();
+        for (LocalDate date : seriesService.occurrencesBetween(series, series.getMaterializedUntil(), until)) {
+            Appointment occurrence = seriesService.occurrence(series, date);
+            prepareNewAppointment(occurrence);
+            occurrences.add(occurrence);
+        }
+        List<ReentrantLock> locks = lockDays(occurrences.toArray(new Appointment[0]));
+        try {
+            List<Appointment> accepted = new ArrayList<>();
+            if (!occurrences.isEmpty()) {
+                LocalDate first = occurrences.get(0).getDate();
+                LocalDate last = occurrences.get(occurrences.size() - 1).getDate();
+                Map<LocalDate, List<int[]>> open = workingHours.openIntervals(series.getMasterId(), first, last);
+                Map<LocalDate, List<int[]>> busy = loadBusyByDate(series.getMasterId(), first, last);
+                for (Appointment occurrence : occurrences) {
+                    if (withinHours(open, occurrence) && claim(busy, occurrence)) {
+                        accepted.add(occurrence);
+                    }
+                }
+            }
+            series.setMaterializedUntil(until);
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcAppointmentRepository.insertAll(accepted);
+                seriesService.save(series);
+            });
+            for (Appointment occurrence : accepted) {
+                changed(AppointmentEventDTO.Type.CREATED, null, occurrence);
+            }
+        } catch (DataIntegrityViolationException e) {
+            occurrences.forEach(occurrence -> slotIndex.evict(occurrence.getMasterId(), occurrence.getDate()));
+            throw e;
+        } finally {
+            unlock(locks);
+        }
+    }
+
+    /**
+     * Завершает серию: новые визиты больше не создаются, а предстоящие
+     * созданные визиты отменяются.
+     *
+     * @param id идентификатор серии
+     * @return завершённая серия
+     * @throws RuntimeException если серия не найдена
+     */
+    public AppointmentSeries endSeries(Integer id) {
+        AppointmentSeries series = seriesService.getSeriesById(id)
+            .orElseThrow(() -> new RuntimeException("Серия не найдена"));
+        series.setActive(false);
+        AppointmentSeries saved = seriesService.save(series);
+        for (Integer appointmentId : appointmentRepository.findIdsBySeriesFrom(
+                id, LocalDate.now(), AppointmentStatus.PLANNED)) {
+            cancelAppointment(appointmentId);
+        }
+        return saved;
+    }
+
     public Appointment createAppointment(Appointment appointment) {
-        List<Appointment> existingAppointments = appointmentRepository
-            .findByMasterIdAndDate(appointment.getMasterId(), appointment.getDate());
-        
-        for (Appointment existing : existingAppointments) {
-            if (!existing.getStatus().equals("Отменена") && 
-                existing.getTime().equals(appointment.getTime())) {
+        List<ReentrantLock> locks = lockDays(appointment);
+        try {
+            requireSameDay(appointment.getTime(), slotIndex.durationOf(appointment.getServiceId()));
+            if (!workingHours.isOpen(appointment.getMasterId(), appointment.getDate(),
+                    appointment.getTime(), slotIndex.durationOf(appointment.getServiceId()))) {
+                throw new RuntimeException("Мастер не работает в это время");
+            }
+            if (!slotIndex.isFree(appointment.getMasterId(), appointment.getDate(),
+                    appointment.getTime(), appointment.getServiceId())) {
                 throw new RuntimeException("Это время уже занято");
             }
+            return insertAppointment(appointment);
+        } finally {
+            unlock(locks);
+        }
+    }
+
+    /**
+     * Записывает клиента к любому мастеру: мастер и время подбираются так,
+     * чтобы расписание дня дробилось как можно меньше
+     * (см. {@link AppointmentAvailabilityService#rankBestFit}).
+     * Если лучший вариант успели занять, пробуется следующий.
+     *
+     * @param request клиент, услуга, дата и желаемое окно времени
+     * @return созданная запись
+     * @throws RuntimeException если свободного времени в окне нет или данные заданы неверно
+     */
+    public Appointment autoAssign(AutoAssignRequestDTO request) {
+        List<AvailableSlotDTO> candidates = availabilityService.rankBestFit(request.getServiceId(),
+            request.getDate(), request.getFrom(), request.getTo());
+        for (AvailableSlotDTO candidate : candidates) {
+            Appointment appointment = new Appointment();
+            appointment.setClientId(request.getClientId());
+            appointment.setMasterId(candidate.getMasterId());
+            appointment.setServiceId(request.getServiceId());
+            appointment.setDate(candidate.getDate());
+            appointment.setTime(candidate.getTime());
+            try {
+                return createAppointment(appointment);
+            } catch (RuntimeException e) {
+                if (slotIndex.isFree(candidate.getMasterId(), candidate.getDate(), candidate.getTime(),
+                        request.getServiceId())) {
+                    throw e;
+                }
+            }
         }
-        
+        throw new RuntimeException("Нет свободного времени у мастеров в выбранном окне");
+    }
+
+    private Appointment insertAppointment(Appointment appointment) {
+        prepareNewAppointment(appointment);
+        Appointment saved = saveChecked(appointment);
+        changed(AppointmentEventDTO.Type.CREATED, null, saved);
+        return saved;
+    }
+
+    private void prepareNewAppointment(Appointment appointment) {
+        appointment.setDuration(slotIndex.durationOf(appointment.getServiceId()));
+        requireSameDay(appointment.getTime(), appointment.getDuration());
+        appointment.setPrice(slotIndex.priceOf(appointment.getServiceId()));
         if (appointment.getStatus() == null) {
-            appointment.setStatus("Запланирована");
+            appointment.setStatus(AppointmentStatus.PLANNED);
         }
         if (appointment.getCreatedAt() == null) {
             appointment.setCreatedAt(LocalDateTime.now());
@@ -85,58 +480,652 @@ public class JpaAppointmentService {
         if (appointment.getUpdatedAt() == null) {
             appointment.setUpdatedAt(LocalDateTime.now());
         }
-        
-        return appointmentRepository.save(appointment);
     }
 
-    public Appointment updateAppointment(Integer id, Appointment appointmentDetails) {
-        Appointment appointment = appointmentRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Запись не найдена"));
-        
-        if (appointmentDetails.getClientId() != null) {
-            appointment.setClientId(appointmentDetails.getClientId());
+    /**
+     * Создаёт пакет записей.
+     * Рабочее время и конфликты проверяются одним запросом по диапазону дат на каждого
+     * мастера, включая пересечения записей пакета между собой, после чего записи вставляются
+     * порциями через JDBC batch.
+     * В атомарном режиме пакет применяется целиком или не применяется совсем;
+     * иначе создаются все корректные записи, а для остальных возвращается ошибка.
+     *
+     * @param appointments записи для создания
+     * @param atomic применять ли пакет атомарно
+     * @return результат по каждой записи в порядке запроса
+     */
+    public List<AppointmentBatchResultDTO> createAppointmentsBatch(List<Appointment> appointments, boolean atomic) {
+        List<AppointmentBatchResultDTO> results = new ArrayList<>(appointments.size());
+        List<Appointment> prepared = new ArrayList<>();
+        for (int i = 0; i < appointments.size(); i++) {
+            AppointmentBatchResultDTO result = new AppointmentBatchResultDTO(i);
+            results.add(result);
+            Appointment appointment = appointments.get(i);
+            try {
+                if (appointment.getClientId() == null || appointment.getMasterId() == null
+                        || appointment.getServiceId() == null || appointment.getDate() == null
+                        || appointment.getTime() == null) {
+                    throw new RuntimeException("Не заполнены обязательные поля записи");
+                }
+                prepareNewAppointment(appointment);
+                prepared.add(appointment);
+            } catch (RuntimeException e) {
+                result.setError(e.getMessage());
+            }
+        }
+
+        List<ReentrantLock> locks = lockDays(prepared.toArray(new Appointment[0]));
+        try {
+            List<Appointment> accepted = new ArrayList<>();
+            List<AppointmentBatchResultDTO> acceptedResults = new ArrayList<>();
+            Map<Integer, List<Integer>> indexesByMaster = new LinkedHashMap<>();
+            for (int i = 0; i < appointments.size(); i++) {
+                if (results.get(i).getError() == null) {
+                    indexesByMaster.computeIfAbsent(appointments.get(i).getMasterId(), m -> new ArrayList<>()).add(i);
+                }
+            }
+            for (Map.Entry<Integer, List<Integer>> entry : indexesByMaster.entrySet()) {
+                List<Integer> indexes = entry.getValue();
+                LocalDate from = indexes.stream().map(i -> appointments.get(i).getDate()).min(LocalDate::compareTo).get();
+                LocalDate to = indexes.stream().map(i -> appointments.get(i).getDate()).max(LocalDate::compareTo).get();
+                Map<LocalDate, List<int[]>> open = workingHours.openIntervals(entry.getKey(), from, to);
+                Map<LocalDate, List<int[]>> busy = loadBusyByDate(entry.getKey(), from, to);
+                for (Integer i : indexes) {
+                    Appointment appointment = appointments.get(i);
+                    if (!withinHours(open, appointment)) {
+                        results.get(i).setError("Мастер не работает в это время");
+                        continue;
+                    }
+                    if (!claim(busy, appointment)) {
+                        results.get(i).setError("Это время уже занято");
+                        continue;
+                    }
+                    accepted.add(appointment);
+                    acceptedResults.add(results.get(i));
+                }
+            }
+
+            if (atomic) {
+                if (accepted.size() < appointments.size()) {
+                    rejectAll(results, "Пакет не применён: в нём есть ошибки");
+                    return results;
+                }
+                try {
+                    transactionTemplate.executeWithoutResult(status -> jdbcAppointmentRepository.insertAll(accepted));
+                } catch (DataIntegrityViolationException e) {
+                    accepted.forEach(a -> a.setId(null));
+                    rejectAll(results, isOverlapViolation(e) ? "Это время уже занято" : e.getMessage());
+                    return results;
+                }
+                markCreated(accepted, acceptedResults);
+            } else {
+                for (int offset = 0; offset < accepted.size(); offset += AppointmentRepository.BATCH_SIZE) {
+                    int end = Math.min(offset + AppointmentRepository.BATCH_SIZE, accepted.size());
+                    insertChunk(accepted.subList(offset, end), acceptedResults.subList(offset, end));
+                }
+            }
+            return results;
+        } finally {
+            unlock(locks);
+        }
+    }
+
+    /**
+     * Вставляет порцию записей в отдельной транзакции. Если порция отклонена базой,
+     * записи вставляются по одной, чтобы определить, какие из них ошибочны.
+     */
+    private void insertChunk(List<Appointment> chunk, List<AppointmentBatchResultDTO> chunkResults) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcAppointmentRepository.insertAll(chunk));
+            markCreated(chunk, chunkResults);
+        } catch (DataIntegrityViolationException chunkFailure) {
+            for (int i = 0; i < chunk.size(); i++) {
+                Appointment appointment = chunk.get(i);
+                appointment.setId(null);
+                try {
+                    jdbcAppointmentRepository.insertAll(List.of(appointment));
+                    markCreated(List.of(appointment), List.of(chunkResults.get(i)));
+                } catch (DataIntegrityViolationException e) {
+                    appointment.setId(null);
+                    chunkResults.get(i).setError(isOverlapViolation(e) ? "Это время уже занято" : e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void markCreated(List<Appointment> inserted, List<AppointmentBatchResultDTO> insertedResults) {
+        for (int i = 0; i < inserted.size(); i++) {
+            changed(AppointmentEventDTO.Type.CREATED, null, inserted.get(i));
+            insertedResults.get(i).setCreated(true);
+            insertedResults.get(i).setAppointment(inserted.get(i));
         }
-        if (appointmentDetails.getMasterId() != null) {
-            appointment.setMasterId(appointmentDetails.getMasterId());
+    }
+
+    private static void rejectAll(List<AppointmentBatchResultDTO> results, String reason) {
+        for (AppointmentBatchResultDTO result : results) {
+            if (result.getError() == null) {
+                result.setError(reason);
+            }
+        }
+    }
+
+    /**
+     * Загружает занятость мастера за период одним запросом по диапазону дат.
+     *
+     * @return интервалы [начало, конец) в минутах по датам
+     */
+    private Map<LocalDate, List<int[]>> loadBusyByDate(Integer masterId, LocalDate from, LocalDate to) {
+        Map<LocalDate, List<int[]>> busy = new HashMap<>();
+        for (Appointment existing : jdbcAppointmentRepository.findActiveByMasterIdAndDateBetween(masterId, from, to)) {
+            int duration = existing.getDuration() != null
+                ? existing.getDuration() : slotIndex.durationOf(existing.getServiceId());
+            busy.computeIfAbsent(existing.getDate(), d -> new ArrayList<>()).add(interval(existing, duration));
         }
-        if (appointmentDetails.getServiceId() != null) {
-            appointment.setServiceId(appointmentDetails.getServiceId());
+        return busy;
+    }
+
+    /**
+     * Занимает интервал записи в загруженной занятости, если он свободен.
+     *
+     * @return false, если интервал пересекается с уже занятым
+     */
+    private static boolean claim(Map<LocalDate, List<int[]>> busy, Appointment appointment) {
+        if (!AppointmentSlotIndex.occupiesTime(appointment)) {
+            return true;
         }
-        if (appointmentDetails.getDate() != null) {
-            appointment.setDate(appointmentDetails.getDate());
+        int[] candidate = interval(appointment, appointment.getDuration());
+        List<int[]> day = busy.computeIfAbsent(appointment.getDate(), d -> new ArrayList<>());
+        if (day.stream().anyMatch(other -> other[0] < candidate[1] && candidate[0] < other[1])) {
+            return false;
         }
-        if (appointmentDetails.getTime() != null) {
-            appointment.setTime(appointmentDetails.getTime());
+        day.add(candidate);
+        return true;
+    }
+
+    /**
+     * Проверяет, лежит ли запись в загруженном рабочем времени мастера.
+     * Отменённые записи время не занимают и не проверяются.
+     */
+    private static boolean withinHours(Map<LocalDate, List<int[]>> open, Appointment appointment) {
+        if (!AppointmentSlotIndex.occupiesTime(appointment)) {
+            return true;
         }
-        if (appointmentDetails.getStatus() != null) {
-            appointment.setStatus(appointmentDetails.getStatus());
+        int[] candidate = interval(appointment, appointment.getDuration());
+        return WorkingHoursService.covers(open.get(appointment.getDate()), candidate[0], candidate[1]);
+    }
+
+    /**
+     * Запрещает записи, переходящие на следующий день: занятость мастера
+     * хранится и проверяется по дням.
+     *
+     * @throws RuntimeException если запись заканчивается после полуночи
+     */
+    static void requireSameDay(LocalTime time, int duration) {
+        if (!AppointmentSlotIndex.endsSameDay(time, duration)) {
+            throw new RuntimeException("Запись не может переходить на следующий день");
         }
-        appointment.setUpdatedAt(LocalDateTime.now());
-        
-        return appointmentRepository.save(appointment);
     }
 
+    private static int[] interval(Appointment appointment, int duration) {
+        int start = AppointmentSlotIndex.minuteOf(appointment.getTime());
+        return new int[]{start, start + duration};
+    }
+
+    /**
+     * Изменяет запись. Запись перечитывается под блокировками её текущего и нового дня,
+     * поэтому изменения применяются к последнему сохранённому состоянию и не затирают
+     * одновременное изменение, сохранённое другим запросом.
+     *
+     * @param id идентификатор записи
+     * @param appointmentDetails изменяемые поля (null - без изменений)
+     * @return сохранённая запись
+     * @throws RuntimeException если запись не найдена или время недоступно
+     */
+    public Appointment updateAppointment(Integer id, Appointment appointmentDetails) {
+        return withLocked(id, stored -> movedTo(stored, appointmentDetails), appointment -> {
+            Appointment before = AppointmentSlotIndex.snapshot(appointment);
+
+            if (appointmentDetails.getClientId() != null) {
+                appointment.setClientId(appointmentDetails.getClientId());
+            }
+            if (appointmentDetails.getMasterId() != null) {
+                appointment.setMasterId(appointmentDetails.getMasterId());
+            }
+            if (appointmentDetails.getServiceId() != null) {
+                // Цена пересчитывается только при смене услуги: согласованная цена не меняется
+                if (!appointmentDetails.getServiceId().equals(appointment.getServiceId())) {
+                    appointment.setPrice(slotIndex.priceOf(appointmentDetails.getServiceId()));
+                }
+                appointment.setServiceId(appointmentDetails.getServiceId());
+                appointment.setDuration(slotIndex.durationOf(appointmentDetails.getServiceId()));
+            }
+            if (appointmentDetails.getDate() != null) {
+                appointment.setDate(appointmentDetails.getDate());
+            }
+            if (appointmentDetails.getTime() != null) {
+                appointment.setTime(appointmentDetails.getTime());
+            }
+            if (appointmentDetails.getStatus() != null) {
+                appointment.setStatus(appointmentDetails.getStatus());
+            }
+            appointment.setUpdatedAt(LocalDateTime.now());
+
+            if (AppointmentSlotIndex.occupiesTime(appointment) && rescheduled(before, appointment)) {
+                requireSameDay(appointment.getTime(), slotIndex.durationOf(appointment.getServiceId()));
+            }
+            if (AppointmentSlotIndex.occupiesTime(appointment) && rescheduled(before, appointment)
+                    && !workingHours.isOpen(appointment.getMasterId(), appointment.getDate(),
+                        appointment.getTime(), slotIndex.durationOf(appointment.getServiceId()))) {
+                throw new RuntimeException("Мастер не работает в это время");
+            }
+            if (AppointmentSlotIndex.occupiesTime(appointment) && !slotIndex.isFree(appointment.getMasterId(),
+                    appointment.getDate(), appointment.getTime(), appointment.getServiceId(), id)) {
+                throw new RuntimeException("Это время уже занято");
+            }
+            Appointment saved = saveChecked(appointment);
+            changed(AppointmentEventDTO.Type.UPDATED, before, saved);
+            return saved;
+        });
+    }
+
+    /**
+     * День, на который переносится запись: мастер и дата из изменений,
+     * а если они не заданы - текущие.
+     */
+    static Appointment movedTo(Appointment stored, Appointment details) {
+        Appointment target = new Appointment();
+        target.setMasterId(details.getMasterId() != null ? details.getMasterId() : stored.getMasterId());
+        target.setDate(details.getDate() != null ? details.getDate() : stored.getDate());
+        return target;
+    }
+
+    /**
+     * Отменяет запись и в той же транзакции предлагает освободившееся время первой
+     * подходящей заявке из листа ожидания. Если клиент согласен на автоматическую запись,
+     * запись по заявке создаётся следующей транзакцией; если время к этому моменту
+     * оказалось занято, у клиента остаётся предложение.
+     *
+     * @param id идентификатор записи
+     * @return отменённая запись
+     * @throws RuntimeException если запись не найдена
+     */
     public Appointment cancelAppointment(Integer id) {
-        Appointment appointment = appointmentRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Запись не найдена"));
-        appointment.setStatus("Отменена");
-        appointment.setUpdatedAt(LocalDateTime.now());
-        return appointmentRepository.save(appointment);
+        return withLocked(id, stored -> stored, appointment -> {
+            Appointment before = AppointmentSlotIndex.snapshot(appointment);
+            appointment.setStatus(AppointmentStatus.CANCELLED);
+            appointment.setUpdatedAt(LocalDateTime.now());
+
+            List<WaitlistService.Match> offered = new ArrayList<>(1);
+            Appointment saved = transactionTemplate.execute(status -> {
+                Appointment cancelled = appointmentRepository.saveAndFlush(appointment);
+                if (before.getStatus() != AppointmentStatus.CANCELLED) {
+                    waitlistService.matchFreedSlot(cancelled).ifPresent(match -> {
+                        waitlistService.offer(match);
+                        offered.add(match);
+                    });
+                }
+                return cancelled;
+            });
+            changed(AppointmentEventDTO.Type.CANCELLED, before, saved);
+            autoBook(offered);
+            return saved;
+        });
+    }
+
+    /**
+     * Создаёт запись по предложению из листа ожидания, принятому клиентом.
+     * Выполняется под блокировкой дня мастера, чтобы предложение не было снято
+     * по истечении срока одновременно с принятием.
+     *
+     * @param entryId идентификатор заявки
+     * @return созданная запись
+     * @throws RuntimeException если предложения нет, оно истекло или время уже занято
+     */
+    public Appointment acceptWaitlistOffer(Integer entryId) {
+        WaitlistEntry offered = waitlistService.getActiveOffer(entryId);
+        Appointment appointment = new Appointment();
+        appointment.setClientId(offered.getClientId());
+        appointment.setMasterId(offered.getMasterId());
+        appointment.setServiceId(offered.getServiceId());
+        appointment.setDate(offered.getDate());
+        appointment.setTime(offered.getOfferedTime());
+        List<ReentrantLock> locks = lockDays(appointment);
+        try {
+            WaitlistEntry entry = waitlistService.getActiveOffer(entryId);
+            Appointment created;
+            try {
+                created = createAppointment(appointment);
+            } catch (RuntimeException e) {
+                waitlistService.reopen(entry);
+                throw e;
+            }
+            waitlistService.markBooked(entry, created);
+            return created;
+        } finally {
+            unlock(locks);
+        }
+    }
+
+    /**
+     * Снимает предложения листа ожидания, на которые клиенты не ответили вовремя,
+     * и предлагает освободившееся время следующей подходящей заявке.
+     * Выполняется ежеминутно; каждая заявка обрабатывается под блокировкой дня мастера,
+     * поэтому не пересекается с принятием предложения клиентом.
+     */
+    @Scheduled(cron = "${parik.waitlist.expire-cron:0 * * * * *}")
+    public void expireWaitlistOffers() {
+        for (WaitlistEntry entry : waitlistService.findExpiredOffers()) {
+            try {
+                reofferExpired(entry);
+            } catch (RuntimeException e) {
+                log.warn("Предложение по заявке {} не снято, повтор при следующем запуске", entry.getId(), e);
+            }
+        }
+    }
+
+    private void reofferExpired(WaitlistEntry entry) {
+        Appointment slot = new Appointment();
+        slot.setMasterId(entry.getMasterId());
+        slot.setDate(entry.getDate());
+        List<ReentrantLock> locks = lockDays(slot);
+        try {
+            List<WaitlistService.Match> offered = new ArrayList<>(1);
+            transactionTemplate.executeWithoutResult(status -> waitlistService.expireOffer(entry.getId())
+                .flatMap(expired -> waitlistService.matchFreedSlot(expired.getMasterId(), expired.getDate(),
+                    expired.getOfferedTime()))
+                .ifPresent(match -> {
+                    waitlistService.offer(match);
+                    offered.add(match);
+                }));
+            autoBook(offered);
+        } finally {
+            unlock(locks);
+        }
+    }
+
+    /**
+     * Создаёт записи по предложениям, сделанным заявкам с автоматической записью.
+     * Вызывается под блокировкой дня мастера после фиксации предложений.
+     *
+     * @param offered сделанные предложения
+     */
+    private void autoBook(List<WaitlistService.Match> offered) {
+        for (WaitlistService.Match match : offered) {
+            if (match.getEntry().isAutoBook()) {
+                Appointment booked = bookFromWaitlist(match);
+                if (booked != null) {
+                    changed(AppointmentEventDTO.Type.CREATED, null, booked);
+                }
+            }
+        }
+    }
+
+    /**
+     * Создаёт запись по заявке, согласной на автоматическую запись, и отмечает заявку.
+     * Вызывается под блокировкой дня мастера.
+     *
+     * @param match подобранная заявка и время
+     * @return созданная запись или null, если время уже занято и заявке остаётся предложение
+     */
+    private Appointment bookFromWaitlist(WaitlistService.Match match) {
+        WaitlistEntry entry = match.getEntry();
+        Appointment appointment = new Appointment();
+        appointment.setClientId(entry.getClientId());
+        appointment.setMasterId(entry.getMasterId());
+        appointment.setServiceId(entry.getServiceId());
+        appointment.setDate(entry.getDate());
+        appointment.setTime(match.getTime());
+        prepareNewAppointment(appointment);
+        try {
+            return transactionTemplate.execute(status -> {
+                Appointment booked = appointmentRepository.saveAndFlush(appointment);
+                waitlistService.markBooked(entry, booked);
+                return booked;
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (!isOverlapViolation(e)) {
+                throw e;
+            }
+            slotIndex.evict(appointment.getMasterId(), appointment.getDate());
+            return null;
+        }
     }
 
     public Appointment completeAppointment(Integer id) {
+        return withLocked(id, stored -> stored, appointment -> {
+            Appointment before = AppointmentSlotIndex.snapshot(appointment);
+            appointment.setStatus(AppointmentStatus.COMPLETED);
+            appointment.setUpdatedAt(LocalDateTime.now());
+            Appointment saved = appointmentRepository.save(appointment);
+            changed(AppointmentEventDTO.Type.COMPLETED, before, saved);
+            return saved;
+        });
+    }
+
+    /**
+     * Отмечает выполненными все запланированные записи мастера на дату.
+     * Выполняется одним запросом UPDATE ... RETURNING.
+     *
+     * @param masterId идентификатор мастера
+     * @param date дата
+     * @return идентификаторы изменённых записей
+     */
+    public List<Integer> completeMasterDay(Integer masterId, LocalDate date) {
+        List<Object[]> rows = appointmentRepository.transitionMasterDay(masterId, date,
+            AppointmentStatus.PLANNED.getCode(), AppointmentStatus.COMPLETED.getCode());
+        return ids(bulkChanged(AppointmentEventDTO.Type.COMPLETED, AppointmentStatus.COMPLETED, rows));
+    }
+
+    /**
+     * Отменяет все запланированные записи мастера за период.
+     * Выполняется одним запросом UPDATE ... RETURNING. Освободившееся время
+     * листу ожидания не предлагается: массовая отмена означает, что мастер недоступен.
+     *
+     * @param masterId идентификатор мастера
+     * @param from начальная дата периода
+     * @param to конечная дата периода (включительно)
+     * @return идентификаторы изменённых записей
+     * @throws RuntimeException если период задан неверно
+     */
+    public List<Integer> cancelMasterRange(Integer masterId, LocalDate from, LocalDate to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new RuntimeException("Неверный период");
+        }
+        List<Object[]> rows = appointmentRepository.transitionMasterRange(masterId, from, to,
+            AppointmentStatus.PLANNED.getCode(), AppointmentStatus.CANCELLED.getCode());
+        return ids(bulkChanged(AppointmentEventDTO.Type.CANCELLED, AppointmentStatus.CANCELLED, rows));
+    }
+
+    /**
+     * Переводит порцию просроченных запланированных записей (с датой раньше указанной)
+     * в целевой статус одним запросом. Порция выбирается по возрастанию ключа
+     * (date, time, id) после переданной позиции; записи, занятые другими транзакциями,
+     * пропускаются. Блокировки дней не берутся: прошедшие дни не бронируются.
+     * Используется фоновой очисткой {@link AppointmentSweepService}.
+     *
+     * @param before граница дат (не включительно)
+     * @param after позиция, после которой выбирается порция
+     * @param limit размер порции
+     * @param target целевой статус
+     * @return изменённые записи
+     */
+    public List<Appointment> expirePlannedChunk(LocalDate before, AppointmentCursor after, int limit,
+                                                AppointmentStatus target) {
+        List<Object[]> rows = appointmentRepository.transitionExpiredChunk(before,
+            after.getDate(), after.getTime(), after.getId(), limit,
+            AppointmentStatus.PLANNED.getCode(), target.getCode());
+        AppointmentEventDTO.Type type = target == AppointmentStatus.COMPLETED ? AppointmentEventDTO.Type.COMPLETED
+            : target == AppointmentStatus.CANCELLED ? AppointmentEventDTO.Type.CANCELLED
+            : AppointmentEventDTO.Type.UPDATED;
+        return bulkChanged(type, target, rows);
+    }
+
+    /**
+     * Обновляет индекс занятости и публикует события по строкам, возвращённым
+     * массовым изменением статуса. Карты затронутых дней сбрасываются целиком.
+     */
+    private List<Appointment> bulkChanged(AppointmentEventDTO.Type type, AppointmentStatus status,
+                                          List<Object[]> rows) {
+        List<Appointment> changed = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Appointment after = new Appointment();
+            after.setId(((Number) row[0]).intValue());
+            after.setClientId(((Number) row[1]).intValue());
+            after.setMasterId(((Number) row[2]).intValue());
+            after.setServiceId(((Number) row[3]).intValue());
+            after.setDate(AppointmentSlotIndex.toLocalDate(row[4]));
+            after.setTime(AppointmentSlotIndex.toLocalTime(row[5]));
+            after.setDuration(row[6] != null ? ((Number) row[6]).intValue() : null);
+            after.setSeriesId(row[7] != null ? ((Number) row[7]).intValue() : null);
+            after.setPrice((BigDecimal) row[8]);
+            after.setStatus(status);
+            if (!status.occupiesTime()) {
+                slotIndex.evict(after.getMasterId(), after.getDate());
+            }
+            scheduleCache.updateStatus(after.getMasterId(), after.getDate(), after.getId(), status);
+            eventBus.publish(type, null, after);
+            changed.add(after);
+        }
+        return changed;
+    }
+
+    private static List<Integer> ids(List<Appointment> appointments) {
+        List<Integer> ids = new ArrayList<>(appointments.size());
+        for (Appointment appointment : appointments) {
+            ids.add(appointment.getId());
+        }
+        return ids;
+    }
+
+    public void deleteAppointment(Integer id) {
         Appointment appointment = appointmentRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Запись не найдена"));
-        appointment.setStatus("Выполнена");
-        appointment.setUpdatedAt(LocalDateTime.now());
-        return appointmentRepository.save(appointment);
+        appointmentRepository.deleteById(id);
+        changed(AppointmentEventDTO.Type.DELETED, appointment, null);
     }
 
-    public void deleteAppointment(Integer id) {
-        if (!appointmentRepository.findById(id).isPresent()) {
-            throw new RuntimeException("Запись не найдена");
+    /**
+     * Вызывается после каждого сохранённого изменения записи: обновляет индекс
+     * занятости и публикует событие для экранов мастеров.
+     *
+     * @param type тип изменения
+     * @param before запись до изменения (null для новой записи)
+     * @param after запись после изменения (null для удалённой записи)
+     */
+    private void changed(AppointmentEventDTO.Type type, Appointment before, Appointment after) {
+        slotIndex.replace(before, after);
+        scheduleCache.replace(before, after);
+        eventBus.publish(type, before, after);
+    }
+
+    /**
+     * Ищет пересекающиеся по времени записи начиная с указанной даты.
+     * Записи читаются потоком, упорядоченные по мастеру, дате и времени начала,
+     * и просматриваются за один проход: для каждой группы (мастер, дата) запоминается
+     * интервал с наибольшим окончанием, и любая следующая запись, начинающаяся раньше
+     * этого окончания, с ним пересекается.
+     *
+     * @param from начальная дата проверки
+     * @return список найденных пересечений
+     */
+    @Transactional(readOnly = true)
+    public List<AppointmentOverlapDTO> findOverlappingAppointments(LocalDate from) {
+        List<AppointmentOverlapDTO> overlaps = new ArrayList<>();
+        try (Stream<Object[]> rows = appointmentRepository.streamBookedIntervalsFrom(from)) {
+            Integer currentMaster = null;
+            LocalDate currentDate = null;
+            Integer reachingId = null;
+            int reachingEnd = 0;
+            for (Iterator<Object[]> it = rows.iterator(); it.hasNext(); ) {
+                Object[] row = it.next();
+                Integer id = (Integer) row[0];
+                Integer masterId = (Integer) row[1];
+                LocalDate date = (LocalDate) row[2];
+                int start = AppointmentSlotIndex.minuteOf(AppointmentSlotIndex.toLocalTime(row[3]));
+                int end = start + ((Number) row[4]).intValue();
+
+                if (!Objects.equals(masterId, currentMaster) || !Objects.equals(date, currentDate)) {
+                    currentMaster = masterId;
+                    currentDate = date;
+                    reachingId = null;
+                } else if (start < reachingEnd) {
+                    overlaps.add(new AppointmentOverlapDTO(masterId, date, reachingId, id));
+                }
+                if (reachingId == null || end > reachingEnd) {
+                    reachingId = id;
+                    reachingEnd = end;
+                }
+            }
+        }
+        return overlaps;
+    }
+
+    /**
+     * Сохраняет запись, переводя нарушение ограничения на пересечение интервалов
+     * в базе данных в стандартную ошибку занятого времени. Ограничение служит
+     * последней защитой от двойной записи, например при работе нескольких экземпляров приложения.
+     *
+     * @param appointment запись для сохранения
+     * @return сохранённая запись
+     */
+    private Appointment saveChecked(Appointment appointment) {
+        try {
+            return appointmentRepository.saveAndFlush(appointment);
+        } catch (DataIntegrityViolationException e) {
+            if (isOverlapViolation(e)) {
+                slotIndex.evict(appointment.getMasterId(), appointment.getDate());
+                throw new RuntimeException("Это время уже занято");
+            }
+            throw e;
         }
-        appointmentRepository.deleteById(id);
     }
-}
 
+    /**
+     * Проверяет, вызвано ли исключение нарушением ограничения на пересечение записей.
+     *
+     * @param e исключение целостности данных
+     * @return true, если нарушено ограничение-исключение
+     */
+    static boolean isOverlapViolation(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException && EXCLUSION_VIOLATION.equals(((SQLException) cause).getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Проверяет, изменились ли мастер, дата, время или длительность записи.
+     * Запись, оставшаяся на прежнем месте, не проверяется на рабочее время повторно:
+     * график мог измениться уже после её создания.
+     *
+     * @param before запись до изменения
+     * @param after запись после изменения
+     * @return true, если запись перенесена или изменилась её длительность
+     */
+    static boolean rescheduled(Appointment before, Appointment after) {
+        return !Objects.equals(before.getMasterId(), after.getMasterId())
+            || !Objects.equals(before.getDate(), after.getDate())
+            || !Objects.equals(before.getTime(), after.getTime())
+            || !Objects.equals(before.getDuration(), after.getDuration())
+            || !AppointmentSlotIndex.occupiesTime(before);
+    }
+
+    private List<ReentrantLock> lockDays(Appointment... appointments) {
+        return dayLocks.lock(appointments);
+    }
+
+    /**
+     * Выполняет изменение записи, прочитанной под блокировкой дня мастера
+     * (см. {@link MasterDayLocks#withLocked}).
+     */
+    private <T> T withLocked(Integer id, UnaryOperator<Appointment> moveTo, Function<Appointment, T> action) {
+        return dayLocks.withLocked(() -> appointmentRepository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Запись не найдена")), moveTo, action);
+    }
+
+    private static void unlock(List<ReentrantLock> locks) {
+        MasterDayLocks.unlock(locks);
+    }
+}
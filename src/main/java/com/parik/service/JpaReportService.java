@@ -1,20 +1,16 @@
 package com.parik.service;
 
-import com.parik.model.Appointment;
+import com.parik.model.DailyRevenue;
 import com.parik.model.Report;
-import com.parik.model.Service;
-import com.parik.repository.JpaAppointmentRepository;
+import com.parik.repository.JpaDailyRevenueRepository;
 import com.parik.repository.JpaReportRepository;
-import com.parik.repository.JpaServiceRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * Сервис для работы с отчётами.
@@ -30,10 +26,10 @@ public class JpaReportService {
     private JpaReportRepository reportRepository;
 
     @Autowired
-    private JpaAppointmentRepository appointmentRepository;
+    private JpaDailyRevenueRepository dailyRevenueRepository;
 
-    @Autowired
-    private JpaServiceRepository serviceRepository;
+    @Value("${parik.reports.max-range-days:366}")
+    private int maxRangeDays;
 
     /**
      * Получает все отчёты из базы данных.
@@ -70,45 +66,59 @@ public class JpaReportService {
      * 
      * @param report объект отчёта для создания
      * @return созданный отчёт
+     * @throws RuntimeException если отчёт за эту дату уже существует
      */
     public Report createReport(Report report) {
+        if (report.getReportDate() != null && reportRepository.existsByReportDate(report.getReportDate())) {
+            throw new RuntimeException("Отчёт за эту дату уже существует");
+        }
         return reportRepository.save(report);
     }
 
+    /**
+     * Получает ежедневные итоги выполненных записей за период.
+     * Итоги ведутся базой при каждом изменении выполненной записи,
+     * поэтому чтение не зависит от числа записей.
+     * 
+     * @param from начальная дата периода
+     * @param to конечная дата периода
+     * @return итоги дней, в которые были выполненные записи
+     */
+    public List<DailyRevenue> getDailyRevenue(LocalDate from, LocalDate to) {
+        return dailyRevenueRepository.findByDateBetweenOrderByDateAsc(from, to);
+    }
+
     /**
      * Генерирует отчёт за указанную дату.
-     * Подсчитывает количество уникальных клиентов и общий доход
-     * на основе выполненных записей за эту дату.
+     * Количество уникальных клиентов и общий доход по выполненным записям
+     * берутся из ежедневных итогов daily_revenue. Повторная генерация
+     * пересчитывает существующий отчёт за дату, а не создаёт новый.
      * 
      * @param date дата для генерации отчёта
-     * @return созданный отчёт с рассчитанными данными
+     * @return отчёт с рассчитанными данными
      */
     public Report generateReportForDate(LocalDate date) {
-        List<Appointment> appointments = appointmentRepository.findAll();
-        
-        List<Appointment> completedAppointments = appointments.stream()
-            .filter(a -> a.getDate().equals(date) && "Выполнена".equals(a.getStatus()))
-            .collect(Collectors.toList());
-        
-        Set<Integer> uniqueClients = completedAppointments.stream()
-            .map(Appointment::getClientId)
-            .collect(Collectors.toSet());
-        
-        BigDecimal totalIncome = BigDecimal.ZERO;
-        for (Appointment appointment : completedAppointments) {
-            Optional<Service> service = serviceRepository.findById(appointment.getServiceId());
-            if (service.isPresent()) {
-                totalIncome = totalIncome.add(service.get().getPrice());
-            }
+        return reportRepository.upsertDailyReports(date, date).get(0);
+    }
+
+    /**
+     * Генерирует отчёты за каждый день периода одним запросом (upsert по дате).
+     * Итоги берутся из daily_revenue; для дней без выполненных записей создаются
+     * нулевые отчёты, уже существующие отчёты пересчитываются.
+     * 
+     * @param from начальная дата периода
+     * @param to конечная дата периода (включительно)
+     * @return отчёты периода в порядке дат
+     * @throws RuntimeException если период задан неверно или слишком велик
+     */
+    public List<Report> generateReportsForRange(LocalDate from, LocalDate to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new RuntimeException("Неверный период");
         }
-        
-        Report report = new Report();
-        report.setReportDate(date);
-        report.setTotalClients(uniqueClients.size());
-        report.setTotalIncome(totalIncome);
-        report.setCreatedAt(LocalDateTime.now());
-        
-        return reportRepository.save(report);
+        if (ChronoUnit.DAYS.between(from, to) >= maxRangeDays) {
+            throw new RuntimeException("Период не может превышать " + maxRangeDays + " дн.");
+        }
+        return reportRepository.upsertDailyReports(from, to);
     }
 
     /**
@@ -117,13 +127,17 @@ public class JpaReportService {
      * @param id идентификатор отчёта для обновления
      * @param reportDetails объект с новыми данными отчёта
      * @return обновлённый отчёт
-     * @throws RuntimeException если отчёт не найден
+     * @throws RuntimeException если отчёт не найден или отчёт за новую дату уже существует
      */
     public Report updateReport(Integer id, Report reportDetails) {
         Report report = reportRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Отчёт не найден"));
         
         if (reportDetails.getReportDate() != null) {
+            if (!reportDetails.getReportDate().equals(report.getReportDate())
+                    && reportRepository.existsByReportDate(reportDetails.getReportDate())) {
+                throw new RuntimeException("Отчёт за эту дату уже существует");
+            }
             report.setReportDate(reportDetails.getReportDate());
         }
         if (reportDetails.getTotalClients() != null) {
@@ -3,7 +3,8 @@ package com.parik.service;
 import com.parik.model.Service;
 import com.parik.repository.JpaServiceRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Sort;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Slice;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -23,15 +24,41 @@ public class JpaServiceService {
     @Autowired
     private JpaServiceRepository serviceRepository;
 
+    @Autowired
+    private AppointmentSlotIndex slotIndex;
+
+    @Value("${parik.pagination.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${parik.pagination.max-size:200}")
+    private int maxPageSize;
+
+    /**
+     * Допустимые сортировки списка услуг; каждая обслуживается индексом (поле, id).
+     */
+    static final SortRegistry SORTS = new SortRegistry("name")
+        .register("name")
+        .register("price")
+        .register("duration")
+        .register("id");
+
     public List<Service> getAllServices() {
-        return serviceRepository.findAll(Sort.by("name"));
+        return serviceRepository.findAll(SORTS.resolve(null, null));
     }
 
-    public List<Service> getAllServices(String sortBy, String order) {
-        Sort sort = order.equalsIgnoreCase("desc") 
-            ? Sort.by(sortBy).descending() 
-            : Sort.by(sortBy).ascending();
-        return serviceRepository.findAll(sort);
+    /**
+     * Возвращает страницу услуг с сортировкой из {@link #SORTS}.
+     *
+     * @param sortBy ключ сортировки или null для сортировки по названию
+     * @param order asc или desc
+     * @param page номер страницы с нуля или null для первой
+     * @param size размер страницы или null для размера по умолчанию
+     * @return страница услуг
+     * @throws RuntimeException если сортировка не поддерживается
+     */
+    public Slice<Service> getAllServices(String sortBy, String order, Integer page, Integer size) {
+        int pageSize = size == null || size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+        return serviceRepository.findAllBy(SORTS.page(sortBy, order, page, pageSize));
     }
 
     public List<Service> searchServices(String query) {
@@ -66,7 +93,9 @@ public class JpaServiceService {
             service.setDuration(serviceDetails.getDuration());
         }
         
-        return serviceRepository.save(service);
+        Service saved = serviceRepository.save(service);
+        slotIndex.evictService(id);
+        return saved;
     }
 
     public void deleteService(Integer id) {
@@ -74,6 +103,7 @@ public class JpaServiceService {
             throw new RuntimeException("Услуга не найдена");
         }
         serviceRepository.deleteById(id);
+        slotIndex.evictService(id);
     }
 }
 
@@ -0,0 +1,99 @@
+package com.parik.service;
+
+import com.parik.model.Appointment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Полосатые блокировки дней мастеров.
+ * Сериализуют проверку занятости и сохранение записи для одной пары (мастер, дата),
+ * чтобы параллельные бронирования одного времени не доходили до базы одновременно.
+ * Общие для всех сервисов записей: JPA и JDBC реализации блокируют одни и те же дни.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Component
+public class MasterDayLocks {
+
+    /** Количество полос блокировок дней мастеров. */
+    private static final int LOCK_STRIPES = 64;
+
+    private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+
+    public MasterDayLocks() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Блокирует дни мастеров, затрагиваемые записями.
+     * Дни распределяются по фиксированному числу полос, поэтому записи к разным мастерам
+     * и на разные даты, как правило, не ждут друг друга. Полосы захватываются
+     * в порядке возрастания номера, что исключает взаимную блокировку.
+     *
+     * @param appointments записи, дни которых нужно заблокировать
+     * @return захваченные блокировки
+     */
+    public List<ReentrantLock> lock(Appointment... appointments) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (Appointment appointment : appointments) {
+            indexes.add(Math.floorMod(Objects.hash(appointment.getMasterId(), appointment.getDate()), LOCK_STRIPES));
+        }
+        List<ReentrantLock> locks = new ArrayList<>(indexes.size());
+        for (Integer index : indexes) {
+            stripes[index].lock();
+            locks.add(stripes[index]);
+        }
+        return locks;
+    }
+
+    /**
+     * Выполняет действие над записью, прочитанной под блокировкой её дня.
+     * Запись читается, блокируются её текущий день и день, на который она переносится,
+     * после чего запись читается повторно: действие получает состояние, которое
+     * не изменится до снятия блокировок. Если запись успели перенести на другой день
+     * до захвата блокировок, блокировки берутся заново.
+     *
+     * @param load чтение записи из базы
+     * @param moveTo день, на который переносится запись (мастер и дата), по её текущему состоянию
+     * @param action действие над записью
+     * @param <T> результат действия
+     * @return результат действия
+     */
+    public <T> T withLocked(Supplier<Appointment> load, UnaryOperator<Appointment> moveTo,
+                            Function<Appointment, T> action) {
+        while (true) {
+            Appointment stored = load.get();
+            List<ReentrantLock> locks = lock(stored, moveTo.apply(stored));
+            try {
+                Appointment current = load.get();
+                if (current.getMasterId().equals(stored.getMasterId()) && current.getDate().equals(stored.getDate())) {
+                    return action.apply(current);
+                }
+            } finally {
+                unlock(locks);
+            }
+        }
+    }
+
+    /**
+     * Снимает блокировки в обратном порядке.
+     *
+     * @param locks блокировки, полученные от {@link #lock(Appointment...)}
+     */
+    public static void unlock(List<ReentrantLock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.parik.service;
+
+import com.parik.model.Appointment;
+import com.parik.model.AppointmentStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Кэш расписаний мастеров по дням: записи мастера на дату в порядке времени.
+ * Заполняется при первом чтении дня и далее обновляется сервисом записей при каждом
+ * изменении (сквозная запись), поэтому повторное чтение базы не требуется.
+ * Размер ограничен ({@code parik.schedule-cache.max-size}, вытесняются давно не читанные дни),
+ * а каждый день хранится не дольше {@code parik.schedule-cache.ttl-minutes}: так кэш догоняет
+ * изменения, сделанные в обход сервиса. Счётчики попаданий, промахов и вытеснений
+ * помогают подобрать размер.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Component
+public class MasterScheduleCache {
+
+    private static final Comparator<Appointment> BY_TIME =
+        Comparator.comparing(Appointment::getTime).thenComparing(Appointment::getId);
+
+    @Value("${parik.schedule-cache.max-size:2000}")
+    private int maxSize;
+
+    @Value("${parik.schedule-cache.ttl-minutes:10}")
+    private long ttlMinutes;
+
+    /** Дни в порядке последнего чтения; доступ только под блокировкой на самой карте. */
+    private final LinkedHashMap<DayKey, Day> days = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<DayKey, Day> eldest) {
+            if (size() > maxSize) {
+                evictions++;
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    /** Номер последнего изменения: день, загруженный до изменения, в кэш не кладётся. */
+    private long writes;
+
+    /**
+     * Возвращает записи мастера на дату из кэша или загружает их.
+     *
+     * @param masterId идентификатор мастера
+     * @param date дата
+     * @param loader чтение записей дня из базы
+     * @return записи дня в порядке времени (неизменяемый список)
+     */
+    public List<Appointment> get(Integer masterId, LocalDate date, Supplier<List<Appointment>> loader) {
+        DayKey key = new DayKey(masterId, date);
+        long version;
+        synchronized (days) {
+            Day day = days.get(key);
+            if (day != null && day.expiresAt.isAfter(LocalDateTime.now())) {
+                hits++;
+                return List.copyOf(day.appointments);
+            }
+            if (day != null) {
+                days.remove(key);
+                expirations++;
+            }
+            misses++;
+            version = writes;
+        }
+        List<Appointment> loaded = new ArrayList<>();
+        for (Appointment appointment : loader.get()) {
+            loaded.add(copy(appointment));
+        }
+        loaded.sort(BY_TIME);
+        synchronized (days) {
+            if (writes == version) {
+                days.put(key, new Day(loaded, LocalDateTime.now().plusMinutes(ttlMinutes)));
+            }
+        }
+        return List.copyOf(loaded);
+    }
+
+    /**
+     * Отражает в кэше сохранённое изменение записи.
+     * Затрагиваются только дни, уже находящиеся в кэше.
+     *
+     * @param before запись до изменения (null для новой записи)
+     * @param after запись после изменения (null для удалённой записи)
+     */
+    public void replace(Appointment before, Appointment after) {
+        synchronized (days) {
+            writes++;
+            if (before != null) {
+                Day day = days.get(new DayKey(before.getMasterId(), before.getDate()));
+                if (day != null) {
+                    day.remove(before.getId());
+                }
+            }
+            if (after != null) {
+                Day day = days.get(new DayKey(after.getMasterId(), after.getDate()));
+                if (day != null) {
+                    day.remove(after.getId());
+                    day.appointments.add(copy(after));
+                    day.appointments.sort(BY_TIME);
+                }
+            }
+        }
+    }
+
+    /**
+     * Отражает в кэше массовое изменение статуса записи.
+     *
+     * @param masterId идентификатор мастера
+     * @param date дата записи
+     * @param id идентификатор записи
+     * @param status новый статус
+     */
+    public void updateStatus(Integer masterId, LocalDate date, Integer id, AppointmentStatus status) {
+        synchronized (days) {
+            writes++;
+            Day day = days.get(new DayKey(masterId, date));
+            if (day != null) {
+                for (int i = 0; i < day.appointments.size(); i++) {
+                    if (day.appointments.get(i).getId().equals(id)) {
+                        // Выданные ранее списки держат прежний объект, поэтому он заменяется копией
+                        Appointment updated = copy(day.appointments.get(i));
+                        updated.setStatus(status);
+                        updated.setUpdatedAt(LocalDateTime.now());
+                        day.appointments.set(i, updated);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Возвращает счётчики кэша.
+     *
+     * @return размер, попадания, промахи, доля попаданий, вытеснения по размеру и по сроку
+     */
+    public Map<String, Object> getStatistics() {
+        synchronized (days) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("size", days.size());
+            stats.put("maxSize", maxSize);
+            stats.put("hits", hits);
+            stats.put("misses", misses);
+            stats.put("hitRate", hits + misses > 0 ? (double) hits / (hits + misses) : 0.0);
+            stats.put("evictions", evictions);
+            stats.put("expirations", expirations);
+            return stats;
+        }
+    }
+
+    private static Appointment copy(Appointment appointment) {
+        Appointment copy = AppointmentSlotIndex.snapshot(appointment);
+        copy.setSeriesId(appointment.getSeriesId());
+        copy.setCreatedAt(appointment.getCreatedAt());
+        copy.setUpdatedAt(appointment.getUpdatedAt());
+        return copy;
+    }
+
+    private static final class Day {
+        private final List<Appointment> appointments;
+        private final LocalDateTime expiresAt;
+
+        private Day(List<Appointment> appointments, LocalDateTime expiresAt) {
+            this.appointments = appointments;
+            this.expiresAt = expiresAt;
+        }
+
+        private void remove(Integer id) {
+            appointments.removeIf(appointment -> Objects.equals(appointment.getId(), id));
+        }
+    }
+
+    private static final class DayKey {
+        private final Integer masterId;
+        private final LocalDate date;
+
+        private DayKey(Integer masterId, LocalDate date) {
+            this.masterId = masterId;
+            this.date = date;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof DayKey)) {
+                return false;
+            }
+            DayKey key = (DayKey) other;
+            return Objects.equals(masterId, key.masterId) && Objects.equals(date, key.date);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(masterId, date);
+        }
+    }
+}
@@ -1,19 +1,12 @@
 package com.parik.service;
 
-import com.parik.model.Appointment;
 import com.parik.model.Report;
-import com.parik.model.Service;
-import com.parik.repository.AppointmentRepository;
 import com.parik.repository.ReportRepository;
-import com.parik.repository.ServiceRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 @org.springframework.stereotype.Service
 public class ReportService {
@@ -21,12 +14,6 @@ public class ReportService {
     @Autowired
     private ReportRepository reportRepository;
 
-    @Autowired
-    private AppointmentRepository appointmentRepository;
-
-    @Autowired
-    private ServiceRepository serviceRepository;
-
     public List<Report> getAllReports() {
         return reportRepository.findAll();
     }
@@ -40,34 +27,15 @@ public class ReportService {
     }
 
     public Report createReport(Report report) {
+        if (report.getReportDate() != null && reportRepository.existsByDate(report.getReportDate())) {
+            throw new RuntimeException("Отчёт за эту дату уже существует");
+        }
         return reportRepository.save(report);
     }
 
     public Report generateReportForDate(LocalDate date) {
-        List<Appointment> appointments = appointmentRepository.findAll();
-        
-        List<Appointment> completedAppointments = appointments.stream()
-            .filter(a -> a.getDate().equals(date) && "Выполнена".equals(a.getStatus()))
-            .collect(Collectors.toList());
-        
-        Set<Integer> uniqueClients = completedAppointments.stream()
-            .map(Appointment::getClientId)
-            .collect(Collectors.toSet());
-        
-        BigDecimal totalIncome = BigDecimal.ZERO;
-        for (Appointment appointment : completedAppointments) {
-            Optional<Service> service = serviceRepository.findById(appointment.getServiceId());
-            if (service.isPresent()) {
-                totalIncome = totalIncome.add(service.get().getPrice());
-            }
-        }
-        
-        Report report = new Report();
-        report.setReportDate(date);
-        report.setTotalClients(uniqueClients.size());
-        report.setTotalIncome(totalIncome);
-        
-        return reportRepository.save(report);
+        // Итоги дня ведутся в daily_revenue; повторная генерация пересчитывает отчёт за дату
+        return reportRepository.upsertDailyReports(date, date).get(0);
     }
 
     public Report updateReport(Integer id, Report reportDetails) {
@@ -75,6 +43,10 @@ public class ReportService {
             .orElseThrow(() -> new RuntimeException("Отчёт не найден"));
         
         if (reportDetails.getReportDate() != null) {
+            if (!reportDetails.getReportDate().equals(report.getReportDate())
+                    && reportRepository.existsByDate(reportDetails.getReportDate())) {
+                throw new RuntimeException("Отчёт за эту дату уже существует");
+            }
             report.setReportDate(reportDetails.getReportDate());
         }
         if (reportDetails.getTotalClients() != null) {
@@ -14,6 +14,9 @@ public class ServiceService {
     @Autowired
     private ServiceRepository serviceRepository;
 
+    @Autowired
+    private AppointmentSlotIndex slotIndex;
+
     public List<Service> getAllServices() {
         return serviceRepository.findAll();
     }
@@ -44,7 +47,9 @@ public class ServiceService {
             service.setDuration(serviceDetails.getDuration());
         }
         
-        return serviceRepository.save(service);
+        Service saved = serviceRepository.save(service);
+        slotIndex.evictService(id);
+        return saved;
     }
 
     public void deleteService(Integer id) {
@@ -52,6 +57,7 @@ public class ServiceService {
             throw new RuntimeException("Услуга не найдена");
         }
         serviceRepository.deleteById(id);
+        slotIndex.evictService(id);
     }
 }
 
@@ -0,0 +1,94 @@
+package com.parik.service;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Реестр допустимых сортировок списка сущностей.
+ * Публичный ключ сортировки из запроса отображается на упорядочение по полям,
+ * для которого в базе есть индекс; последним полем всегда добавляется id, поэтому
+ * строки с равными значениями идут в одном и том же порядке на всех страницах.
+ * Неизвестный ключ или порядок отклоняются до обращения к базе.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+public class SortRegistry {
+
+    private static final String TIE_BREAKER = "id";
+
+    private final String defaultKey;
+    private final Map<String, List<String>> orderings = new LinkedHashMap<>();
+
+    /**
+     * @param defaultKey ключ, используемый, когда сортировка не указана
+     */
+    public SortRegistry(String defaultKey) {
+        this.defaultKey = defaultKey;
+    }
+
+    /**
+     * Регистрирует ключ сортировки.
+     *
+     * @param key публичный ключ сортировки
+     * @param properties поля сущности в порядке индекса; без полей - сортировка по самому ключу
+     * @return этот реестр
+     */
+    public SortRegistry register(String key, String... properties) {
+        List<String> fields = new ArrayList<>(properties.length > 0 ? Arrays.asList(properties) : List.of(key));
+        if (!fields.contains(TIE_BREAKER)) {
+            fields.add(TIE_BREAKER);
+        }
+        orderings.put(key, List.copyOf(fields));
+        return this;
+    }
+
+    /**
+     * Возвращает сортировку для ключа и порядка из запроса.
+     *
+     * @param key ключ сортировки или null для сортировки по умолчанию
+     * @param order asc, desc или null для asc
+     * @return сортировка с id последним полем
+     * @throws RuntimeException если ключ или порядок не поддерживаются
+     */
+    public Sort resolve(String key, String order) {
+        List<String> fields = orderings.get(key != null ? key : defaultKey);
+        if (fields == null) {
+            throw new RuntimeException("Сортировка по полю «" + key + "» не поддерживается. "
+                + "Допустимые поля: " + String.join(", ", orderings.keySet()));
+        }
+        Sort.Direction direction;
+        if (order == null || order.equalsIgnoreCase("asc")) {
+            direction = Sort.Direction.ASC;
+        } else if (order.equalsIgnoreCase("desc")) {
+            direction = Sort.Direction.DESC;
+        } else {
+            throw new RuntimeException("Неверный порядок сортировки: " + order);
+        }
+        return Sort.by(direction, fields.toArray(new String[0]));
+    }
+
+    /**
+     * Возвращает запрос страницы с сортировкой для ключа и порядка из запроса.
+     *
+     * @param key ключ сортировки или null для сортировки по умолчанию
+     * @param order asc, desc или null для asc
+     * @param page номер страницы с нуля или null для первой
+     * @param size размер страницы
+     * @return запрос страницы
+     * @throws RuntimeException если ключ, порядок или номер страницы неверны
+     */
+    public Pageable page(String key, String order, Integer page, int size) {
+        if (page != null && page < 0) {
+            throw new RuntimeException("Неверный номер страницы: " + page);
+        }
+        return PageRequest.of(page != null ? page : 0, size, resolve(key, order));
+    }
+}
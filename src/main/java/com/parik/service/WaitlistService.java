@@ -0,0 +1,272 @@
+package com.parik.service;
+
+import com.parik.model.Appointment;
+import com.parik.model.WaitlistEntry;
+import com.parik.model.WaitlistStatus;
+import com.parik.repository.JpaAppointmentRepository;
+import com.parik.repository.JpaWaitlistRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Сервис листа ожидания.
+ * Регистрирует заявки клиентов и при отмене записи подбирает для освободившегося
+ * времени первую подходящую заявку к тому же мастеру на ту же дату.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Service
+public class WaitlistService {
+
+    @Autowired
+    private JpaWaitlistRepository waitlistRepository;
+
+    @Autowired
+    private JpaAppointmentRepository appointmentRepository;
+
+    @Autowired
+    private AppointmentAvailabilityService availabilityService;
+
+    @Autowired
+    private AppointmentSlotIndex slotIndex;
+
+    @Autowired
+    private WorkingHoursService workingHours;
+
+    @Value("${parik.waitlist.offer-ttl-minutes:30}")
+    private int offerTtlMinutes;
+
+    public List<WaitlistEntry> getEntriesByClientId(Integer clientId) {
+        return waitlistRepository.findByClientIdOrderByCreatedAtDesc(clientId);
+    }
+
+    public List<WaitlistEntry> getWaitingEntries(Integer masterId, LocalDate date) {
+        return waitlistRepository.findByMasterIdAndDateAndStatusOrderByCreatedAtAscIdAsc(
+            masterId, date, WaitlistStatus.WAITING);
+    }
+
+    public Optional<WaitlistEntry> getEntryById(Integer id) {
+        return waitlistRepository.findById(id);
+    }
+
+    /**
+     * Регистрирует заявку в листе ожидания.
+     *
+     * @param entry заявка: клиент, мастер, услуга, дата и интервал времени
+     * @return сохранённая заявка
+     * @throws RuntimeException если заявка заполнена неверно
+     */
+    public WaitlistEntry register(WaitlistEntry entry) {
+        if (entry.getClientId() == null || entry.getMasterId() == null || entry.getServiceId() == null
+                || entry.getDate() == null || entry.getWindowStart() == null || entry.getWindowEnd() == null) {
+            throw new RuntimeException("Не заполнены обязательные поля заявки");
+        }
+        if (entry.getDate().isBefore(LocalDate.now())) {
+            throw new RuntimeException("Дата заявки уже прошла");
+        }
+        int windowMinutes = AppointmentSlotIndex.minuteOf(entry.getWindowEnd())
+            - AppointmentSlotIndex.minuteOf(entry.getWindowStart());
+        if (windowMinutes < slotIndex.durationOf(entry.getServiceId())) {
+            throw new RuntimeException("Интервал времени короче длительности услуги");
+        }
+        entry.setId(null);
+        entry.setStatus(WaitlistStatus.WAITING);
+        entry.setOfferedTime(null);
+        entry.setOfferExpiresAt(null);
+        entry.setAppointmentId(null);
+        entry.setCreatedAt(LocalDateTime.now());
+        return waitlistRepository.save(entry);
+    }
+
+    /**
+     * Отзывает заявку клиента.
+     *
+     * @param id идентификатор заявки
+     * @return отозванная заявка
+     * @throws RuntimeException если заявка не найдена или по ней уже создана запись
+     */
+    public WaitlistEntry withdraw(Integer id) {
+        WaitlistEntry entry = waitlistRepository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Заявка не найдена"));
+        if (entry.getStatus() == WaitlistStatus.BOOKED) {
+            throw new RuntimeException("По заявке уже создана запись");
+        }
+        entry.setStatus(WaitlistStatus.WITHDRAWN);
+        return waitlistRepository.save(entry);
+    }
+
+    /**
+     * Подбирает заявку для времени, освободившегося после отмены записи.
+     * Вызывается в транзакции отмены.
+     *
+     * @param cancelled отменённая запись
+     * @return первая по очереди заявка, чья услуга помещается в промежуток и в интервал
+     *         заявки, и время начала для неё; пусто, если подходящей заявки нет
+     */
+    public Optional<Match> matchFreedSlot(Appointment cancelled) {
+        return matchFreedSlot(cancelled.getMasterId(), cancelled.getDate(), cancelled.getTime());
+    }
+
+    /**
+     * Подбирает заявку для свободного времени мастера.
+     * Ожидающие заявки к мастеру на дату читаются по индексу (master_id, date)
+     * и блокируются до конца транзакции, а свободный промежуток вокруг указанного
+     * времени вычисляется по текущей занятости дня.
+     *
+     * @param masterId идентификатор мастера
+     * @param date дата
+     * @param time время внутри освободившегося промежутка
+     * @return первая по очереди заявка, чья услуга помещается в промежуток и в интервал
+     *         заявки, и время начала для неё; пусто, если подходящей заявки нет
+     */
+    public Optional<Match> matchFreedSlot(Integer masterId, LocalDate date, LocalTime time) {
+        if (date.isBefore(LocalDate.now())) {
+            return Optional.empty();
+        }
+        int[] gap = freeGapAround(masterId, date, AppointmentSlotIndex.minuteOf(time));
+        if (gap == null) {
+            return Optional.empty();
+        }
+        for (WaitlistEntry entry : waitlistRepository.findWaitingForUpdate(masterId, date)) {
+            int start = Math.max(gap[0], AppointmentSlotIndex.minuteOf(entry.getWindowStart()));
+            int end = Math.min(gap[1], AppointmentSlotIndex.minuteOf(entry.getWindowEnd()));
+            if (start + slotIndex.durationOf(entry.getServiceId()) <= end) {
+                return Optional.of(new Match(entry, LocalTime.of(start / 60, start % 60)));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Предлагает заявке подобранное время.
+     *
+     * @param match подобранная заявка и время
+     */
+    public void offer(Match match) {
+        WaitlistEntry entry = match.getEntry();
+        entry.setStatus(WaitlistStatus.OFFERED);
+        entry.setOfferExpiresAt(LocalDateTime.now().plusMinutes(offerTtlMinutes));
+        entry.setOfferedTime(match.getTime());
+        waitlistRepository.save(entry);
+    }
+
+    /**
+     * Возвращает заявки, срок ответа на предложение по которым истёк.
+     *
+     * @return заявки с просроченным предложением
+     */
+    public List<WaitlistEntry> findExpiredOffers() {
+        return waitlistRepository.findExpiredOffers(LocalDateTime.now());
+    }
+
+    /**
+     * Снимает просроченное предложение: заявка переходит в состояние EXPIRED.
+     * Вызывается под блокировкой дня мастера; состояние заявки перечитывается,
+     * поэтому предложение, принятое клиентом за это время, не снимается.
+     *
+     * @param id идентификатор заявки
+     * @return заявка со снятым предложением; пусто, если предложение уже принято или ещё действует
+     */
+    public Optional<WaitlistEntry> expireOffer(Integer id) {
+        Optional<WaitlistEntry> found = waitlistRepository.findById(id)
+            .filter(entry -> entry.getStatus() == WaitlistStatus.OFFERED
+                && entry.getOfferExpiresAt().isBefore(LocalDateTime.now()));
+        found.ifPresent(entry -> {
+            entry.setStatus(WaitlistStatus.EXPIRED);
+            waitlistRepository.save(entry);
+        });
+        return found;
+    }
+
+    /**
+     * Возвращает заявку с действующим предложением времени.
+     * Просроченное предложение снимает {@code JpaAppointmentService.expireWaitlistOffers}.
+     *
+     * @param id идентификатор заявки
+     * @return заявка с предложением
+     * @throws RuntimeException если предложения нет или оно истекло
+     */
+    public WaitlistEntry getActiveOffer(Integer id) {
+        WaitlistEntry entry = waitlistRepository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Заявка не найдена"));
+        if (entry.getStatus() != WaitlistStatus.OFFERED) {
+            throw new RuntimeException("По заявке нет предложенного времени");
+        }
+        if (entry.getOfferExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new RuntimeException("Предложение истекло");
+        }
+        return entry;
+    }
+
+    /**
+     * Отмечает принятое предложение: по заявке создана запись.
+     *
+     * @param entry заявка
+     * @param booked созданная запись
+     */
+    public void markBooked(WaitlistEntry entry, Appointment booked) {
+        entry.setStatus(WaitlistStatus.BOOKED);
+        entry.setAppointmentId(booked.getId());
+        waitlistRepository.save(entry);
+    }
+
+    /**
+     * Возвращает заявку в очередь ожидания.
+     *
+     * @param entry заявка
+     */
+    public void reopen(WaitlistEntry entry) {
+        entry.setStatus(WaitlistStatus.WAITING);
+        entry.setOfferedTime(null);
+        entry.setOfferExpiresAt(null);
+        waitlistRepository.save(entry);
+    }
+
+    private int[] freeGapAround(Integer masterId, LocalDate date, int minute) {
+        List<int[]> busy = new ArrayList<>();
+        for (Object[] row : appointmentRepository.findBookedIntervals(masterId, date)) {
+            int start = AppointmentSlotIndex.minuteOf(AppointmentSlotIndex.toLocalTime(row[1]));
+            busy.add(new int[]{start, start + ((Number) row[2]).intValue()});
+        }
+        busy.sort(Comparator.comparingInt(interval -> interval[0]));
+        int point = date.equals(LocalDate.now())
+            ? Math.max(minute, AppointmentSlotIndex.minuteOf(LocalTime.now()) + 1) : minute;
+        for (int[] gap : availabilityService.freeIntervals(date, workingHours.openOn(masterId, date), busy)) {
+            if (gap[0] <= point && point < gap[1]) {
+                return gap;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Подобранная для освободившегося времени заявка.
+     */
+    public static final class Match {
+        private final WaitlistEntry entry;
+        private final LocalTime time;
+
+        Match(WaitlistEntry entry, LocalTime time) {
+            this.entry = entry;
+            this.time = time;
+        }
+
+        public WaitlistEntry getEntry() {
+            return entry;
+        }
+
+        public LocalTime getTime() {
+            return time;
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package com.parik.service;
+
+import com.parik.dto.WorkingIntervalDTO;
+import com.parik.model.MasterScheduleOverride;
+import com.parik.model.MasterWorkingHours;
+import com.parik.model.SalonClosure;
+import com.parik.repository.JpaMasterRepository;
+import com.parik.repository.JpaMasterScheduleOverrideRepository;
+import com.parik.repository.JpaMasterWorkingHoursRepository;
+import com.parik.repository.JpaSalonClosureRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сервис рабочего времени мастеров.
+ * Хранит недельные графики мастеров (списки интервалов по дням недели), исключения
+ * из графика на даты и дни закрытия салона, и вычисляет по ним действующие интервалы
+ * работы за период одним запросом. Мастер без графика работает в окно по умолчанию
+ * ({@code parik.booking.day-start} - {@code parik.booking.day-end}).
+ * Для проверки отдельных записей интервалы кешируются по дням: при промахе загружается
+ * сразу несколько дней вперёд, а любое изменение графиков сбрасывает кеш.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@Service
+public class WorkingHoursService {
+
+    /** Сколько дней загружается в кеш при промахе, начиная с запрошенного. */
+    private static final int PRELOAD_DAYS = 14;
+
+    private static final int MAX_DAYS = 10_000;
+
+    @Autowired
+    private JpaMasterWorkingHoursRepository workingHoursRepository;
+
+    @Autowired
+    private JpaMasterScheduleOverrideRepository overrideRepository;
+
+    @Autowired
+    private JpaSalonClosureRepository closureRepository;
+
+    @Autowired
+    private JpaMasterRepository masterRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${parik.booking.day-start:09:00}")
+    private String dayStart;
+
+    @Value("${parik.booking.day-end:21:00}")
+    private String dayEnd;
+
+    @Value("${parik.booking.max-range-days:31}")
+    private int maxRangeDays;
+
+    private final ConcurrentHashMap<DayKey, List<int[]>> days = new ConcurrentHashMap<>();
+
+    /** Номер изменения графиков: интервалы, загруженные до изменения, в кеш не кладутся. */
+    private final AtomicLong version = new AtomicLong();
+
+    public List<MasterWorkingHours> getTemplate(Integer masterId) {
+        return workingHoursRepository.findByMasterIdOrderByWeekdayAscStartTimeAsc(masterId);
+    }
+
+    /**
+     * Заменяет недельный график мастера.
+     * Пустой список удаляет график: мастер работает в окно по умолчанию.
+     *
+     * @param masterId идентификатор мастера
+     * @param hours интервалы графика
+     * @return сохранённый график
+     * @throws RuntimeException если мастер не найден или интервалы заданы неверно
+     */
+    public List<MasterWorkingHours> replaceTemplate(Integer masterId, List<MasterWorkingHours> hours) {
+        requireMaster(masterId);
+        Map<Integer, List<int[]>> byWeekday = new HashMap<>();
+        for (MasterWorkingHours interval : hours) {
+            if (interval.getWeekday() == null || interval.getWeekday() < 1 || interval.getWeekday() > 7) {
+                throw new RuntimeException("День недели должен быть от 1 (понедельник) до 7 (воскресенье)");
+            }
+            byWeekday.computeIfAbsent(interval.getWeekday(), d -> new ArrayList<>())
+                .add(minutes(interval.getStartTime(), interval.getEndTime()));
+            interval.setId(null);
+            interval.setMasterId(masterId);
+        }
+        byWeekday.values().forEach(WorkingHoursService::checkDisjoint);
+        List<MasterWorkingHours> saved = transactionTemplate.execute(status -> {
+            workingHoursRepository.deleteByMasterId(masterId);
+            return workingHoursRepository.saveAll(hours);
+        });
+        clearCache();
+        saved.sort(Comparator.comparing(MasterWorkingHours::getWeekday).thenComparing(MasterWorkingHours::getStartTime));
+        return saved;
+    }
+
+    public List<MasterScheduleOverride> getOverrides(Integer masterId, LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        return overrideRepository.findByMasterIdAndDateBetweenOrderByDateAscStartTimeAsc(masterId, from, to);
+    }
+
+    /**
+     * Задаёт исключение из графика мастера на дату: интервалы работы в этот день
+     * заменяют недельный график. Пустой список означает выходной.
+     *
+     * @param masterId идентификатор мастера
+     * @param date дата
+     * @param intervals интервалы работы в этот день
+     * @return сохранённые строки исключения
+     * @throws RuntimeException если мастер не найден или интервалы заданы неверно
+     */
+    public List<MasterScheduleOverride> setOverride(Integer masterId, LocalDate date, List<WorkingIntervalDTO> intervals) {
+        requireMaster(masterId);
+        List<MasterScheduleOverride> rows = new ArrayList<>();
+        List<int[]> checked = new ArrayList<>();
+        for (WorkingIntervalDTO interval : intervals != null ? intervals : List.<WorkingIntervalDTO>of()) {
+            checked.add(minutes(interval.getStart(), interval.getEnd()));
+            rows.add(override(masterId, date, interval.getStart(), interval.getEnd()));
+        }
+        checkDisjoint(checked);
+        if (rows.isEmpty()) {
+            rows.add(override(masterId, date, null, null));
+        }
+        List<MasterScheduleOverride> saved = transactionTemplate.execute(status -> {
+            overrideRepository.deleteByMasterIdAndDate(masterId, date);
+            return overrideRepository.saveAll(rows);
+        });
+        clearCache();
+        return saved;
+    }
+
+    /**
+     * Удаляет исключение мастера на дату: в этот день снова действует недельный график.
+     *
+     * @param masterId идентификатор мастера
+     * @param date дата
+     * @throws RuntimeException если исключения на дату нет
+     */
+    public void deleteOverride(Integer masterId, LocalDate date) {
+        Integer deleted = transactionTemplate.execute(status -> overrideRepository.deleteByMasterIdAndDate(masterId, date));
+        clearCache();
+        if (deleted == null || deleted == 0) {
+            throw new RuntimeException("Исключение из графика не найдено");
+        }
+    }
+
+    public List<SalonClosure> getClosures(LocalDate from, LocalDate to) {
+        return closureRepository.findByDateBetweenOrderByDateAsc(from, to);
+    }
+
+    /**
+     * Отмечает день закрытия салона.
+     *
+     * @param closure день закрытия
+     * @return сохранённый день закрытия
+     * @throws RuntimeException если дата не указана или день уже отмечен
+     */
+    public SalonClosure addClosure(SalonClosure closure) {
+        if (closure.getDate() == null) {
+            throw new RuntimeException("Дата не указана");
+        }
+        if (closureRepository.existsByDate(closure.getDate())) {
+            throw new RuntimeException("Салон уже закрыт в этот день");
+        }
+        closure.setId(null);
+        SalonClosure saved = closureRepository.save(closure);
+        clearCache();
+        return saved;
+    }
+
+    public void deleteClosure(Integer id) {
+        if (!closureRepository.existsById(id)) {
+            throw new RuntimeException("День закрытия не найден");
+        }
+        closureRepository.deleteById(id);
+        clearCache();
+    }
+
+    /**
+     * Возвращает действующие интервалы работы мастера за период.
+     *
+     * @param masterId идентификатор мастера
+     * @param from начальная дата периода
+     * @param to конечная дата периода (включительно)
+     * @return интервалы по дате и времени начала
+     * @throws RuntimeException если мастер не найден или период задан неверно
+     */
+    public List<WorkingIntervalDTO> getOpenIntervals(Integer masterId, LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        requireMaster(masterId);
+        List<WorkingIntervalDTO> result = new ArrayList<>();
+        openIntervals(masterId, from, to).entrySet().stream()
+            .sorted(Map.Entry.comparingByKey())
+            .forEach(day -> day.getValue().forEach(interval ->
+                result.add(new WorkingIntervalDTO(day.getKey(), toTime(interval[0]), toTime(interval[1])))));
+        return result;
+    }
+
+    /**
+     * Вычисляет интервалы работы всех мастеров за период одним запросом.
+     *
+     * @param from начальная дата периода
+     * @param to конечная дата периода (включительно)
+     * @return интервалы [начало, конец) в минутах по дате и мастеру, упорядоченные по началу;
+     *         дни без работы отсутствуют
+     */
+    public Map<LocalDate, Map<Integer, List<int[]>>> openIntervals(LocalDate from, LocalDate to) {
+        Map<LocalDate, Map<Integer, List<int[]>>> open = new HashMap<>();
+        for (Map.Entry<DayKey, List<int[]>> day : query(true, 0, from, to).entrySet()) {
+            open.computeIfAbsent(day.getKey().date, d -> new HashMap<>()).put(day.getKey().masterId, day.getValue());
+        }
+        return open;
+    }
+
+    /**
+     * Вычисляет интервалы работы мастера за период одним запросом и сохраняет их в кеше.
+     *
+     * @param masterId идентификатор мастера
+     * @param from начальная дата периода
+     * @param to конечная дата периода (включительно)
+     * @return интервалы [начало, конец) в минутах по дате, упорядоченные по началу;
+     *         дни без работы отсутствуют
+     */
+    public Map<LocalDate, List<int[]>> openIntervals(Integer masterId, LocalDate from, LocalDate to) {
+        long loadedAt = version.get();
+        Map<LocalDate, List<int[]>> open = new HashMap<>();
+        for (Map.Entry<DayKey, List<int[]>> day : query(false, masterId, from, to).entrySet()) {
+            open.put(day.getKey().date, day.getValue());
+        }
+        if (days.size() > MAX_DAYS) {
+            days.clear();
+        }
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            days.put(new DayKey(masterId, date), open.getOrDefault(date, List.of()));
+        }
+        if (version.get() != loadedAt) {
+            clearCache();
+        }
+        return open;
+    }
+
+    /**
+     * Проверяет, работает ли мастер весь интервал записи.
+     *
+     * @param masterId идентификатор мастера
+     * @param date дата записи
+     * @param time время начала
+     * @param duration длительность в минутах
+     * @return true, если интервал записи целиком лежит в одном интервале работы
+     */
+    public boolean isOpen(Integer masterId, LocalDate date, LocalTime time, int duration) {
+        int start = AppointmentSlotIndex.minuteOf(time);
+        return covers(openOn(masterId, date), start, start + duration);
+    }
+
+    /**
+     * Возвращает интервалы работы мастера на дату.
+     * Интервалы берутся из кеша; при промахе загружаются сразу {@value #PRELOAD_DAYS} дней.
+     *
+     * @param masterId идентификатор мастера
+     * @param date дата
+     * @return интервалы [начало, конец) в минутах, упорядоченные по началу; пустой список - выходной
+     */
+    public List<int[]> openOn(Integer masterId, LocalDate date) {
+        List<int[]> open = days.get(new DayKey(masterId, date));
+        if (open == null) {
+            open = openIntervals(masterId, date, date.plusDays(PRELOAD_DAYS - 1)).getOrDefault(date, List.of());
+        }
+        return open;
+    }
+
+    /**
+     * Проверяет, лежит ли интервал целиком в одном из интервалов работы.
+     *
+     * @param open интервалы работы дня или null
+     * @param start начало в минутах
+     * @param end конец в минутах
+     * @return true, если интервал покрыт
+     */
+    public static boolean covers(List<int[]> open, int start, int end) {
+        if (open == null) {
+            return false;
+        }
+        for (int[] interval : open) {
+            if (interval[0] <= start && end <= interval[1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Map<DayKey, List<int[]>> query(boolean allMasters, Integer masterId, LocalDate from, LocalDate to) {
+        Map<DayKey, List<int[]>> open = new HashMap<>();
+        for (Object[] row : workingHoursRepository.findOpenIntervals(allMasters, masterId, from, to,
+                LocalTime.parse(dayStart), LocalTime.parse(dayEnd))) {
+            DayKey key = new DayKey((Integer) row[0], AppointmentSlotIndex.toLocalDate(row[1]));
+            int start = AppointmentSlotIndex.minuteOf(AppointmentSlotIndex.toLocalTime(row[2]));
+            int end = AppointmentSlotIndex.minuteOf(AppointmentSlotIndex.toLocalTime(row[3]));
+            List<int[]> day = open.computeIfAbsent(key, k -> new ArrayList<>());
+            int[] last = day.isEmpty() ? null : day.get(day.size() - 1);
+            // Смежные интервалы объединяются, чтобы запись могла пересекать их границу
+            if (last != null && start <= last[1]) {
+                last[1] = Math.max(last[1], end);
+            } else {
+                day.add(new int[]{start, end});
+            }
+        }
+        return open;
+    }
+
+    private void clearCache() {
+        version.incrementAndGet();
+        days.clear();
+    }
+
+    private void requireMaster(Integer masterId) {
+        if (masterId == null || !masterRepository.existsById(masterId)) {
+            throw new RuntimeException("Мастер не найден");
+        }
+    }
+
+    private void checkRange(LocalDate from, LocalDate to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new RuntimeException("Неверный период");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxRangeDays) {
+            throw new RuntimeException("Период не может превышать " + maxRangeDays + " дн.");
+        }
+    }
+
+    private static MasterScheduleOverride override(Integer masterId, LocalDate date, LocalTime start, LocalTime end) {
+        MasterScheduleOverride override = new MasterScheduleOverride();
+        override.setMasterId(masterId);
+        override.setDate(date);
+        override.setStartTime(start);
+        override.setEndTime(end);
+        return override;
+    }
+
+    private static int[] minutes(LocalTime start, LocalTime end) {
+        if (start == null || end == null || !start.isBefore(end)) {
+            throw new RuntimeException("Начало интервала работы должно быть раньше конца");
+        }
+        return new int[]{AppointmentSlotIndex.minuteOf(start), AppointmentSlotIndex.minuteOf(end)};
+    }
+
+    private static void checkDisjoint(List<int[]> intervals) {
+        intervals.sort(Comparator.comparingInt(interval -> interval[0]));
+        for (int i = 1; i < intervals.size(); i++) {
+            if (intervals.get(i)[0] < intervals.get(i - 1)[1]) {
+                throw new RuntimeException("Интервалы работы пересекаются");
+            }
+        }
+    }
+
+    private static LocalTime toTime(int minute) {
+        return minute >= 24 * 60 ? LocalTime.MAX : LocalTime.of(minute / 60, minute % 60);
+    }
+
+    private static final class DayKey {
+        private final Integer masterId;
+        private final LocalDate date;
+
+        private DayKey(Integer masterId, LocalDate date) {
+            this.masterId = masterId;
+            this.date = date;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof DayKey)) {
+                return false;
+            }
+            DayKey key = (DayKey) other;
+            return Objects.equals(masterId, key.masterId) && Objects.equals(date, key.date);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(masterId, date);
+        }
+    }
+}
@@ -31,11 +31,11 @@ INSERT INTO services (name, description, price, duration) VALUES
 ('Укладка', 'Укладка волос с использованием профессиональных средств', 600.00, 30);
 
 -- Записи (примеры)
-INSERT INTO appointments (client_id, master_id, service_id, date, time, status) VALUES
-(4, 1, 1, CURRENT_DATE + INTERVAL '1 day', '10:00:00', 'Запланирована'),
-(4, 1, 4, CURRENT_DATE + INTERVAL '1 day', '10:30:00', 'Запланирована'),
-(5, 2, 2, CURRENT_DATE + INTERVAL '2 days', '14:00:00', 'Запланирована'),
-(5, 2, 3, CURRENT_DATE + INTERVAL '3 days', '11:00:00', 'Запланирована');
+INSERT INTO appointments (client_id, master_id, service_id, date, time, duration, status) VALUES
+(4, 1, 1, CURRENT_DATE + INTERVAL '1 day', '10:00:00', 30, 1),
+(4, 1, 4, CURRENT_DATE + INTERVAL '1 day', '10:30:00', 20, 1),
+(5, 2, 2, CURRENT_DATE + INTERVAL '2 days', '14:00:00', 45, 1),
+(5, 2, 3, CURRENT_DATE + INTERVAL '3 days', '11:00:00', 120, 1);
 
 -- Отчёты (примеры)
 INSERT INTO reports (report_date, total_clients, total_income) VALUES
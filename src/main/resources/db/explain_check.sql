@@ -0,0 +1,104 @@
+-- Отчёт о планах запросов к таблице записей.
+-- Заполняет таблицу тестовыми данными, выполняет EXPLAIN (ANALYZE, BUFFERS) для каждого
+-- запроса репозиториев JpaAppointmentRepository и AppointmentRepository и выводит время
+-- выполнения и число прочитанных блоков. Все изменения откатываются в конце скрипта.
+-- Отсутствие полного чтения appointments проверяет тест AppointmentQueryPlanTest (mvn test);
+-- новые запросы к appointments добавляются в оба списка.
+--
+-- Запуск: psql -d parik_db -v ON_ERROR_STOP=1 -f explain_check.sql
+-- Требуется база, созданная schema.sql и заполненная data.sql.
+
+BEGIN;
+
+-- Секции на весь период тестовых данных, чтобы строки не попали в appointments_default
+SELECT ensure_appointment_partitions(CURRENT_DATE - 1000, CURRENT_DATE + 1000);
+
+-- Тестовые данные: по 8 записей в день на каждого мастера за 2000 дней
+INSERT INTO appointments (client_id, master_id, service_id, date, time, duration, status)
+SELECT (SELECT min(id) FROM users),
+       m.id,
+       (SELECT min(id) FROM services),
+       CURRENT_DATE - 1000 + d,
+       TIME '09:00' + h * INTERVAL '1 hour',
+       30,
+       ((d + h) % 3 + 1)::SMALLINT
+FROM masters m,
+     generate_series(0, 1999) AS d,
+     generate_series(0, 7) AS h
+WHERE NOT EXISTS (SELECT 1 FROM appointments a
+                  WHERE a.master_id = m.id AND a.date = CURRENT_DATE - 1000 + d);
+
+ANALYZE appointments;
+
+DO $$
+DECLARE
+    master INT := (SELECT min(id) FROM masters);
+    client INT := (SELECT min(id) FROM users);
+    day TEXT := format('DATE %L', CURRENT_DATE);
+    queries TEXT[] := ARRAY[
+        -- JpaAppointmentRepository
+        format('SELECT * FROM appointments WHERE client_id = %s ORDER BY date DESC, time DESC', client),
+        format('SELECT * FROM appointments WHERE master_id = %s ORDER BY date, time', master),
+        format('SELECT * FROM appointments WHERE master_id = %s AND date = %s ORDER BY time', master, day),
+        'SELECT count(*) FROM appointments WHERE status = 1',
+        format('SELECT * FROM ((SELECT * FROM appointments WHERE client_id = %s '
+            || 'AND (date, time, id) < (%s, TIME ''12:00'', 1000000) ORDER BY date DESC, time DESC, id DESC LIMIT 51) '
+            || 'UNION (SELECT * FROM appointments WHERE master_id = %s '
+            || 'AND (date, time, id) < (%s, TIME ''12:00'', 1000000) ORDER BY date DESC, time DESC, id DESC LIMIT 51)) a '
+            || 'ORDER BY date DESC, time DESC, id DESC LIMIT 51', client, day, client, day),
+        format('SELECT a.id, a.time, COALESCE(a.duration, s.duration) FROM appointments a JOIN services s ON s.id = a.service_id '
+            || 'WHERE a.master_id = %s AND a.date = %s AND a.status <> 3', master, day),
+        format('SELECT a.id, a.master_id, a.date, a.time, COALESCE(a.duration, s.duration) FROM appointments a '
+            || 'JOIN services s ON s.id = a.service_id WHERE a.status <> 3 AND a.date >= %s '
+            || 'ORDER BY a.master_id, a.date, a.time, a.id', day),
+        format('SELECT a.master_id, a.date, a.time, COALESCE(a.duration, s.duration) FROM appointments a '
+            || 'JOIN services s ON s.id = a.service_id WHERE a.status <> 3 AND a.date BETWEEN %s AND %s + 30 '
+            || 'ORDER BY a.date, a.master_id, a.time', day, day),
+        format('SELECT * FROM appointments WHERE (date, time, id) < (%s, TIME ''12:00'', 1000000) '
+            || 'ORDER BY date DESC, time DESC, id DESC LIMIT 51', day),
+        format('SELECT * FROM appointments WHERE client_id = %s AND (date, time, id) < (%s, TIME ''12:00'', 1000000) '
+            || 'ORDER BY date DESC, time DESC, id DESC LIMIT 51', client, day),
+        format('SELECT * FROM appointments WHERE master_id = %s AND (date, time, id) < (%s, TIME ''12:00'', 1000000) '
+            || 'ORDER BY date DESC, time DESC, id DESC LIMIT 51', master, day),
+        format('SELECT * FROM appointments WHERE status = 1 AND (date, time, id) < (%s, TIME ''12:00'', 1000000) '
+            || 'ORDER BY date DESC, time DESC, id DESC LIMIT 51', day),
+        'SELECT * FROM appointments ORDER BY date DESC, time DESC LIMIT 100',
+        -- Сортировки JpaAppointmentService.SORTS
+        'SELECT * FROM appointments ORDER BY date DESC, time DESC, id DESC LIMIT 50 OFFSET 100',
+        'SELECT * FROM appointments ORDER BY client_id, date, time, id LIMIT 50',
+        'SELECT * FROM appointments ORDER BY master_id DESC, date DESC, time DESC, id DESC LIMIT 50',
+        'SELECT * FROM appointments ORDER BY id LIMIT 50',
+        format('WITH clients AS (SELECT id, word_similarity(%1$L, username) AS rank FROM users '
+            || 'WHERE username ILIKE %2$L OR %1$L <%% username), '
+            || 'masters_found AS (SELECT id, word_similarity(%1$L, name) AS rank FROM masters '
+            || 'WHERE name ILIKE %2$L OR %1$L <%% name), '
+            || 'services_found AS (SELECT id, word_similarity(%1$L, name) AS rank FROM services '
+            || 'WHERE name ILIKE %2$L OR %1$L <%% name), '
+            || 'hits AS (SELECT a.id, a.date, c.rank FROM clients c JOIN appointments a ON a.client_id = c.id '
+            || 'UNION ALL SELECT a.id, a.date, m.rank FROM masters_found m JOIN appointments a ON a.master_id = m.id '
+            || 'UNION ALL SELECT a.id, a.date, s.rank FROM services_found s JOIN appointments a ON a.service_id = s.id), '
+            || 'ranked AS (SELECT id, date, max(rank) AS rank FROM hits GROUP BY id, date) '
+            || 'SELECT a.* FROM ranked r JOIN appointments a ON a.id = r.id AND a.date = r.date '
+            || 'ORDER BY r.rank DESC, a.date DESC, a.time DESC, a.id DESC LIMIT 51',
+            (SELECT username FROM users ORDER BY id LIMIT 1),
+            '%' || (SELECT username FROM users ORDER BY id LIMIT 1) || '%'),
+        -- AppointmentRepository (JDBC)
+        format('SELECT * FROM appointments WHERE master_id = %s AND date BETWEEN %s AND %s + 7 '
+            || 'AND status <> 3 ORDER BY date, time', master, day, day),
+        'SELECT * FROM appointments WHERE status = 3 ORDER BY date DESC, time DESC',
+        format('SELECT * FROM appointments WHERE service_id = %s LIMIT 1', (SELECT min(id) FROM services))
+    ];
+    query TEXT;
+    plan JSONB;
+BEGIN
+    FOREACH query IN ARRAY queries LOOP
+        EXECUTE 'EXPLAIN (ANALYZE, BUFFERS, FORMAT JSON) ' || query INTO plan;
+        RAISE NOTICE '% ms, % shared blocks: %',
+            plan -> 0 ->> 'Execution Time',
+            (plan -> 0 -> 'Plan' ->> 'Shared Hit Blocks')::INT + (plan -> 0 -> 'Plan' ->> 'Shared Read Blocks')::INT,
+            query;
+    END LOOP;
+END;
+$$;
+
+ROLLBACK;
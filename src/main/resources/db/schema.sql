@@ -1,6 +1,11 @@
 -- Создание базы данных (выполнить отдельно)
 -- CREATE DATABASE parik_db;
 
+-- Расширение для GiST-индексов по скалярным типам (нужно для ограничения на пересечение записей)
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+-- Триграммы для поиска записей по именам клиентов, мастеров и названиям услуг
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
 -- Создание таблицы пользователей
 CREATE TABLE IF NOT EXISTS users (
     id SERIAL PRIMARY KEY,
@@ -33,18 +38,62 @@ CREATE TABLE IF NOT EXISTS services (
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Создание таблицы серий повторяющихся записей
+-- Визиты серии создаются в appointments только до горизонта бронирования (materialized_until)
+CREATE TABLE IF NOT EXISTS appointment_series (
+    id SERIAL PRIMARY KEY,
+    client_id INT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    master_id INT NOT NULL REFERENCES masters(id) ON DELETE CASCADE,
+    service_id INT NOT NULL REFERENCES services(id) ON DELETE CASCADE,
+    anchor_date DATE NOT NULL,
+    time TIME NOT NULL,
+    interval_days INT NOT NULL CHECK (interval_days > 0),
+    end_date DATE CHECK (end_date >= anchor_date),
+    materialized_until DATE NOT NULL,
+    active BOOLEAN NOT NULL DEFAULT TRUE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
 -- Создание таблицы записей
+-- Таблица секционирована по месяцам даты записи (см. ensure_appointment_partitions),
+-- поэтому первичный ключ включает date
 CREATE TABLE IF NOT EXISTS appointments (
-    id SERIAL PRIMARY KEY,
+    id SERIAL,
     client_id INT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
     master_id INT NOT NULL REFERENCES masters(id) ON DELETE CASCADE,
     service_id INT NOT NULL REFERENCES services(id) ON DELETE CASCADE,
     date DATE NOT NULL,
     time TIME NOT NULL,
-    status VARCHAR(20) NOT NULL DEFAULT 'Запланирована' 
-        CHECK (status IN ('Запланирована', 'Отменена', 'Выполнена')),
+    duration INT NOT NULL CHECK (duration > 0),
+    -- Цена услуги на момент бронирования; NULL только у старых строк до заполнения
+    -- (см. AppointmentPriceBackfillService)
+    price DECIMAL(10,2) CHECK (price >= 0),
+    -- 1 - Запланирована, 2 - Выполнена, 3 - Отменена, 4 - Не явился (см. AppointmentStatus)
+    status SMALLINT NOT NULL DEFAULT 1 CHECK (status IN (1, 2, 3, 4)),
+    series_id INT REFERENCES appointment_series(id) ON DELETE SET NULL,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, date)
+) PARTITION BY RANGE (date);
+
+-- Создание таблицы листа ожидания
+CREATE TABLE IF NOT EXISTS waitlist_entries (
+    id SERIAL PRIMARY KEY,
+    client_id INT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    master_id INT NOT NULL REFERENCES masters(id) ON DELETE CASCADE,
+    service_id INT NOT NULL REFERENCES services(id) ON DELETE CASCADE,
+    date DATE NOT NULL,
+    window_start TIME NOT NULL,
+    window_end TIME NOT NULL,
+    auto_book BOOLEAN NOT NULL DEFAULT FALSE,
+    status VARCHAR(10) NOT NULL DEFAULT 'WAITING'
+        CHECK (status IN ('WAITING', 'OFFERED', 'BOOKED', 'WITHDRAWN', 'EXPIRED')),
+    offered_time TIME,
+    offer_expires_at TIMESTAMP,
+    -- Без внешнего ключа: в секционированной appointments уникален только ключ (id, date)
+    appointment_id INT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CHECK (window_end > window_start)
 );
 
 -- Создание таблицы отчётов
@@ -56,26 +105,558 @@ CREATE TABLE IF NOT EXISTS reports (
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Создание таблицы запусков очистки просроченных записей (AppointmentSweepService)
+CREATE TABLE IF NOT EXISTS appointment_sweep_runs (
+    id SERIAL PRIMARY KEY,
+    started_at TIMESTAMP NOT NULL,
+    finished_at TIMESTAMP,
+    cutoff_date DATE NOT NULL,
+    target_status SMALLINT NOT NULL,
+    chunks INT NOT NULL DEFAULT 0,
+    swept INT NOT NULL DEFAULT 0,
+    error VARCHAR(500)
+);
+
+-- Создание таблицы ключей идемпотентности (заголовок Idempotency-Key, IdempotencyService)
+-- Пока запрос выполняется, status_code пуст; после выполнения хранится ответ для повторов
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    idem_key VARCHAR(100) NOT NULL,
+    scope VARCHAR(500) NOT NULL,
+    request_hash CHAR(64) NOT NULL,
+    status_code INT,
+    content_type VARCHAR(100),
+    response_body BYTEA,
+    created_at TIMESTAMP NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (idem_key, scope)
+);
+
+-- Создание таблиц рабочего времени мастеров (WorkingHoursService)
+-- Недельный график: интервалы работы по дням недели ISO (1 - понедельник, 7 - воскресенье)
+CREATE TABLE IF NOT EXISTS master_working_hours (
+    id SERIAL PRIMARY KEY,
+    master_id INT NOT NULL REFERENCES masters(id) ON DELETE CASCADE,
+    weekday SMALLINT NOT NULL CHECK (weekday BETWEEN 1 AND 7),
+    start_time TIME NOT NULL,
+    end_time TIME NOT NULL,
+    CHECK (end_time > start_time)
+);
+
+-- Исключения из графика на дату заменяют интервалы недельного графика; строка без времени - выходной
+CREATE TABLE IF NOT EXISTS master_schedule_overrides (
+    id SERIAL PRIMARY KEY,
+    master_id INT NOT NULL REFERENCES masters(id) ON DELETE CASCADE,
+    date DATE NOT NULL,
+    start_time TIME,
+    end_time TIME,
+    CHECK ((start_time IS NULL AND end_time IS NULL) OR end_time > start_time)
+);
+
+-- Дни, когда салон закрыт для всех мастеров
+CREATE TABLE IF NOT EXISTS salon_closures (
+    id SERIAL PRIMARY KEY,
+    date DATE NOT NULL UNIQUE,
+    reason VARCHAR(200)
+);
+
+-- Ежедневные итоги выполненных записей: отчёты читают их вместо appointments.
+-- Поддерживаются триггером appointments_daily_revenue в транзакции изменения записи
+CREATE TABLE IF NOT EXISTS daily_revenue (
+    date DATE PRIMARY KEY,
+    completed_count INT NOT NULL DEFAULT 0 CHECK (completed_count >= 0),
+    distinct_clients INT NOT NULL DEFAULT 0 CHECK (distinct_clients >= 0),
+    income DECIMAL(12,2) NOT NULL DEFAULT 0.00
+);
+
+-- Число выполненных записей клиента за день: по нему ведётся daily_revenue.distinct_clients.
+-- Без внешнего ключа: строки удаляются триггером при удалении записей клиента
+CREATE TABLE IF NOT EXISTS daily_client_visits (
+    date DATE NOT NULL,
+    client_id INT NOT NULL,
+    visits INT NOT NULL CHECK (visits >= 0),
+    PRIMARY KEY (date, client_id)
+);
+
+-- Куб выручки: визиты и доход по выполненным записям в разрезе дня, мастера и услуги.
+-- Поддерживается триггером appointments_revenue_cube; читается API аналитики (RevenueCubeRepository)
+CREATE TABLE IF NOT EXISTS revenue_cube (
+    date DATE NOT NULL,
+    master_id INT NOT NULL,
+    service_id INT NOT NULL,
+    visits INT NOT NULL DEFAULT 0 CHECK (visits >= 0),
+    income DECIMAL(12,2) NOT NULL DEFAULT 0.00,
+    PRIMARY KEY (date, master_id, service_id)
+);
+
 -- Создание индексов для оптимизации запросов
 CREATE INDEX IF NOT EXISTS idx_users_username ON users(username);
 CREATE INDEX IF NOT EXISTS idx_users_email ON users(email);
 CREATE INDEX IF NOT EXISTS idx_masters_user_id ON masters(user_id);
-CREATE INDEX IF NOT EXISTS idx_appointments_client_id ON appointments(client_id);
-CREATE INDEX IF NOT EXISTS idx_appointments_master_id ON appointments(master_id);
-CREATE INDEX IF NOT EXISTS idx_appointments_date ON appointments(date);
-CREATE INDEX IF NOT EXISTS idx_appointments_status ON appointments(status);
+-- Поиск записей по подстроке и по сходству слов (ILIKE, <%) в именах
+CREATE INDEX IF NOT EXISTS idx_users_username_trgm ON users USING gin (username gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_masters_name_trgm ON masters USING gin (name gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_services_name_trgm ON services USING gin (name gin_trgm_ops);
+-- Сортировки списка услуг (JpaServiceService.SORTS) с id для стабильного порядка
+CREATE INDEX IF NOT EXISTS idx_services_name_id ON services(name, id);
+CREATE INDEX IF NOT EXISTS idx_services_price_id ON services(price, id);
+CREATE INDEX IF NOT EXISTS idx_services_duration_id ON services(duration, id);
+-- Подбор заявки при отмене записи читает только ожидающие заявки мастера на дату
+CREATE INDEX IF NOT EXISTS idx_waitlist_waiting ON waitlist_entries(master_id, date, created_at) WHERE status = 'WAITING';
+CREATE INDEX IF NOT EXISTS idx_waitlist_client_id ON waitlist_entries(client_id);
+-- Снятие просроченных предложений (JpaWaitlistRepository.findExpiredOffers)
+CREATE INDEX IF NOT EXISTS idx_waitlist_offer_expires ON waitlist_entries(offer_expires_at) WHERE status = 'OFFERED';
+-- Миграция существующих баз: состояние EXPIRED для заявок с просроченным предложением
+ALTER TABLE waitlist_entries DROP CONSTRAINT IF EXISTS waitlist_entries_status_check;
+ALTER TABLE waitlist_entries ADD CONSTRAINT waitlist_entries_status_check
+    CHECK (status IN ('WAITING', 'OFFERED', 'BOOKED', 'WITHDRAWN', 'EXPIRED'));
+-- Срезы куба выручки по мастеру или услуге за период
+CREATE INDEX IF NOT EXISTS idx_revenue_cube_master ON revenue_cube(master_id, date);
+CREATE INDEX IF NOT EXISTS idx_revenue_cube_service ON revenue_cube(service_id, date);
+-- Один отчёт на дату: ключ upsert при генерации отчётов и индекс для выборки за период.
+-- Миграция существующих баз: из повторных отчётов за дату остаётся последний
+DO $$
+BEGIN
+    IF to_regclass('uq_reports_report_date') IS NULL THEN
+        DELETE FROM reports r USING reports newer
+            WHERE newer.report_date = r.report_date AND newer.id > r.id;
+    END IF;
+END;
+$$;
+CREATE UNIQUE INDEX IF NOT EXISTS uq_reports_report_date ON reports(report_date);
+DROP INDEX IF EXISTS idx_reports_report_date;
+-- Очистка просроченных ключей идемпотентности
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_expires_at ON idempotency_keys(expires_at);
+-- Вычисление интервалов работы (JpaMasterWorkingHoursRepository.findOpenIntervals)
+CREATE INDEX IF NOT EXISTS idx_master_working_hours_master ON master_working_hours(master_id, weekday, start_time);
+CREATE INDEX IF NOT EXISTS idx_master_schedule_overrides_master ON master_schedule_overrides(master_id, date, start_time);
+
+-- Миграция существующих баз: одноколоночные индексы покрываются составными
+DROP INDEX IF EXISTS idx_appointments_client_id;
+DROP INDEX IF EXISTS idx_appointments_master_id;
+DROP INDEX IF EXISTS idx_appointments_date;
+DROP INDEX IF EXISTS idx_appointments_status;
+DROP INDEX IF EXISTS idx_appointments_status_keyset;
+
+-- Миграция существующих баз: длительность записи фиксируется при бронировании
+ALTER TABLE appointments ADD COLUMN IF NOT EXISTS duration INT;
+UPDATE appointments a SET duration = s.duration
+    FROM services s
+    WHERE s.id = a.service_id AND a.duration IS NULL;
+ALTER TABLE appointments ALTER COLUMN duration SET NOT NULL;
+
+-- Миграция существующих баз: цена записи фиксируется при бронировании.
+-- Старые строки заполняются порциями фоном (AppointmentPriceBackfillService);
+-- частичный индекс содержит только незаполненные строки и пустеет после заполнения.
+ALTER TABLE appointments ADD COLUMN IF NOT EXISTS price DECIMAL(10,2) CHECK (price >= 0);
+CREATE INDEX IF NOT EXISTS idx_appointments_price_missing ON appointments(date, id) WHERE price IS NULL;
+
+-- Миграция существующих баз: записи могут принадлежать серии
+ALTER TABLE appointments ADD COLUMN IF NOT EXISTS series_id INT REFERENCES appointment_series(id) ON DELETE SET NULL;
+-- Продление серий выбирает действующие серии, не созданные до горизонта
+CREATE INDEX IF NOT EXISTS idx_series_open ON appointment_series(materialized_until) WHERE active;
+
+-- Миграция существующих баз: текстовый статус заменяется числовым кодом
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'appointments' AND column_name = 'status'
+                 AND data_type = 'character varying') THEN
+        ALTER TABLE appointments DROP CONSTRAINT IF EXISTS appointments_no_overlap;
+        ALTER TABLE appointments DROP CONSTRAINT IF EXISTS appointments_status_check;
+        ALTER TABLE appointments ALTER COLUMN status DROP DEFAULT;
+        ALTER TABLE appointments ALTER COLUMN status TYPE SMALLINT USING CASE status
+            WHEN 'Запланирована' THEN 1
+            WHEN 'Выполнена' THEN 2
+            WHEN 'Отменена' THEN 3
+        END;
+        ALTER TABLE appointments ALTER COLUMN status SET DEFAULT 1;
+        ALTER TABLE appointments ADD CONSTRAINT appointments_status_check CHECK (status IN (1, 2, 3, 4));
+    END IF;
+END;
+$$;
+
+DROP INDEX IF EXISTS idx_appointments_active_master_date;
+
+-- Секционирование записей по месяцам даты.
+-- Текущие и будущие месяцы лежат в секциях appointments_pYYYY_MM, даты вне созданных секций -
+-- в appointments_default. Секции создаются заранее на горизонт бронирования
+-- (AppointmentPartitionService), а старые месяцы отсоединяются в appointments_archive,
+-- которую читают только списки записей с параметром includeArchived=true.
+
+-- Запрет пересечения интервалов неотменённых записей одного мастера.
+-- Последняя защита от двойной записи при одновременном бронировании.
+-- На секционированной таблице такое ограничение не объявить, поэтому оно добавляется
+-- в каждую секцию: запись укладывается в рабочий день, и пересекающиеся записи
+-- всегда попадают в одну секцию.
+-- Перед миграцией существующих данных проверьте пересечения: GET /api/appointments/overlaps
+CREATE OR REPLACE FUNCTION add_appointment_overlap_constraint(p_table TEXT)
+RETURNS VOID AS $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint
+                   WHERE conrelid = p_table::regclass AND conname = p_table || '_no_overlap') THEN
+        EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I EXCLUDE USING gist ('
+            || 'master_id WITH =, '
+            || 'tsrange(date + time, date + time + duration * INTERVAL ''1 minute'') WITH &&'
+            || ') WHERE (status <> 3)', p_table, p_table || '_no_overlap');
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Создаёт недостающие месячные секции записей с месяца p_from по месяц p_to включительно.
+-- Записи этих месяцев, уже попавшие в appointments_default, переносятся в новую секцию.
+-- Возвращает число созданных секций.
+CREATE OR REPLACE FUNCTION ensure_appointment_partitions(p_from DATE, p_to DATE)
+RETURNS INT AS $$
+DECLARE
+    v_month DATE := date_trunc('month', p_from)::date;
+    v_next DATE;
+    v_name TEXT;
+    v_created INT := 0;
+BEGIN
+    WHILE v_month <= p_to LOOP
+        v_next := (v_month + INTERVAL '1 month')::date;
+        v_name := 'appointments_p' || to_char(v_month, 'YYYY_MM');
+        IF to_regclass(v_name) IS NULL
+           AND to_regclass('appointments_archive_p' || to_char(v_month, 'YYYY_MM')) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I (LIKE appointments INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', v_name);
+            IF to_regclass('appointments_default') IS NOT NULL THEN
+                -- Перенос строк между секциями не меняет итогов daily_revenue и revenue_cube
+                PERFORM set_config('parik.rollup_paused', 'on', true);
+                EXECUTE format('WITH moved AS (DELETE FROM appointments_default '
+                    || 'WHERE date >= %L AND date < %L RETURNING *) '
+                    || 'INSERT INTO %I SELECT * FROM moved', v_month, v_next, v_name);
+                PERFORM set_config('parik.rollup_paused', 'off', true);
+            END IF;
+            EXECUTE format('ALTER TABLE appointments ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                v_name, v_month, v_next);
+            PERFORM add_appointment_overlap_constraint(v_name);
+            v_created := v_created + 1;
+        END IF;
+        v_month := v_next;
+    END LOOP;
+    RETURN v_created;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Миграция существующих баз: обычная таблица appointments заменяется секционированной.
+-- Строки копируются в секции от месяца самой ранней до месяца самой поздней записи,
+-- последовательность id переходит к новой таблице.
+DO $$
+DECLARE
+    v_index RECORD;
+    v_from DATE;
+    v_to DATE;
+BEGIN
+    IF (SELECT relkind FROM pg_class WHERE oid = to_regclass('appointments')) = 'r' THEN
+        ALTER TABLE waitlist_entries DROP CONSTRAINT IF EXISTS waitlist_entries_appointment_id_fkey;
+        ALTER TABLE appointments RENAME TO appointments_legacy;
+        ALTER TABLE appointments_legacy DROP CONSTRAINT IF EXISTS appointments_no_overlap;
+        ALTER TABLE appointments_legacy DROP CONSTRAINT IF EXISTS appointments_pkey;
+        -- Имена индексов освобождаются для индексов новой таблицы
+        FOR v_index IN SELECT indexrelid::regclass AS name FROM pg_index
+                       WHERE indrelid = 'appointments_legacy'::regclass LOOP
+            EXECUTE format('DROP INDEX %s', v_index.name);
+        END LOOP;
+        ALTER SEQUENCE appointments_id_seq OWNED BY NONE;
+        CREATE TABLE appointments (
+            LIKE appointments_legacy INCLUDING DEFAULTS INCLUDING CONSTRAINTS,
+            PRIMARY KEY (id, date),
+            FOREIGN KEY (client_id) REFERENCES users(id) ON DELETE CASCADE,
+            FOREIGN KEY (master_id) REFERENCES masters(id) ON DELETE CASCADE,
+            FOREIGN KEY (service_id) REFERENCES services(id) ON DELETE CASCADE,
+            FOREIGN KEY (series_id) REFERENCES appointment_series(id) ON DELETE SET NULL
+        ) PARTITION BY RANGE (date);
+        CREATE TABLE appointments_default PARTITION OF appointments DEFAULT;
+        SELECT min(date), max(date) INTO v_from, v_to FROM appointments_legacy;
+        IF v_from IS NOT NULL THEN
+            PERFORM ensure_appointment_partitions(v_from, v_to);
+        END IF;
+        INSERT INTO appointments SELECT * FROM appointments_legacy;
+        DROP TABLE appointments_legacy;
+        ALTER SEQUENCE appointments_id_seq OWNED BY appointments.id;
+    END IF;
+END;
+$$;
+
+CREATE TABLE IF NOT EXISTS appointments_default PARTITION OF appointments DEFAULT;
+SELECT add_appointment_overlap_constraint('appointments_default');
+-- Дальнейшие месяцы создаёт AppointmentPartitionService (parik.partitions.months-ahead)
+SELECT ensure_appointment_partitions(CURRENT_DATE, CURRENT_DATE + 90);
+
+-- Архив записей: отсоединённые месячные секции без копирования строк
+CREATE TABLE IF NOT EXISTS appointments_archive (
+    LIKE appointments INCLUDING CONSTRAINTS,
+    PRIMARY KEY (id, date)
+) PARTITION BY RANGE (date);
+-- Миграция существующих баз: колонки записей, добавленные после создания архива
+ALTER TABLE appointments_archive ADD COLUMN IF NOT EXISTS price DECIMAL(10,2) CHECK (price >= 0);
+CREATE INDEX IF NOT EXISTS idx_appointments_archive_client_keyset ON appointments_archive(client_id, date, time, id);
+CREATE INDEX IF NOT EXISTS idx_appointments_archive_master_keyset ON appointments_archive(master_id, date, time, id);
+CREATE INDEX IF NOT EXISTS idx_appointments_archive_keyset ON appointments_archive(date, time, id);
+
+-- Переносит в архив месячные секции, целиком лежащие раньше p_before.
+-- Секция отсоединяется от appointments и присоединяется к appointments_archive под именем
+-- appointments_archive_pYYYY_MM; строки не копируются, но на время отсоединения
+-- appointments блокируется. Возвращает число перенесённых секций.
+CREATE OR REPLACE FUNCTION archive_appointment_partitions(p_before DATE)
+RETURNS INT AS $$
+DECLARE
+    v_part RECORD;
+    v_archived INT := 0;
+BEGIN
+    FOR v_part IN
+        SELECT c.relname AS name, pg_get_expr(c.relpartbound, c.oid) AS bound
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'appointments'::regclass
+          AND c.relname ~ '^appointments_p[0-9]{4}_[0-9]{2}$'
+          AND to_date(substr(c.relname, 15), 'YYYY_MM') + INTERVAL '1 month' <= p_before
+        ORDER BY c.relname
+    LOOP
+        EXECUTE format('ALTER TABLE appointments DETACH PARTITION %I', v_part.name);
+        EXECUTE format('ALTER TABLE appointments_archive ATTACH PARTITION %I %s', v_part.name, v_part.bound);
+        EXECUTE format('ALTER TABLE %I RENAME TO %I',
+            v_part.name, 'appointments_archive_p' || substr(v_part.name, 15));
+        v_archived := v_archived + 1;
+    END LOOP;
+    RETURN v_archived;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Миграция существующих баз: статус «Не явился» (4).
+-- Секции хранят собственные копии ограничения статуса, поэтому оно пересоздаётся
+-- на таблице и во всех её секциях; в архиве - тоже, иначе секции с новым
+-- ограничением не присоединятся к нему.
+DO $$
+DECLARE
+    v_table TEXT;
+    v_part RECORD;
+BEGIN
+    FOREACH v_table IN ARRAY ARRAY['appointments', 'appointments_archive'] LOOP
+        IF NOT EXISTS (SELECT 1 FROM pg_constraint
+                       WHERE conrelid = v_table::regclass AND conname = 'appointments_status_check'
+                         AND pg_get_constraintdef(oid) LIKE '%4%') THEN
+            EXECUTE format('ALTER TABLE %I DROP CONSTRAINT IF EXISTS appointments_status_check', v_table);
+            FOR v_part IN SELECT inhrelid::regclass AS name FROM pg_inherits
+                          WHERE inhparent = v_table::regclass LOOP
+                EXECUTE format('ALTER TABLE %s DROP CONSTRAINT IF EXISTS appointments_status_check', v_part.name);
+            END LOOP;
+            EXECUTE format('ALTER TABLE %I ADD CONSTRAINT appointments_status_check '
+                || 'CHECK (status IN (1, 2, 3, 4))', v_table);
+        END IF;
+    END LOOP;
+END;
+$$;
+
+-- Индексы записей объявлены на секционированной таблице и создаются в каждой секции.
+-- Индексы по ключу (date, time, id) обслуживают постраничную выдачу списков записей
+CREATE INDEX IF NOT EXISTS idx_appointments_client_keyset ON appointments(client_id, date, time, id);
+CREATE INDEX IF NOT EXISTS idx_appointments_master_keyset ON appointments(master_id, date, time, id);
+CREATE INDEX IF NOT EXISTS idx_appointments_keyset ON appointments(date, time, id);
+-- Каскадное удаление услуги ищет её записи по service_id
+CREATE INDEX IF NOT EXISTS idx_appointments_service_id ON appointments(service_id);
+CREATE INDEX IF NOT EXISTS idx_appointments_series_id ON appointments(series_id, date) WHERE series_id IS NOT NULL;
+
+-- Частичные индексы по статусам вместо индекса по всей колонке status:
+-- запросы предстоящих и занятых интервалов читают только живые записи,
+-- а постраничная выдача по статусу - только строки своего статуса.
+-- Индекс занятых интервалов покрывающий: проверка пересечений и поиск свободного
+-- времени (id, time, duration) выполняются сканированием только индекса.
+-- Проверка планов запросов: AppointmentQueryPlanTest, отчёт - db/explain_check.sql
+CREATE INDEX IF NOT EXISTS idx_appointments_planned_master_date
+    ON appointments(master_id, date, time) WHERE status = 1;
+CREATE INDEX IF NOT EXISTS idx_appointments_active_intervals
+    ON appointments(master_id, date, time) INCLUDE (id, duration, service_id) WHERE status <> 3;
+-- Индекс запланированных записей по ключу обслуживает и очистку просроченных записей
+CREATE INDEX IF NOT EXISTS idx_appointments_planned_keyset ON appointments(date, time, id) WHERE status = 1;
+CREATE INDEX IF NOT EXISTS idx_appointments_completed_keyset ON appointments(date, time, id) WHERE status = 2;
+CREATE INDEX IF NOT EXISTS idx_appointments_cancelled_keyset ON appointments(date, time, id) WHERE status = 3;
 
 -- Триггер для обновления updated_at в appointments
+-- Служебные изменения строк (заполнение цены) выполняются с флагом parik.rollup_paused
+-- и изменением записи не считаются
 CREATE OR REPLACE FUNCTION update_updated_at_column()
 RETURNS TRIGGER AS $$
 BEGIN
+    IF current_setting('parik.rollup_paused', true) = 'on' THEN
+        RETURN NEW;
+    END IF;
     NEW.updated_at = CURRENT_TIMESTAMP;
     RETURN NEW;
 END;
 $$ language 'plpgsql';
 
-CREATE TRIGGER update_appointments_updated_at 
+DROP TRIGGER IF EXISTS update_appointments_updated_at ON appointments;
+CREATE TRIGGER update_appointments_updated_at
     BEFORE UPDATE ON appointments
     FOR EACH ROW
     EXECUTE FUNCTION update_updated_at_column();
 
+-- Ведение ежедневных итогов выполненных записей (daily_revenue).
+-- Выполненная запись добавляет к итогам своего дня единицу, клиента (если это его первая
+-- выполненная запись за день) и свою цену; снятие статуса, перенос, смена клиента,
+-- услуги или цены и удаление вычитают прежний вклад. Строки без зафиксированной цены
+-- (до заполнения) учитываются по текущей цене услуги. Отсоединение секций в архив строк
+-- не удаляет и итоги не меняет.
+DROP FUNCTION IF EXISTS apply_daily_revenue(DATE, INT, INT, INT);
+CREATE OR REPLACE FUNCTION apply_daily_revenue(p_date DATE, p_client INT, p_price DECIMAL, p_sign INT)
+RETURNS VOID AS $$
+DECLARE
+    v_visits INT;
+    v_clients INT;
+BEGIN
+    INSERT INTO daily_client_visits (date, client_id, visits) VALUES (p_date, p_client, GREATEST(p_sign, 0))
+        ON CONFLICT (date, client_id) DO UPDATE SET visits = daily_client_visits.visits + p_sign
+        RETURNING visits INTO v_visits;
+    v_clients := CASE
+        WHEN p_sign > 0 AND v_visits = 1 THEN 1
+        WHEN p_sign < 0 AND v_visits = 0 THEN -1
+        ELSE 0
+    END;
+    IF v_visits = 0 THEN
+        DELETE FROM daily_client_visits WHERE date = p_date AND client_id = p_client;
+    END IF;
+    INSERT INTO daily_revenue (date, completed_count, distinct_clients, income)
+        VALUES (p_date, GREATEST(p_sign, 0), GREATEST(v_clients, 0), GREATEST(p_sign, 0) * COALESCE(p_price, 0))
+        ON CONFLICT (date) DO UPDATE SET
+            completed_count = daily_revenue.completed_count + p_sign,
+            distinct_clients = daily_revenue.distinct_clients + v_clients,
+            income = daily_revenue.income + p_sign * COALESCE(p_price, 0);
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION appointments_daily_revenue()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF current_setting('parik.rollup_paused', true) = 'on' THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP = 'UPDATE' AND OLD.status = 2 AND NEW.status = 2
+       AND OLD.date = NEW.date AND OLD.client_id = NEW.client_id AND OLD.service_id = NEW.service_id
+       AND OLD.price IS NOT DISTINCT FROM NEW.price THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.status = 2 THEN
+        PERFORM apply_daily_revenue(OLD.date, OLD.client_id,
+            COALESCE(OLD.price, (SELECT price FROM services WHERE id = OLD.service_id)), -1);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.status = 2 THEN
+        PERFORM apply_daily_revenue(NEW.date, NEW.client_id,
+            COALESCE(NEW.price, (SELECT price FROM services WHERE id = NEW.service_id)), 1);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS appointments_daily_revenue ON appointments;
+CREATE TRIGGER appointments_daily_revenue
+    AFTER INSERT OR UPDATE OR DELETE ON appointments
+    FOR EACH ROW
+    EXECUTE FUNCTION appointments_daily_revenue();
+
+-- Миграция существующих баз: итоги заполняются по уже выполненным записям
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM daily_revenue) THEN
+        INSERT INTO daily_client_visits (date, client_id, visits)
+            SELECT date, client_id, count(*) FROM appointments WHERE status = 2 GROUP BY date, client_id;
+        INSERT INTO daily_revenue (date, completed_count, distinct_clients, income)
+            SELECT a.date, count(*), count(DISTINCT a.client_id), COALESCE(sum(COALESCE(a.price, s.price)), 0)
+            FROM appointments a JOIN services s ON s.id = a.service_id
+            WHERE a.status = 2
+            GROUP BY a.date;
+    END IF;
+END;
+$$;
+
+-- Ведение куба выручки (revenue_cube): выполненная запись добавляет визит и свою цену
+-- в ячейку (день, мастер, услуга), снятие статуса, перенос, смена цены и удаление
+-- вычитают прежний вклад.
+-- Пустые ячейки удаляются, чтобы срезы читали только дни с выручкой.
+DROP FUNCTION IF EXISTS apply_revenue_cube(DATE, INT, INT, INT);
+CREATE OR REPLACE FUNCTION apply_revenue_cube(p_date DATE, p_master INT, p_service INT, p_price DECIMAL,
+                                              p_sign INT)
+RETURNS VOID AS $$
+DECLARE
+    v_visits INT;
+BEGIN
+    INSERT INTO revenue_cube (date, master_id, service_id, visits, income)
+        VALUES (p_date, p_master, p_service, GREATEST(p_sign, 0), GREATEST(p_sign, 0) * COALESCE(p_price, 0))
+        ON CONFLICT (date, master_id, service_id) DO UPDATE SET
+            visits = revenue_cube.visits + p_sign,
+            income = revenue_cube.income + p_sign * COALESCE(p_price, 0)
+        RETURNING visits INTO v_visits;
+    IF v_visits = 0 THEN
+        DELETE FROM revenue_cube WHERE date = p_date AND master_id = p_master AND service_id = p_service;
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION appointments_revenue_cube()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF current_setting('parik.rollup_paused', true) = 'on' THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP = 'UPDATE' AND OLD.status = 2 AND NEW.status = 2 AND OLD.date = NEW.date
+       AND OLD.master_id = NEW.master_id AND OLD.service_id = NEW.service_id
+       AND OLD.price IS NOT DISTINCT FROM NEW.price THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.status = 2 THEN
+        PERFORM apply_revenue_cube(OLD.date, OLD.master_id, OLD.service_id,
+            COALESCE(OLD.price, (SELECT price FROM services WHERE id = OLD.service_id)), -1);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.status = 2 THEN
+        PERFORM apply_revenue_cube(NEW.date, NEW.master_id, NEW.service_id,
+            COALESCE(NEW.price, (SELECT price FROM services WHERE id = NEW.service_id)), 1);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS appointments_revenue_cube ON appointments;
+CREATE TRIGGER appointments_revenue_cube
+    AFTER INSERT OR UPDATE OR DELETE ON appointments
+    FOR EACH ROW
+    EXECUTE FUNCTION appointments_revenue_cube();
+
+-- Миграция существующих баз: куб заполняется по уже выполненным записям
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM revenue_cube) THEN
+        INSERT INTO revenue_cube (date, master_id, service_id, visits, income)
+            SELECT a.date, a.master_id, a.service_id, count(*), sum(COALESCE(a.price, s.price))
+            FROM appointments a JOIN services s ON s.id = a.service_id
+            WHERE a.status = 2
+            GROUP BY a.date, a.master_id, a.service_id;
+    END IF;
+END;
+$$;
+
+-- Пересчитывает daily_revenue, daily_client_visits и revenue_cube за указанные дни
+-- по выполненным записям. Нужен после изменений с флагом parik.rollup_paused, меняющих
+-- вклад записей в итоги: заполнение цены (AppointmentPriceBackfillService) фиксирует
+-- текущую цену услуги, а итоги учли запись по цене на момент выполнения.
+CREATE OR REPLACE FUNCTION rebuild_revenue_rollups(p_dates DATE[])
+RETURNS VOID AS $$
+BEGIN
+    DELETE FROM daily_client_visits WHERE date = ANY (p_dates);
+    DELETE FROM daily_revenue WHERE date = ANY (p_dates);
+    DELETE FROM revenue_cube WHERE date = ANY (p_dates);
+    INSERT INTO daily_client_visits (date, client_id, visits)
+        SELECT date, client_id, count(*) FROM appointments
+        WHERE status = 2 AND date = ANY (p_dates)
+        GROUP BY date, client_id;
+    INSERT INTO daily_revenue (date, completed_count, distinct_clients, income)
+        SELECT a.date, count(*), count(DISTINCT a.client_id), COALESCE(sum(COALESCE(a.price, s.price)), 0)
+        FROM appointments a JOIN services s ON s.id = a.service_id
+        WHERE a.status = 2 AND a.date = ANY (p_dates)
+        GROUP BY a.date;
+    INSERT INTO revenue_cube (date, master_id, service_id, visits, income)
+        SELECT a.date, a.master_id, a.service_id, count(*), sum(COALESCE(a.price, s.price))
+        FROM appointments a JOIN services s ON s.id = a.service_id
+        WHERE a.status = 2 AND a.date = ANY (p_dates)
+        GROUP BY a.date, a.master_id, a.service_id;
+END;
+$$ LANGUAGE plpgsql;
@@ -365,11 +365,29 @@ async function deleteMaster(id) {
 }
 
 // ========== ЗАПИСИ ==========
+// Список записей отдаётся страницами; курсор следующей страницы приходит
+// в заголовке X-Next-Cursor и отсутствует на последней странице
+let loadedAppointments = [];
+let appointmentsCursor = null;
+
 async function loadAppointments() {
+    loadedAppointments = [];
+    appointmentsCursor = null;
+    await loadMoreAppointments();
+}
+
+async function loadMoreAppointments() {
     try {
-        const response = await fetch(`${API_BASE}/appointments`);
-        const appointments = await response.json();
-        displayAppointments(appointments);
+        const url = appointmentsCursor
+            ? `${API_BASE}/appointments?cursor=${encodeURIComponent(appointmentsCursor)}`
+            : `${API_BASE}/appointments`;
+        const response = await fetch(url);
+        if (!response.ok) {
+            throw new Error(await response.text());
+        }
+        loadedAppointments = loadedAppointments.concat(await response.json());
+        appointmentsCursor = response.headers.get('X-Next-Cursor');
+        displayAppointments(loadedAppointments);
     } catch (error) {
         document.getElementById('appointments-list').innerHTML = 
             '<div class="error">Ошибка загрузки записей: ' + error.message + '</div>';
@@ -383,6 +401,11 @@ function displayAppointments(appointments) {
         return;
     }
     
+    const more = appointmentsCursor ? `
+        <div class="form-actions" style="margin-top: 10px;">
+            <button class="btn btn-secondary" onclick="loadMoreAppointments()">Показать ещё</button>
+        </div>
+    ` : '';
     container.innerHTML = appointments.map(apt => `
         <div class="card">
             <div class="card-header">
@@ -420,7 +443,7 @@ function displayAppointments(appointments) {
                 ` : ''}
             </div>
         </div>
-    `).join('');
+    `).join('') + more;
 }
 
 async function showAddAppointmentForm() {
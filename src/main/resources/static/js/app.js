@@ -3,8 +3,120 @@ const API_BASE = 'http://localhost:8080/api';
 // Инициализация при загрузке страницы
 document.addEventListener('DOMContentLoaded', () => {
     loadStatistics();
+    subscribeToAppointmentChanges();
 });
 
+// Обновление списка записей по событиям сервера: изменение применяется к строке таблицы на месте
+function subscribeToAppointmentChanges() {
+    if (!document.querySelector('#appointments.active') || typeof EventSource === 'undefined') return;
+    const source = new EventSource(`${API_BASE}/appointments/stream`, { withCredentials: true });
+    source.addEventListener('appointment', (message) => applyAppointmentEvent(JSON.parse(message.data)));
+    // Сервер пропустил часть событий: строки могли устареть, обновление - по запросу пользователя
+    source.addEventListener('reset', showAppointmentsStale);
+}
+
+const APPOINTMENT_STATUS_CLASSES = {
+    'Запланирована': 'status-planned',
+    'Выполнена': 'status-completed',
+    'Отменена': 'status-cancelled',
+    'Не явился': 'status-no-show'
+};
+
+function applyAppointmentEvent(event) {
+    const apt = event.appointment;
+    const row = document.querySelector(`tr[data-appointment-id="${apt.id}"]`);
+    if (event.type === 'DELETED') {
+        if (row) row.remove();
+        return;
+    }
+    if (row) {
+        fillAppointmentRow(row, apt);
+        if (isDefaultAppointmentOrder()) placeAppointmentRow(row);
+    } else if (appointmentBelongsToView(apt)) {
+        const created = document.createElement('tr');
+        fillAppointmentRow(created, apt);
+        placeAppointmentRow(created);
+    }
+}
+
+// Поиск и пользовательская сортировка отбирают и упорядочивают строки на сервере,
+// поэтому в таком списке обновляются только уже показанные записи
+function isDefaultAppointmentOrder() {
+    const params = new URL(window.location).searchParams;
+    return !params.get('search') && !params.get('sortBy');
+}
+
+function appointmentBelongsToView(apt) {
+    if (!isDefaultAppointmentOrder()) return false;
+    const user = window.currentUser;
+    return !(user && user.role === 'Клиент') || apt.clientId === user.id;
+}
+
+// Вставляет строку по порядку списка: от новых записей к старым
+function placeAppointmentRow(row) {
+    const tbody = document.querySelector('#appointments .data-table tbody');
+    const key = appointmentRowKey(row);
+    const next = Array.from(tbody.rows).find(other => other !== row && compareAppointmentKeys(appointmentRowKey(other), key) < 0);
+    tbody.insertBefore(row, next || null);
+}
+
+function appointmentRowKey(row) {
+    return [row.dataset.date, row.dataset.time, Number(row.dataset.appointmentId)];
+}
+
+function compareAppointmentKeys(a, b) {
+    for (let i = 0; i < a.length; i++) {
+        if (a[i] !== b[i]) return a[i] < b[i] ? -1 : 1;
+    }
+    return 0;
+}
+
+function fillAppointmentRow(row, apt) {
+    const names = window.appointmentNames || { users: {}, masters: {}, services: {} };
+    const time = apt.time.length === 5 ? apt.time + ':00' : apt.time;
+    const [year, month, day] = apt.date.split('-');
+    row.dataset.appointmentId = apt.id;
+    row.dataset.date = apt.date;
+    row.dataset.time = time;
+    row.innerHTML = `
+        <td>${apt.id}</td>
+        <td>${escapeHtml(names.users[apt.clientId] || 'Неизвестно')}</td>
+        <td>${escapeHtml(names.masters[apt.masterId] || 'Неизвестно')}</td>
+        <td>${escapeHtml(names.services[apt.serviceId] || 'Неизвестно')}</td>
+        <td>${day}.${month}.${year}</td>
+        <td>${time.slice(0, 5)}</td>
+        <td><span class="status-badge ${APPOINTMENT_STATUS_CLASSES[apt.status] || 'status-cancelled'}">${escapeHtml(apt.status)}</span></td>
+        <td>${appointmentActions(apt)}</td>
+    `;
+}
+
+// Те же кнопки, что выводит шаблон страницы для запланированной записи
+function appointmentActions(apt) {
+    const user = window.currentUser;
+    if (apt.status !== 'Запланирована' || !user) return '';
+    let actions = '';
+    if (user.role === 'Мастер' || user.role === 'Администратор') {
+        actions += `<button class="btn btn-small btn-success" onclick="completeAppointment(${apt.id})">✓ Выполнена</button>`;
+    }
+    if ((user.role === 'Клиент' && apt.clientId === user.id) || user.role === 'Администратор') {
+        actions += `<button class="btn btn-small btn-danger" onclick="cancelAppointment(${apt.id})">✗ Отменить</button>`;
+    }
+    return `<span>${actions}</span>`;
+}
+
+function showAppointmentsStale() {
+    if (document.getElementById('appointments-stale')) return;
+    const notice = document.createElement('div');
+    notice.id = 'appointments-stale';
+    notice.className = 'actions';
+    notice.innerHTML = `
+        <span>Часть изменений записей могла быть пропущена</span>
+        <button class="btn btn-secondary" onclick="location.reload()">Обновить список</button>
+    `;
+    const table = document.querySelector('#appointments .table-container');
+    table.parentNode.insertBefore(notice, table);
+}
+
 // Переключение вкладок
 function switchTab(tabName) {
     const url = new URL(window.location);
@@ -0,0 +1,68 @@
+package com.parik;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assumptions.abort;
+
+/**
+ * Подключение тестов к базе PostgreSQL, созданной schema.sql и заполненной data.sql.
+ * Параметры берутся из application.properties и переопределяются свойствами
+ * parik.test.datasource.url, parik.test.datasource.username и parik.test.datasource.password.
+ * Если база недоступна, тест пропускается.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+public final class TestDatabase {
+
+    private static final Properties SETTINGS = load();
+
+    private TestDatabase() {
+    }
+
+    public static String url() {
+        return System.getProperty("parik.test.datasource.url", SETTINGS.getProperty("spring.datasource.url"));
+    }
+
+    public static String username() {
+        return System.getProperty("parik.test.datasource.username",
+            SETTINGS.getProperty("spring.datasource.username"));
+    }
+
+    public static String password() {
+        return System.getProperty("parik.test.datasource.password",
+            SETTINGS.getProperty("spring.datasource.password", ""));
+    }
+
+    /**
+     * Открывает новое соединение с тестовой базой или пропускает тест, если база недоступна.
+     *
+     * @return соединение в режиме автофиксации
+     */
+    public static Connection connect() {
+        try {
+            return DriverManager.getConnection(url(), username(), password());
+        } catch (SQLException e) {
+            abort("База данных недоступна (" + url() + "): " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static Properties load() {
+        Properties properties = new Properties();
+        try (InputStream in = TestDatabase.class.getResourceAsStream("/application.properties")) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,99 @@
+package com.parik.dto;
+
+import com.parik.model.Appointment;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка курсора постраничной выдачи записей ({@link AppointmentCursor}): кодирование
+ * и разбор строки, порядок ключей (date, time, id) и ключ виртуальных визитов серий.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+class AppointmentCursorTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 3, 14);
+
+    @Test
+    void encodedCursorDecodesToSamePosition() {
+        AppointmentCursor cursor = new AppointmentCursor(DATE, LocalTime.of(9, 30), 42);
+
+        AppointmentCursor decoded = AppointmentCursor.decode(cursor.encode());
+
+        assertEquals(DATE, decoded.getDate());
+        assertEquals(LocalTime.of(9, 30), decoded.getTime());
+        assertEquals(42, decoded.getId());
+    }
+
+    @Test
+    void encodedCursorIsUrlSafe() {
+        String token = AppointmentCursor.first().encode();
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+        assertEquals(0, AppointmentCursor.first().compareTo(AppointmentCursor.decode(token)));
+    }
+
+    @Test
+    void blankCursorMeansFirstPage() {
+        assertEquals(0, AppointmentCursor.first().compareTo(AppointmentCursor.decode(null)));
+        assertEquals(0, AppointmentCursor.first().compareTo(AppointmentCursor.decode(" ")));
+    }
+
+    @Test
+    void damagedCursorIsRejected() {
+        for (String token : List.of("не курсор", "MjAyNS0wMy0xNA", "MjAyNS0wMy0xNHwxMDowMHx4")) {
+            RuntimeException e = assertThrows(RuntimeException.class, () -> AppointmentCursor.decode(token));
+            assertEquals("Неверный курсор страницы", e.getMessage());
+        }
+    }
+
+    @Test
+    void cursorsOrderByDateTimeAndId() {
+        AppointmentCursor earlyDay = new AppointmentCursor(DATE, LocalTime.of(18, 0), 1);
+        AppointmentCursor earlyTime = new AppointmentCursor(DATE.plusDays(1), LocalTime.of(9, 0), 100);
+        AppointmentCursor lowId = new AppointmentCursor(DATE.plusDays(1), LocalTime.of(12, 0), 5);
+        AppointmentCursor highId = new AppointmentCursor(DATE.plusDays(1), LocalTime.of(12, 0), 7);
+        AppointmentCursor first = AppointmentCursor.first();
+        List<AppointmentCursor> cursors = new ArrayList<>(List.of(first, highId, earlyDay, lowId, earlyTime));
+
+        Collections.sort(cursors);
+
+        // Список выдаётся от новых записей к старым: начальная позиция больше любой записи
+        assertEquals(List.of(earlyDay, earlyTime, lowId, highId, first), cursors);
+    }
+
+    /**
+     * Виртуальный визит серии ключуется отрицательным идентификатором серии и при равных
+     * дате и времени идёт раньше созданных записей, а после разбора курсора сохраняет знак.
+     */
+    @Test
+    void virtualOccurrenceUsesNegativeSeriesId() {
+        Appointment virtual = new Appointment();
+        virtual.setSeriesId(12);
+        virtual.setDate(DATE);
+        virtual.setTime(LocalTime.of(10, 0));
+        Appointment stored = new Appointment();
+        stored.setId(3);
+        stored.setSeriesId(12);
+        stored.setDate(DATE);
+        stored.setTime(LocalTime.of(10, 0));
+
+        AppointmentCursor virtualCursor = AppointmentCursor.decode(AppointmentCursor.after(virtual).encode());
+        AppointmentCursor storedCursor = AppointmentCursor.after(stored);
+
+        assertEquals(-12, virtualCursor.getId());
+        assertEquals(3, storedCursor.getId());
+        assertTrue(virtualCursor.compareTo(storedCursor) < 0);
+        assertTrue(virtualCursor.compareTo(AppointmentCursor.first()) < 0);
+    }
+}
@@ -0,0 +1,157 @@
+package com.parik.repository;
+
+import com.parik.TestDatabase;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Проверка ограничения-исключения секций appointments (add_appointment_overlap_constraint),
+ * на которое опирается защита от двойной записи: JpaAppointmentService переводит его
+ * нарушение (SQLState 23P01) в «Это время уже занято».
+ * Несколько соединений одновременно вставляют пересекающиеся записи одного мастера -
+ * сохраниться должна ровно одна. Перенос и восстановление отменённой записи на занятое
+ * время также отклоняются базой.
+ * <p>
+ * Нужна база, созданная schema.sql и заполненная data.sql (см. {@link TestDatabase});
+ * без доступной базы тест пропускается.
+ * Записи создаются у отдельного тестового мастера, который удаляется после каждого теста.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+class AppointmentOverlapConstraintTest {
+
+    private static final String OVERLAP = "23P01";
+    private static final int THREADS = 8;
+    private static final LocalDate DATE = LocalDate.now().plusDays(1);
+
+    private static Connection connection;
+
+    private int master;
+    private int client;
+    private int service;
+
+    @BeforeAll
+    static void connect() {
+        connection = TestDatabase.connect();
+    }
+
+    @AfterAll
+    static void disconnect() throws SQLException {
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    @BeforeEach
+    void createMaster() throws SQLException {
+        client = single("SELECT min(id) FROM users");
+        service = single("SELECT min(id) FROM services");
+        master = single("INSERT INTO masters (name, specialization) VALUES ('Мастер проверки пересечений', 'Тест') "
+            + "RETURNING id");
+    }
+
+    @AfterEach
+    void deleteMaster() throws SQLException {
+        // Записи мастера удаляются каскадно
+        execute("DELETE FROM masters WHERE id = " + master);
+    }
+
+    @Test
+    void concurrentOverlappingInsertsKeepOneBooking() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<String> outcomes = new ArrayList<>();
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                // Интервалы сдвинуты на 5 минут и попарно пересекаются
+                LocalTime time = LocalTime.of(10, 0).plusMinutes(5L * i);
+                Callable<String> booking = () -> {
+                    try (Connection own = TestDatabase.connect();
+                         Statement statement = own.createStatement()) {
+                        start.await();
+                        statement.execute(insert(time, 60, 1));
+                        return "OK";
+                    } catch (SQLException e) {
+                        return e.getSQLState();
+                    }
+                };
+                futures.add(executor.submit(booking));
+            }
+            start.countDown();
+            for (Future<String> future : futures) {
+                outcomes.add(future.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, outcomes.stream().filter("OK"::equals).count(), outcomes.toString());
+        assertEquals(THREADS - 1, outcomes.stream().filter(OVERLAP::equals).count(), outcomes.toString());
+        assertEquals(1, single("SELECT count(*) FROM appointments WHERE master_id = " + master));
+    }
+
+    @Test
+    void rescheduleIntoOccupiedTimeIsRejected() throws SQLException {
+        execute(insert(LocalTime.of(10, 0), 60, 1));
+        int moved = single(insert(LocalTime.of(12, 0), 60, 1) + " RETURNING id");
+
+        SQLException e = assertThrows(SQLException.class,
+            () -> execute("UPDATE appointments SET time = '10:30' WHERE id = " + moved));
+        assertEquals(OVERLAP, e.getSQLState());
+        // Соседняя запись, начинающаяся в момент окончания, не пересекается
+        execute("UPDATE appointments SET time = '11:00' WHERE id = " + moved);
+    }
+
+    @Test
+    void cancelledBookingDoesNotHoldTime() throws SQLException {
+        int cancelled = single(insert(LocalTime.of(10, 0), 60, 3) + " RETURNING id");
+        execute(insert(LocalTime.of(10, 0), 60, 1));
+
+        SQLException e = assertThrows(SQLException.class,
+            () -> execute("UPDATE appointments SET status = 1 WHERE id = " + cancelled));
+        assertEquals(OVERLAP, e.getSQLState());
+    }
+
+    private String insert(LocalTime time, int duration, int status) {
+        return "INSERT INTO appointments (client_id, master_id, service_id, date, time, duration, status) VALUES ("
+            + client + ", " + master + ", " + service + ", '" + DATE + "', '" + time + "', "
+            + duration + ", " + status + ")";
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static int single(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
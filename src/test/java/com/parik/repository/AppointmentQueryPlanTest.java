@@ -0,0 +1,227 @@
+package com.parik.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.parik.TestDatabase;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка планов частых запросов к таблице записей.
+ * Заполняет appointments тестовыми данными, выполняет EXPLAIN (FORMAT JSON) для запросов
+ * JpaAppointmentRepository и AppointmentRepository и падает, если какой-либо из них читает
+ * секцию appointments целиком ради малой доли её строк - то есть там, где нужен индекс.
+ * Последовательное чтение секции, большая часть которой попадает в результат (будущие
+ * записи при подсчёте запланированных), и пустых секций допустимо. Все изменения откатываются.
+ * <p>
+ * Нужна база, созданная schema.sql и заполненная data.sql (см. {@link TestDatabase});
+ * без доступной базы тест пропускается. Время выполнения тех же запросов выводит db/explain_check.sql.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+class AppointmentQueryPlanTest {
+
+    /** Доля строк секции, при которой полное чтение ещё считается ошибкой. */
+    private static final double SELECTIVE_SHARE = 0.05;
+
+    /** Число строк в непустых секциях appointments после заполнения. */
+    private static final Map<String, Double> partitionRows = new HashMap<>();
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static Connection connection;
+
+    @BeforeAll
+    static void connect() throws SQLException {
+        connection = TestDatabase.connect();
+        connection.setAutoCommit(false);
+    }
+
+    @AfterAll
+    static void disconnect() throws SQLException {
+        if (connection != null) {
+            connection.rollback();
+            connection.close();
+        }
+    }
+
+    @Test
+    void appointmentQueriesDoNotUseSeqScan() throws Exception {
+        seed();
+        int master = single("SELECT min(id) FROM masters WHERE name LIKE 'Мастер плана %'");
+        int client = single("SELECT min(id) FROM users WHERE username LIKE 'plan_client_%'");
+        int service = single("SELECT min(id) FROM services WHERE name LIKE 'Услуга плана %'");
+
+        String day = "'" + LocalDate.now() + "'";
+        String username = singleText("SELECT username FROM users WHERE id = " + client);
+        String pattern = "'%" + username + "%'";
+        String word = "'" + username + "'";
+        List<String> queries = List.of(
+            // JpaAppointmentRepository
+            "SELECT * FROM appointments WHERE client_id = " + client + " ORDER BY date DESC, time DESC",
+            "SELECT * FROM appointments WHERE master_id = " + master + " ORDER BY date, time",
+            "SELECT * FROM appointments WHERE master_id = " + master + " AND date = " + day + " ORDER BY time",
+            "SELECT count(*) FROM appointments WHERE status = 1",
+            "SELECT * FROM ((SELECT * FROM appointments WHERE client_id = " + client
+                + " AND (date, time, id) < (" + day + ", TIME '12:00', 1000000) "
+                + "ORDER BY date DESC, time DESC, id DESC LIMIT 51) UNION "
+                + "(SELECT * FROM appointments WHERE master_id = " + client
+                + " AND (date, time, id) < (" + day + ", TIME '12:00', 1000000) "
+                + "ORDER BY date DESC, time DESC, id DESC LIMIT 51)) a "
+                + "ORDER BY date DESC, time DESC, id DESC LIMIT 51",
+            "SELECT a.id, a.time, COALESCE(a.duration, s.duration) FROM appointments a "
+                + "JOIN services s ON s.id = a.service_id "
+                + "WHERE a.master_id = " + master + " AND a.date = " + day + " AND a.status <> 3",
+            "SELECT a.id, a.master_id, a.date, a.time, COALESCE(a.duration, s.duration) FROM appointments a "
+                + "JOIN services s ON s.id = a.service_id WHERE a.status <> 3 AND a.date >= " + day
+                + " ORDER BY a.master_id, a.date, a.time, a.id",
+            "SELECT a.master_id, a.date, a.time, COALESCE(a.duration, s.duration) FROM appointments a "
+                + "JOIN services s ON s.id = a.service_id WHERE a.status <> 3 "
+                + "AND a.date BETWEEN " + day + " AND DATE " + day + " + 30 ORDER BY a.date, a.master_id, a.time",
+            "SELECT * FROM appointments WHERE (date, time, id) < (" + day + ", TIME '12:00', 1000000) "
+                + "ORDER BY date DESC, time DESC, id DESC LIMIT 51",
+            "SELECT * FROM appointments WHERE client_id = " + client
+                + " AND (date, time, id) < (" + day + ", TIME '12:00', 1000000) "
+                + "ORDER BY date DESC, time DESC, id DESC LIMIT 51",
+            "SELECT * FROM appointments WHERE master_id = " + master
+                + " AND (date, time, id) < (" + day + ", TIME '12:00', 1000000) "
+                + "ORDER BY date DESC, time DESC, id DESC LIMIT 51",
+            "SELECT * FROM appointments WHERE status = 1 AND (date, time, id) < (" + day + ", TIME '12:00', 1000000) "
+                + "ORDER BY date DESC, time DESC, id DESC LIMIT 51",
+            "SELECT * FROM appointments ORDER BY date DESC, time DESC LIMIT 100",
+            // Сортировки JpaAppointmentService.SORTS
+            "SELECT * FROM appointments ORDER BY date DESC, time DESC, id DESC LIMIT 50 OFFSET 100",
+            "SELECT * FROM appointments ORDER BY client_id, date, time, id LIMIT 50",
+            "SELECT * FROM appointments ORDER BY master_id DESC, date DESC, time DESC, id DESC LIMIT 50",
+            "SELECT * FROM appointments ORDER BY id LIMIT 50",
+            "WITH clients AS (SELECT id, word_similarity(" + word + ", username) AS rank FROM users "
+                + "WHERE username ILIKE " + pattern + " OR " + word + " <% username), "
+                + "masters_found AS (SELECT id, word_similarity(" + word + ", name) AS rank FROM masters "
+                + "WHERE name ILIKE " + pattern + " OR " + word + " <% name), "
+                + "services_found AS (SELECT id, word_similarity(" + word + ", name) AS rank FROM services "
+                + "WHERE name ILIKE " + pattern + " OR " + word + " <% name), "
+                + "hits AS (SELECT a.id, a.date, c.rank FROM clients c JOIN appointments a ON a.client_id = c.id "
+                + "UNION ALL SELECT a.id, a.date, m.rank FROM masters_found m JOIN appointments a ON a.master_id = m.id "
+                + "UNION ALL SELECT a.id, a.date, s.rank FROM services_found s JOIN appointments a ON a.service_id = s.id), "
+                + "ranked AS (SELECT id, date, max(rank) AS rank FROM hits GROUP BY id, date) "
+                + "SELECT a.* FROM ranked r JOIN appointments a ON a.id = r.id AND a.date = r.date "
+                + "ORDER BY r.rank DESC, a.date DESC, a.time DESC, a.id DESC LIMIT 51",
+            // AppointmentRepository (JDBC)
+            "SELECT * FROM appointments WHERE master_id = " + master + " AND date BETWEEN " + day
+                + " AND DATE " + day + " + 7 AND status <> 3 ORDER BY date, time",
+            "SELECT * FROM appointments WHERE status = 3 ORDER BY date DESC, time DESC",
+            "SELECT * FROM appointments WHERE service_id = " + service + " LIMIT 1"
+        );
+
+        List<String> failures = new ArrayList<>();
+        try (Statement statement = connection.createStatement()) {
+            for (String query : queries) {
+                try (ResultSet rs = statement.executeQuery("EXPLAIN (FORMAT JSON) " + query)) {
+                    rs.next();
+                    JsonNode plan = MAPPER.readTree(rs.getString(1)).get(0).get("Plan");
+                    if (hasFullAppointmentScan(plan)) {
+                        failures.add(query);
+                    }
+                }
+            }
+        }
+        assertTrue(failures.isEmpty(),
+            "Полное чтение appointments в запросах:\n  " + String.join("\n  ", failures));
+    }
+
+    /**
+     * Заполняет базу данными, похожими на рабочие: 400 клиентов, 40 мастеров, 40 услуг
+     * и по 8 записей в день на каждого мастера за 500 прошедших и 60 будущих дней.
+     * Прошедшие записи в основном выполнены, часть отменена или пропущена, будущие запланированы.
+     * Итоги выручки при заполнении не ведутся (parik.rollup_paused).
+     */
+    private static void seed() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SELECT set_config('parik.rollup_paused', 'on', true)");
+            // Секции на весь период тестовых данных, чтобы строки не попали в appointments_default
+            statement.execute("SELECT ensure_appointment_partitions(CURRENT_DATE - 500, CURRENT_DATE + 60)");
+            statement.execute("INSERT INTO users (username, password_hash, role, email) "
+                + "SELECT 'plan_client_' || i, 'x', 'Клиент', 'plan_client_' || i || '@example.com' "
+                + "FROM generate_series(1, 400) AS i");
+            statement.execute("INSERT INTO masters (name, specialization) "
+                + "SELECT 'Мастер плана ' || i, 'Тест' FROM generate_series(1, 40) AS i");
+            statement.execute("INSERT INTO services (name, price, duration) "
+                + "SELECT 'Услуга плана ' || i, 1000, 30 FROM generate_series(1, 40) AS i");
+            statement.execute("WITH c AS (SELECT array_agg(id ORDER BY id) AS ids FROM users "
+                + "WHERE username LIKE 'plan_client_%'), "
+                + "s AS (SELECT array_agg(id ORDER BY id) AS ids FROM services WHERE name LIKE 'Услуга плана %') "
+                + "INSERT INTO appointments (client_id, master_id, service_id, date, time, duration, status) "
+                + "SELECT c.ids[1 + (m.id * 7 + d * 13 + h * 31 + 100000) % 400], m.id, "
+                + "s.ids[1 + (m.id + d + h + 100000) % 40], CURRENT_DATE + d, TIME '09:00' + h * INTERVAL '1 hour', 30, "
+                + "CASE WHEN d >= 0 THEN 1 WHEN (m.id + d + h + 100000) % 20 = 0 THEN 3 "
+                + "WHEN (m.id + d + h + 100000) % 25 = 0 THEN 4 ELSE 2 END "
+                + "FROM c, s, masters m, generate_series(-500, 59) AS d, generate_series(0, 7) AS h "
+                + "WHERE m.name LIKE 'Мастер плана %'");
+            statement.execute("ANALYZE users");
+            statement.execute("ANALYZE masters");
+            statement.execute("ANALYZE services");
+            statement.execute("ANALYZE appointments");
+            try (ResultSet rs = statement.executeQuery("SELECT relname, reltuples FROM pg_class "
+                    + "WHERE relname ~ '^appointments(_p[0-9_]+|_default)?$' AND relkind = 'r' AND reltuples > 0")) {
+                while (rs.next()) {
+                    partitionRows.put(rs.getString(1), rs.getDouble(2));
+                }
+            }
+        }
+    }
+
+    /**
+     * Ищет в плане полное чтение непустой секции appointments, из которой по оценке
+     * планировщика остаётся не больше SELECTIVE_SHARE строк: последовательное сканирование
+     * или обход индекса целиком с фильтрацией строк (без условия по индексу).
+     * Обход индекса без условия и без фильтра (ORDER BY ... LIMIT, частичный индекс,
+     * совпадающий с условием запроса) полным чтением не считается.
+     */
+    private static boolean hasFullAppointmentScan(JsonNode node) {
+        Double rows = partitionRows.get(node.path("Relation Name").asText());
+        if (rows != null && node.path("Plan Rows").asDouble() <= rows * SELECTIVE_SHARE) {
+            String type = node.path("Node Type").asText();
+            if ("Seq Scan".equals(type)) {
+                return true;
+            }
+            if (("Index Scan".equals(type) || "Index Only Scan".equals(type))
+                    && !node.has("Index Cond") && node.has("Filter")) {
+                return true;
+            }
+        }
+        for (JsonNode child : node.path("Plans")) {
+            if (hasFullAppointmentScan(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int single(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static String singleText(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+}
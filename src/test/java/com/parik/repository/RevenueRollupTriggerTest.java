@@ -0,0 +1,216 @@
+package com.parik.repository;
+
+import com.parik.TestDatabase;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Проверка триггеров итогов выручки: daily_revenue (с daily_client_visits) и revenue_cube
+ * должны совпадать с пересчётом по выполненным записям после выполнения, отмены,
+ * изменения и удаления записей.
+ * <p>
+ * Нужна база, созданная schema.sql (см. {@link TestDatabase}); без доступной базы тест
+ * пропускается. Каждый тест выполняется в транзакции, которая откатывается.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+class RevenueRollupTriggerTest {
+
+    /** Дни без других записей: итоги складываются только из записей теста. */
+    private static final LocalDate DATE = LocalDate.now().plusYears(51);
+    private static final LocalDate NEXT_DATE = DATE.plusDays(1);
+
+    private static Connection connection;
+
+    private int master;
+    private int otherMaster;
+    private int service;
+    private int client;
+    private int otherClient;
+
+    @BeforeAll
+    static void connect() throws SQLException {
+        connection = TestDatabase.connect();
+        connection.setAutoCommit(false);
+    }
+
+    @AfterAll
+    static void disconnect() throws SQLException {
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    @BeforeEach
+    void seed() throws SQLException {
+        master = single("INSERT INTO masters (name, specialization) VALUES ('Мастер проверки итогов', 'Тест') "
+            + "RETURNING id");
+        otherMaster = single("INSERT INTO masters (name, specialization) VALUES ('Мастер проверки итогов 2', 'Тест') "
+            + "RETURNING id");
+        service = single("INSERT INTO services (name, price, duration) VALUES ('Услуга проверки итогов', 1000, 60) "
+            + "RETURNING id");
+        client = single("INSERT INTO users (username, password_hash, role, email) "
+            + "VALUES ('rollup_client_1', 'x', 'Клиент', 'rollup_client_1@example.com') RETURNING id");
+        otherClient = single("INSERT INTO users (username, password_hash, role, email) "
+            + "VALUES ('rollup_client_2', 'x', 'Клиент', 'rollup_client_2@example.com') RETURNING id");
+    }
+
+    @AfterEach
+    void rollback() throws SQLException {
+        connection.rollback();
+    }
+
+    @Test
+    void completingAddsVisitClientAndPrice() throws SQLException {
+        int planned = book(client, master, "10:00", 1, "1200");
+        assertDaily(DATE, 0, 0, "0.00");
+
+        setStatus(planned, 2);
+        book(client, master, "12:00", 2, "800");
+        book(otherClient, master, "14:00", 2, null);
+
+        // Запись без зафиксированной цены учитывается по цене услуги
+        assertDaily(DATE, 3, 2, "3000.00");
+        assertCube(DATE, master, 3, "3000.00");
+        assertConsistent();
+    }
+
+    @Test
+    void cancellingSubtractsContribution() throws SQLException {
+        int first = book(client, master, "10:00", 2, "1200");
+        int second = book(client, master, "12:00", 2, "800");
+
+        setStatus(first, 3);
+        assertDaily(DATE, 1, 1, "800.00");
+        assertCube(DATE, master, 1, "800.00");
+
+        setStatus(second, 3);
+        assertDaily(DATE, 0, 0, "0.00");
+        // Пустая ячейка куба удаляется
+        assertEquals(0, single("SELECT count(*) FROM revenue_cube WHERE date = '" + DATE + "' AND master_id = "
+            + master));
+        assertConsistent();
+    }
+
+    @Test
+    void editingCompletedAppointmentMovesContribution() throws SQLException {
+        int appointment = book(client, master, "10:00", 2, "1200");
+        book(otherClient, master, "12:00", 2, "500");
+
+        execute("UPDATE appointments SET price = 1500 WHERE id = " + appointment);
+        assertDaily(DATE, 2, 2, "2000.00");
+
+        execute("UPDATE appointments SET master_id = " + otherMaster + " WHERE id = " + appointment);
+        assertCube(DATE, master, 1, "500.00");
+        assertCube(DATE, otherMaster, 1, "1500.00");
+
+        execute("UPDATE appointments SET client_id = " + otherClient + " WHERE id = " + appointment);
+        assertDaily(DATE, 2, 1, "2000.00");
+
+        execute("UPDATE appointments SET date = '" + NEXT_DATE + "' WHERE id = " + appointment);
+        assertDaily(DATE, 1, 1, "500.00");
+        assertDaily(NEXT_DATE, 1, 1, "1500.00");
+        assertCube(NEXT_DATE, otherMaster, 1, "1500.00");
+        assertConsistent();
+    }
+
+    @Test
+    void deletingCompletedAppointmentSubtractsContribution() throws SQLException {
+        int appointment = book(client, master, "10:00", 2, "1200");
+        book(client, master, "12:00", 4, "800");
+
+        execute("DELETE FROM appointments WHERE id = " + appointment);
+
+        assertDaily(DATE, 0, 0, "0.00");
+        assertConsistent();
+    }
+
+    @Test
+    void pausedRollupIgnoresChanges() throws SQLException {
+        int appointment = book(client, master, "10:00", 2, "1200");
+
+        execute("SELECT set_config('parik.rollup_paused', 'on', true)");
+        execute("UPDATE appointments SET price = 1500 WHERE id = " + appointment);
+        execute("SELECT set_config('parik.rollup_paused', 'off', true)");
+
+        assertDaily(DATE, 1, 1, "1200.00");
+    }
+
+    private int book(int clientId, int masterId, String time, int status, String price) throws SQLException {
+        return single("INSERT INTO appointments (client_id, master_id, service_id, date, time, duration, status, price) "
+            + "VALUES (" + clientId + ", " + masterId + ", " + service + ", '" + DATE + "', '" + time + "', 60, "
+            + status + ", " + price + ") RETURNING id");
+    }
+
+    private void setStatus(int appointment, int status) throws SQLException {
+        execute("UPDATE appointments SET status = " + status + " WHERE id = " + appointment);
+    }
+
+    private static void assertDaily(LocalDate date, int completed, int clients, String income) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COALESCE(sum(completed_count), 0), "
+                 + "COALESCE(sum(distinct_clients), 0), COALESCE(sum(income), 0.00) FROM daily_revenue "
+                 + "WHERE date = '" + date + "'")) {
+            rs.next();
+            assertEquals(completed, rs.getInt(1), "completed_count " + date);
+            assertEquals(clients, rs.getInt(2), "distinct_clients " + date);
+            assertEquals(new BigDecimal(income), rs.getBigDecimal(3), "income " + date);
+        }
+    }
+
+    private static void assertCube(LocalDate date, int masterId, int visits, String income) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COALESCE(sum(visits), 0), COALESCE(sum(income), 0.00) "
+                 + "FROM revenue_cube WHERE date = '" + date + "' AND master_id = " + masterId)) {
+            rs.next();
+            assertEquals(visits, rs.getInt(1), "visits " + date + " master " + masterId);
+            assertEquals(new BigDecimal(income), rs.getBigDecimal(2), "income " + date + " master " + masterId);
+        }
+    }
+
+    /**
+     * Сверяет итоги дней теста с пересчётом по выполненным записям.
+     */
+    private void assertConsistent() throws SQLException {
+        String days = "('" + DATE + "', '" + NEXT_DATE + "')";
+        assertEquals(0, single("SELECT count(*) FROM ("
+            + "SELECT a.date, count(*) AS completed, count(DISTINCT a.client_id) AS clients, "
+            + "sum(COALESCE(a.price, s.price)) AS income "
+            + "FROM appointments a JOIN services s ON s.id = a.service_id "
+            + "WHERE a.status = 2 AND a.date IN " + days + " GROUP BY a.date "
+            + "EXCEPT SELECT date, completed_count, distinct_clients, income FROM daily_revenue "
+            + "WHERE date IN " + days + " AND completed_count > 0) diff"));
+        assertEquals(0, single("SELECT count(*) FROM ("
+            + "SELECT date, master_id, service_id, visits, income FROM revenue_cube WHERE date IN " + days
+            + " EXCEPT SELECT a.date, a.master_id, a.service_id, count(*), sum(COALESCE(a.price, s.price)) "
+            + "FROM appointments a JOIN services s ON s.id = a.service_id "
+            + "WHERE a.status = 2 AND a.date IN " + days + " GROUP BY a.date, a.master_id, a.service_id) diff"));
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static int single(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
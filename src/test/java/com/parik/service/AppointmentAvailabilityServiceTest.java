@@ -0,0 +1,196 @@
+package com.parik.service;
+
+import com.parik.dto.AvailableSlotDTO;
+import com.parik.model.Master;
+import com.parik.repository.JpaAppointmentRepository;
+import com.parik.repository.JpaMasterRepository;
+import com.parik.repository.JpaServiceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Проверка поиска свободного времени ({@link AppointmentAvailabilityService}): вычитание
+ * занятых интервалов из рабочего времени, отсечение прошедшего времени, сетка вариантов
+ * и порядок подбора мастера по best-fit.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class AppointmentAvailabilityServiceTest {
+
+    private static final Integer SERVICE_ID = 5;
+    private static final LocalDate DATE = LocalDate.now().plusDays(1);
+
+    @Mock
+    private JpaAppointmentRepository appointmentRepository;
+
+    @Mock
+    private JpaMasterRepository masterRepository;
+
+    @Mock
+    private JpaServiceRepository serviceRepository;
+
+    @Mock
+    private AppointmentSlotIndex slotIndex;
+
+    @Mock
+    private WorkingHoursService workingHours;
+
+    @InjectMocks
+    private AppointmentAvailabilityService availabilityService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(availabilityService, "slotStepMinutes", 15);
+        ReflectionTestUtils.setField(availabilityService, "maxRangeDays", 31);
+        when(slotIndex.durationOf(SERVICE_ID)).thenReturn(30);
+        when(serviceRepository.findMinDuration()).thenReturn(30);
+        when(masterRepository.findAll()).thenReturn(List.of(master(2), master(1)));
+
+        // Оба мастера работают с 9:00 до 12:00. У мастера 1 занято 10:00-11:00:
+        // свободны два часовых промежутка. У мастера 2 занято 9:00-9:45: свободен 9:45-12:00
+        when(workingHours.openIntervals(any(LocalDate.class), any(LocalDate.class))).thenReturn(Map.of(DATE, Map.of(
+            1, List.<int[]>of(new int[]{540, 720}),
+            2, List.<int[]>of(new int[]{540, 720}))));
+        when(appointmentRepository.findBookedIntervalsBetween(any(LocalDate.class), any(LocalDate.class)))
+            .thenReturn(List.of(
+                new Object[]{1, DATE, LocalTime.of(10, 0), 60},
+                new Object[]{2, DATE, LocalTime.of(9, 0), 45}));
+    }
+
+    @Test
+    void subtractReturnsGapsBetweenBusyIntervals() {
+        List<int[]> free = AppointmentAvailabilityService.subtract(List.of(
+            new int[]{540, 600}, new int[]{590, 660}, new int[]{700, 720}, new int[]{800, 900}), 480, 780);
+
+        assertEquals(List.of("480-540", "660-700", "720-780"), format(free));
+    }
+
+    @Test
+    void subtractWithoutBusyReturnsWholeWindow() {
+        assertEquals(List.of("540-1080"), format(AppointmentAvailabilityService.subtract(List.of(), 540, 1080)));
+        assertEquals(List.of(), format(AppointmentAvailabilityService.subtract(
+            List.of(new int[]{500, 1100}), 540, 1080)));
+    }
+
+    @Test
+    void freeIntervalsSubtractsBusyFromEachOpenInterval() {
+        List<int[]> free = availabilityService.freeIntervals(DATE,
+            List.of(new int[]{540, 720}, new int[]{780, 1080}), List.of(new int[]{600, 660}, new int[]{780, 840}));
+
+        assertEquals(List.of("540-600", "660-720", "840-1080"), format(free));
+    }
+
+    @Test
+    void freeIntervalsStartAfterCurrentTimeToday() {
+        int before = AppointmentSlotIndex.minuteOf(LocalTime.now()) + 1;
+        List<int[]> free = availabilityService.freeIntervals(LocalDate.now(),
+            List.<int[]>of(new int[]{0, 24 * 60}), List.of());
+        int after = AppointmentSlotIndex.minuteOf(LocalTime.now()) + 1;
+
+        if (!free.isEmpty()) {
+            assertTrue(free.get(0)[0] >= before && free.get(0)[0] <= after, format(free).toString());
+        }
+    }
+
+    @Test
+    void freeIntervalsAreEmptyForPastDays() {
+        assertEquals(List.of(), format(availabilityService.freeIntervals(LocalDate.now().minusDays(1),
+            List.<int[]>of(new int[]{540, 1080}), List.of())));
+    }
+
+    @Test
+    void availableSlotsFollowGridAndSkipBusyTime() {
+        List<String> slots = availabilityService.findAvailableSlots(SERVICE_ID, DATE, DATE)
+            .map(AppointmentAvailabilityServiceTest::format)
+            .collect(Collectors.toList());
+
+        assertEquals(List.of(
+            "1 09:00-09:30", "1 09:15-09:45", "1 09:30-10:00",
+            "2 09:45-10:15", "2 10:00-10:30", "2 10:15-10:45", "2 10:30-11:00", "2 10:45-11:15",
+            "1 11:00-11:30", "2 11:00-11:30", "1 11:15-11:45", "2 11:15-11:45", "1 11:30-12:00", "2 11:30-12:00"),
+            slots);
+    }
+
+    @Test
+    void availableSlotsRejectPastPeriod() {
+        RuntimeException e = assertThrows(RuntimeException.class, () -> availabilityService.findAvailableSlots(
+            SERVICE_ID, LocalDate.now().minusDays(1), DATE));
+        assertEquals("Дата не может быть в прошлом", e.getMessage());
+    }
+
+    /**
+     * Лучшие варианты не оставляют остатков короче самой короткой услуги и занимают
+     * самый тесный промежуток: часовые промежутки мастера 1 заполняются раньше
+     * длинного промежутка мастера 2, а время с 15-минутными остатками - позже времени,
+     * оставляющего два пригодных остатка.
+     */
+    @Test
+    void rankBestFitPrefersTightGapsWithoutUnusableRemainders() {
+        List<String> ranked = availabilityService.rankBestFit(SERVICE_ID, DATE, null, null).stream()
+            .map(AppointmentAvailabilityServiceTest::format)
+            .collect(Collectors.toList());
+
+        assertEquals(List.of("1 09:00-09:30", "1 09:30-10:00", "1 11:00-11:30", "1 11:30-12:00",
+            "2 09:45-10:15", "2 11:30-12:00"), ranked.subList(0, 6));
+        assertTrue(ranked.indexOf("1 09:15-09:45") > ranked.indexOf("2 10:15-10:45"), ranked.toString());
+    }
+
+    @Test
+    void rankBestFitKeepsToWindow() {
+        List<AvailableSlotDTO> ranked = availabilityService.rankBestFit(SERVICE_ID, DATE,
+            LocalTime.of(10, 0), LocalTime.of(11, 45));
+
+        assertEquals("1 11:00-11:30", format(ranked.get(0)));
+        assertTrue(ranked.stream().allMatch(slot -> !slot.getTime().isBefore(LocalTime.of(10, 0))
+            && !slot.getEndTime().isAfter(LocalTime.of(11, 45))), ranked.toString());
+    }
+
+    @Test
+    void rankBestFitRejectsPastDateAndEmptyWindow() {
+        assertThrows(RuntimeException.class,
+            () -> availabilityService.rankBestFit(SERVICE_ID, LocalDate.now().minusDays(1), null, null));
+        assertThrows(RuntimeException.class,
+            () -> availabilityService.rankBestFit(SERVICE_ID, DATE, LocalTime.of(12, 0), LocalTime.of(10, 0)));
+    }
+
+    private static Master master(Integer id) {
+        Master master = new Master();
+        master.setId(id);
+        return master;
+    }
+
+    private static String format(AvailableSlotDTO slot) {
+        return slot.getMasterId() + " " + slot.getTime() + "-" + slot.getEndTime();
+    }
+
+    private static List<String> format(List<int[]> intervals) {
+        List<String> formatted = new ArrayList<>();
+        for (int[] interval : intervals) {
+            formatted.add(interval[0] + "-" + interval[1]);
+        }
+        return formatted;
+    }
+}
@@ -0,0 +1,130 @@
+package com.parik.service;
+
+import com.parik.dto.AppointmentEventDTO;
+import com.parik.model.Appointment;
+import com.parik.model.AppointmentStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка дочитывания пропущенных событий в {@link AppointmentEventBus}
+ * при переподключении клиента с Last-Event-ID.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+class AppointmentEventBusTest {
+
+    private static final int BUFFER = 8;
+
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+
+    private AppointmentEventBus eventBus;
+
+    @BeforeEach
+    void setUp() {
+        eventBus = new AppointmentEventBus() {
+            @Override
+            SseEmitter newEmitter() {
+                return new RecordingEmitter();
+            }
+        };
+        ReflectionTestUtils.setField(eventBus, "replaySize", 1000);
+        ReflectionTestUtils.setField(eventBus, "subscriberBuffer", BUFFER);
+        ReflectionTestUtils.setField(eventBus, "timeoutMs", 60_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventBus.shutdown();
+    }
+
+    @Test
+    void reconnectBehindMoreThanBufferGetsReset() throws InterruptedException {
+        publish(BUFFER * 3);
+
+        eventBus.subscribe(null, null, lastEventId(1));
+
+        awaitSent(1);
+        Thread.sleep(100);
+        assertEquals(List.of("reset"), sent);
+        assertEquals(1, eventBus.getSubscriberCount());
+    }
+
+    @Test
+    void reconnectWithinBufferReplaysMissedEvents() throws InterruptedException {
+        publish(BUFFER);
+
+        eventBus.subscribe(null, null, lastEventId(2));
+
+        awaitSent(BUFFER - 2);
+        assertTrue(sent.stream().allMatch("appointment"::equals));
+        assertEquals(1, eventBus.getSubscriberCount());
+    }
+
+    @Test
+    void onlyMatchingEventsCountAgainstBuffer() throws InterruptedException {
+        publish(BUFFER * 3);
+
+        // Пропущено вдвое больше событий, чем вмещает очередь, но мастеру 1
+        // принадлежит только каждое второе - они помещаются в очередь целиком
+        eventBus.subscribe(1, null, lastEventId(BUFFER));
+
+        awaitSent(BUFFER);
+        assertTrue(sent.stream().allMatch("appointment"::equals));
+        assertEquals(1, eventBus.getSubscriberCount());
+    }
+
+    private void publish(int count) {
+        for (int i = 1; i <= count; i++) {
+            Appointment appointment = new Appointment();
+            appointment.setId(i);
+            appointment.setClientId(1);
+            appointment.setMasterId(i % 2 == 0 ? 1 : 2);
+            appointment.setServiceId(1);
+            appointment.setDate(LocalDate.now().plusDays(1));
+            appointment.setTime(LocalTime.of(10, 0));
+            appointment.setStatus(AppointmentStatus.PLANNED);
+            eventBus.publish(AppointmentEventDTO.Type.CREATED, null, appointment);
+        }
+    }
+
+    private String lastEventId(int sequence) {
+        return ReflectionTestUtils.getField(eventBus, "instance") + ":" + sequence;
+    }
+
+    private void awaitSent(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (sent.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, sent.size());
+    }
+
+    /** Запоминает имена отправленных событий вместо записи в ответ. */
+    private final class RecordingEmitter extends SseEmitter {
+        @Override
+        public void send(SseEventBuilder builder) {
+            StringBuilder text = new StringBuilder();
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof String) {
+                    text.append(part.getData());
+                }
+            }
+            int start = text.indexOf("event:") + "event:".length();
+            sent.add(text.substring(start, text.indexOf("\n", start)));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.parik.service;
+
+import com.parik.TestDatabase;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Проверка итогов выручки после заполнения цен записей ({@link AppointmentPriceBackfillService}).
+ * Выполненная запись без цены учтена в daily_revenue и revenue_cube по цене услуги на момент
+ * выполнения; после смены цены услуги заполнение фиксирует новую цену, и итоги дня должны
+ * пересчитаться по ней - иначе последующая отмена вычтет из итогов другую сумму.
+ * <p>
+ * Нужна база, созданная schema.sql (см. {@link TestDatabase}); без доступной базы тест
+ * пропускается. Заполнение проходит по всей базе, как при запуске приложения; тестовые
+ * мастер, услуга и итоги их дня удаляются после теста.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+class AppointmentPriceBackfillRollupTest {
+
+    /** День без других записей: итоги дня складываются только из записей теста. */
+    private static final LocalDate DATE = LocalDate.now().plusYears(50);
+
+    private static Connection connection;
+    private static JdbcTemplate jdbcTemplate;
+
+    private final AppointmentPriceBackfillService backfillService = new AppointmentPriceBackfillService();
+
+    private int master;
+    private int service;
+
+    @BeforeAll
+    static void connect() {
+        connection = TestDatabase.connect();
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+            TestDatabase.url(), TestDatabase.username(), TestDatabase.password()));
+    }
+
+    @AfterAll
+    static void disconnect() throws SQLException {
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(backfillService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(backfillService, "transactionTemplate", new TransactionTemplate(
+            new DataSourceTransactionManager(jdbcTemplate.getDataSource())));
+        ReflectionTestUtils.setField(backfillService, "chunkSize", 1000);
+        ReflectionTestUtils.setField(backfillService, "chunkPauseMs", 0L);
+
+        master = jdbcTemplate.queryForObject("INSERT INTO masters (name, specialization) "
+            + "VALUES ('Мастер проверки заполнения цен', 'Тест') RETURNING id", Integer.class);
+        service = jdbcTemplate.queryForObject("INSERT INTO services (name, price, duration) "
+            + "VALUES ('Услуга проверки заполнения цен', 1000, 60) RETURNING id", Integer.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Записи мастера удаляются каскадно
+        jdbcTemplate.update("DELETE FROM masters WHERE id = ?", master);
+        jdbcTemplate.update("DELETE FROM services WHERE id = ?", service);
+        jdbcTemplate.update("DELETE FROM daily_revenue WHERE date = ?", DATE);
+    }
+
+    @Test
+    void rollupsFollowBackfilledPrice() {
+        Integer client = jdbcTemplate.queryForObject("SELECT min(id) FROM users", Integer.class);
+        // Выполненная запись без цены учтена в итогах по цене услуги 1000
+        Integer appointment = jdbcTemplate.queryForObject("INSERT INTO appointments "
+            + "(client_id, master_id, service_id, date, time, duration, status) "
+            + "VALUES (?, ?, ?, ?, '10:00', 60, 2) RETURNING id", Integer.class, client, master, service, DATE);
+        jdbcTemplate.update("UPDATE services SET price = 1500 WHERE id = ?", service);
+
+        backfillService.backfill();
+
+        assertEquals(new BigDecimal("1500.00"), jdbcTemplate.queryForObject(
+            "SELECT price FROM appointments WHERE id = ?", BigDecimal.class, appointment));
+        assertEquals(new BigDecimal("1500.00"), dailyIncome());
+        assertEquals(new BigDecimal("1500.00"), cubeIncome());
+
+        jdbcTemplate.update("UPDATE appointments SET status = 3 WHERE id = ? AND date = ?", appointment, DATE);
+
+        assertEquals(new BigDecimal("0.00"), dailyIncome());
+        assertEquals(0, jdbcTemplate.queryForObject(
+            "SELECT completed_count FROM daily_revenue WHERE date = ?", Integer.class, DATE));
+        assertEquals(new BigDecimal("0.00"), cubeIncome());
+    }
+
+    private BigDecimal dailyIncome() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(sum(income), 0.00) FROM daily_revenue WHERE date = ?",
+            BigDecimal.class, DATE);
+    }
+
+    private BigDecimal cubeIncome() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(sum(income), 0.00) FROM revenue_cube "
+            + "WHERE date = ? AND master_id = ?", BigDecimal.class, DATE, master);
+    }
+}
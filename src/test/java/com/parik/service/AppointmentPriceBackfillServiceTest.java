@@ -0,0 +1,168 @@
+package com.parik.service;
+
+import com.parik.model.AppointmentStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Проверка заполнения цен записей ({@link AppointmentPriceBackfillService}): заполнение
+ * останавливается на первой неполной порции, а итоги выручки пересчитываются только
+ * за дни выполненных записей порции.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class AppointmentPriceBackfillServiceTest {
+
+    private static final int CHUNK_SIZE = 3;
+    private static final LocalDate DATE = LocalDate.of(2024, 5, 20);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private AppointmentPriceBackfillService backfillService;
+
+    /** Строки, которые вернёт каждая следующая порция; после последней порции строк нет. */
+    private final Deque<List<ResultSet>> chunks = new ArrayDeque<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ReflectionTestUtils.setField(backfillService, "transactionTemplate", new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(backfillService, "chunkSize", CHUNK_SIZE);
+        ReflectionTestUtils.setField(backfillService, "chunkPauseMs", 0L);
+
+        when(jdbcTemplate.query(startsWith("WITH chunk"), any(RowMapper.class), eq(CHUNK_SIZE)))
+            .thenAnswer(invocation -> {
+                RowMapper<Integer> mapper = invocation.getArgument(1);
+                List<ResultSet> rows = chunks.isEmpty() ? Collections.emptyList() : chunks.poll();
+                List<Integer> mapped = new ArrayList<>();
+                for (int i = 0; i < rows.size(); i++) {
+                    mapped.add(mapper.mapRow(rows.get(i), i));
+                }
+                return mapped;
+            });
+    }
+
+    @Test
+    void stopsAfterPartialChunk() throws SQLException {
+        chunks.add(planned(3));
+        chunks.add(planned(3));
+        chunks.add(planned(1));
+
+        assertEquals(7, backfillService.backfill());
+        verifyChunks(3);
+    }
+
+    /**
+     * Число строк кратно размеру порции: последняя полная порция не означает конец,
+     * заполнение завершает пустая порция.
+     */
+    @Test
+    void stopsAfterEmptyChunkWhenRowsFillWholeChunks() throws SQLException {
+        chunks.add(planned(3));
+        chunks.add(planned(3));
+
+        assertEquals(6, backfillService.backfill());
+        verifyChunks(3);
+    }
+
+    @Test
+    void nothingToFillTakesOneQuery() {
+        assertEquals(0, backfillService.backfill());
+        verifyChunks(1);
+        verify(jdbcTemplate, never()).queryForObject(startsWith("SELECT rebuild_revenue_rollups"), eq(String.class),
+            anyString());
+    }
+
+    @Test
+    void interruptedBackfillStopsBetweenChunks() throws SQLException {
+        ReflectionTestUtils.setField(backfillService, "chunkPauseMs", 10L);
+        chunks.add(planned(3));
+        chunks.add(planned(3));
+
+        Thread.currentThread().interrupt();
+        try {
+            assertEquals(3, backfillService.backfill());
+        } finally {
+            Thread.interrupted();
+        }
+        verifyChunks(1);
+    }
+
+    @Test
+    void rollupsAreRebuiltForCompletedDaysOnly() throws SQLException {
+        List<ResultSet> chunk = new ArrayList<>();
+        chunk.add(row(AppointmentStatus.COMPLETED, DATE.plusDays(2)));
+        chunk.add(row(AppointmentStatus.PLANNED, DATE.plusDays(1)));
+        chunk.add(row(AppointmentStatus.COMPLETED, DATE));
+        chunks.add(chunk);
+        chunks.add(List.of(row(AppointmentStatus.COMPLETED, DATE)));
+
+        assertEquals(4, backfillService.backfill());
+
+        verify(jdbcTemplate).queryForObject(startsWith("SELECT rebuild_revenue_rollups"), eq(String.class),
+            eq("{2024-05-20,2024-05-22}"));
+        verify(jdbcTemplate).queryForObject(startsWith("SELECT rebuild_revenue_rollups"), eq(String.class),
+            eq("{2024-05-20}"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void verifyChunks(int count) {
+        verify(jdbcTemplate, times(count)).query(startsWith("WITH chunk"), any(RowMapper.class), eq(CHUNK_SIZE));
+        verify(jdbcTemplate, times(count)).queryForObject(startsWith("SELECT set_config('parik.rollup_paused'"),
+            eq(String.class));
+    }
+
+    private static List<ResultSet> planned(int count) throws SQLException {
+        List<ResultSet> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(row(AppointmentStatus.PLANNED, DATE));
+        }
+        return rows;
+    }
+
+    private static ResultSet row(AppointmentStatus status, LocalDate date) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getInt("status")).thenReturn((int) status.getCode());
+        when(rs.getObject("date", LocalDate.class)).thenReturn(date);
+        return rs;
+    }
+}
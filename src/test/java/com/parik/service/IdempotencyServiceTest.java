@@ -0,0 +1,194 @@
+package com.parik.service;
+
+import com.parik.model.IdempotencyRecord;
+import com.parik.repository.IdempotencyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Проверка ключей идемпотентности ({@link IdempotencyService#begin}): повтор выполненного
+ * запроса, ключ с другим телом, запрос в работе, освобождение и перехват брошенного ключа.
+ * Таблица idempotency_keys подменена картой, из которой каждое чтение возвращает копию.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class IdempotencyServiceTest {
+
+    private static final String KEY = "3f1c9a";
+    private static final String SCOPE = "7 POST /api/appointments";
+    private static final byte[] BODY = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+
+    @Mock
+    private IdempotencyRepository idempotencyRepository;
+
+    @InjectMocks
+    private IdempotencyService idempotencyService;
+
+    private final Map<String, IdempotencyRecord> table = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(idempotencyService, "cacheSize", 100);
+        ReflectionTestUtils.setField(idempotencyService, "ttlHours", 24L);
+        ReflectionTestUtils.setField(idempotencyService, "inProgressTimeoutSeconds", 60L);
+
+        when(idempotencyRepository.claim(any(IdempotencyRecord.class))).thenAnswer(invocation -> {
+            IdempotencyRecord record = invocation.getArgument(0);
+            return table.putIfAbsent(row(record.getKey(), record.getScope()), copy(record)) == null;
+        });
+        when(idempotencyRepository.find(anyString(), anyString())).thenAnswer(invocation ->
+            Optional.ofNullable(table.get(row(invocation.getArgument(0), invocation.getArgument(1))))
+                .map(IdempotencyServiceTest::copy));
+        doAnswer(invocation -> {
+            IdempotencyRecord record = invocation.getArgument(0);
+            table.put(row(record.getKey(), record.getScope()), copy(record));
+            return null;
+        }).when(idempotencyRepository).complete(any(IdempotencyRecord.class));
+        doAnswer(invocation -> table.remove(row(invocation.getArgument(0), invocation.getArgument(1))))
+            .when(idempotencyRepository).delete(anyString(), anyString());
+    }
+
+    @Test
+    void completedRequestIsReplayed() {
+        IdempotencyService.Attempt first = idempotencyService.begin(KEY, SCOPE, "hash");
+        assertEquals(IdempotencyService.State.STARTED, first.getState());
+        idempotencyService.complete(first.getRecord(), 201, "application/json", BODY);
+
+        IdempotencyService.Attempt repeat = idempotencyService.begin(KEY, SCOPE, "hash");
+
+        assertEquals(IdempotencyService.State.REPLAY, repeat.getState());
+        assertEquals(201, repeat.getRecord().getStatusCode());
+        assertArrayEquals(BODY, repeat.getRecord().getBody());
+        // Повтор обслужен кэшем недавних ключей без обращения к таблице
+        verify(idempotencyRepository, never()).find(anyString(), anyString());
+    }
+
+    /**
+     * Запрос выполнил другой экземпляр приложения: ответ читается из общей таблицы.
+     */
+    @Test
+    void requestCompletedElsewhereIsReplayedFromTable() {
+        table.put(row(KEY, SCOPE), stored("hash", 201, LocalDateTime.now()));
+
+        IdempotencyService.Attempt repeat = idempotencyService.begin(KEY, SCOPE, "hash");
+
+        assertEquals(IdempotencyService.State.REPLAY, repeat.getState());
+        assertArrayEquals(BODY, repeat.getRecord().getBody());
+    }
+
+    @Test
+    void sameKeyWithOtherBodyIsMismatch() {
+        IdempotencyService.Attempt first = idempotencyService.begin(KEY, SCOPE, "hash");
+        idempotencyService.complete(first.getRecord(), 201, "application/json", BODY);
+
+        assertEquals(IdempotencyService.State.MISMATCH, idempotencyService.begin(KEY, SCOPE, "other").getState());
+
+        // То же по записи из таблицы, ещё не попавшей в кэш
+        table.put(row("d41d8c", SCOPE), stored("hash", 201, LocalDateTime.now()));
+        assertEquals(IdempotencyService.State.MISMATCH, idempotencyService.begin("d41d8c", SCOPE, "other").getState());
+    }
+
+    @Test
+    void keyIsScopedToUserAndEndpoint() {
+        idempotencyService.begin(KEY, SCOPE, "hash");
+
+        assertEquals(IdempotencyService.State.STARTED,
+            idempotencyService.begin(KEY, "8 POST /api/appointments", "hash").getState());
+    }
+
+    @Test
+    void repeatWhileRunningIsInProgress() {
+        idempotencyService.begin(KEY, SCOPE, "hash");
+
+        assertEquals(IdempotencyService.State.IN_PROGRESS, idempotencyService.begin(KEY, SCOPE, "hash").getState());
+    }
+
+    @Test
+    void abandonedKeyCanBeReused() {
+        IdempotencyService.Attempt first = idempotencyService.begin(KEY, SCOPE, "hash");
+
+        idempotencyService.abandon(first.getRecord());
+
+        assertEquals(IdempotencyService.State.STARTED, idempotencyService.begin(KEY, SCOPE, "hash").getState());
+    }
+
+    /**
+     * Экземпляр приложения остановился, не сохранив ответ: по истечении таймаута
+     * ключ занимается заново, даже с другим телом запроса.
+     */
+    @Test
+    void keyHeldPastTimeoutIsReclaimed() {
+        table.put(row(KEY, SCOPE), stored("hash", null, LocalDateTime.now().minusSeconds(61)));
+
+        IdempotencyService.Attempt attempt = idempotencyService.begin(KEY, SCOPE, "other");
+
+        assertEquals(IdempotencyService.State.STARTED, attempt.getState());
+        assertEquals("other", table.get(row(KEY, SCOPE)).getRequestHash());
+    }
+
+    @Test
+    void expiredKeyIsReclaimed() {
+        IdempotencyRecord expired = stored("hash", 201, LocalDateTime.now().minusHours(25));
+        expired.setExpiresAt(LocalDateTime.now().minusHours(1));
+        table.put(row(KEY, SCOPE), expired);
+
+        assertEquals(IdempotencyService.State.STARTED, idempotencyService.begin(KEY, SCOPE, "hash").getState());
+    }
+
+    private static IdempotencyRecord stored(String requestHash, Integer statusCode, LocalDateTime createdAt) {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setKey(KEY);
+        record.setScope(SCOPE);
+        record.setRequestHash(requestHash);
+        record.setCreatedAt(createdAt);
+        record.setExpiresAt(createdAt.plusHours(24));
+        if (statusCode != null) {
+            record.setStatusCode(statusCode);
+            record.setContentType("application/json");
+            record.setBody(BODY);
+        }
+        return record;
+    }
+
+    private static IdempotencyRecord copy(IdempotencyRecord record) {
+        IdempotencyRecord copy = new IdempotencyRecord();
+        copy.setKey(record.getKey());
+        copy.setScope(record.getScope());
+        copy.setRequestHash(record.getRequestHash());
+        copy.setStatusCode(record.getStatusCode());
+        copy.setContentType(record.getContentType());
+        copy.setBody(record.getBody());
+        copy.setCreatedAt(record.getCreatedAt());
+        copy.setExpiresAt(record.getExpiresAt());
+        return copy;
+    }
+
+    private static String row(String key, String scope) {
+        return scope + '\n' + key;
+    }
+}
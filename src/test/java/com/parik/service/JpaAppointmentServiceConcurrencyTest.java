@@ -0,0 +1,253 @@
+package com.parik.service;
+
+import com.parik.model.Appointment;
+import com.parik.model.AppointmentStatus;
+import com.parik.repository.JpaAppointmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.mockito.stubbing.Answer;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Нагрузочная проверка защиты от двойного бронирования в {@link JpaAppointmentService#createAppointment}.
+ * Несколько потоков одновременно записываются к одному мастеру на одно время:
+ * успешной должна быть ровно одна запись, остальные - отклонены с сообщением «Это время уже занято».
+ * Одновременные изменения одной записи не должны затирать друг друга.
+ * <p>
+ * Репозиторий подменён: проверяются блокировки дней мастера в Java. Ограничение-исключение
+ * базы проверяет {@link com.parik.repository.AppointmentOverlapConstraintTest}.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class JpaAppointmentServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final Integer MASTER_ID = 7;
+    private static final Integer SERVICE_ID = 3;
+    private static final LocalDate DATE = LocalDate.now().plusDays(1);
+    private static final LocalTime TIME = LocalTime.of(12, 0);
+    private static final Integer EXISTING_ID = 42;
+
+    @Mock
+    private JpaAppointmentRepository appointmentRepository;
+
+    @Mock
+    private AppointmentSlotIndex slotIndex;
+
+    @Mock
+    private MasterScheduleCache scheduleCache;
+
+    @Mock
+    private WorkingHoursService workingHours;
+
+    @Mock
+    private AppointmentEventBus eventBus;
+
+    @Spy
+    private MasterDayLocks dayLocks = new MasterDayLocks();
+
+    @InjectMocks
+    private JpaAppointmentService appointmentService;
+
+    private final AtomicInteger ids = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        when(workingHours.isOpen(eq(MASTER_ID), eq(DATE), eq(TIME), anyInt())).thenReturn(true);
+        when(slotIndex.durationOf(SERVICE_ID)).thenReturn(60);
+    }
+
+    /**
+     * Индекс занятости видит уже сохранённую запись: блокировка дня мастера
+     * не даёт второму потоку пройти проверку до того, как первый сохранит запись.
+     */
+    @Test
+    void stripeLockAllowsSingleBooking() throws Exception {
+        AtomicBoolean booked = new AtomicBoolean();
+        when(slotIndex.isFree(MASTER_ID, DATE, TIME, SERVICE_ID)).thenAnswer(invocation -> !booked.get());
+        when(appointmentRepository.saveAndFlush(any(Appointment.class))).thenAnswer(invocation -> {
+            // Окно между проверкой и сохранением, в которое без блокировки попали бы другие потоки
+            Thread.sleep(20);
+            booked.set(true);
+            return saved(invocation.getArgument(0));
+        });
+
+        List<String> outcomes = bookConcurrently();
+
+        assertSingleBooking(outcomes);
+        verify(appointmentRepository, times(1)).saveAndFlush(any(Appointment.class));
+    }
+
+    /**
+     * Индекс занятости устарел (время заняли в обход этого экземпляра), поэтому все потоки
+     * доходят до базы: ограничение-исключение отклоняет все записи, кроме первой,
+     * а нарушение 23P01 переводится в «Это время уже занято».
+     */
+    @Test
+    void exclusionConstraintViolationIsTranslated() throws Exception {
+        AtomicBoolean booked = new AtomicBoolean();
+        when(slotIndex.isFree(MASTER_ID, DATE, TIME, SERVICE_ID)).thenReturn(true);
+        when(appointmentRepository.saveAndFlush(any(Appointment.class))).thenAnswer(invocation -> {
+            if (!booked.compareAndSet(false, true)) {
+                throw new DataIntegrityViolationException("could not execute statement",
+                    new SQLException("conflicting key value violates exclusion constraint", "23P01"));
+            }
+            return saved(invocation.getArgument(0));
+        });
+
+        List<String> outcomes = bookConcurrently();
+
+        assertSingleBooking(outcomes);
+        verify(appointmentRepository, times(THREADS)).saveAndFlush(any(Appointment.class));
+        verify(slotIndex, times(THREADS - 1)).evict(MASTER_ID, DATE);
+    }
+
+    /**
+     * Перенос записи на другой день и её завершение выполняются одновременно.
+     * Каждое изменение читает запись под блокировкой дня мастера, поэтому второе
+     * применяется к результату первого, а не к состоянию до него.
+     */
+    @Test
+    void concurrentEditsDoNotOverwriteEachOther() throws Exception {
+        AtomicReference<Appointment> stored = new AtomicReference<>();
+        when(appointmentRepository.findById(EXISTING_ID))
+            .thenAnswer(invocation -> Optional.of(AppointmentSlotIndex.snapshot(stored.get())));
+        Answer<Appointment> store = invocation -> {
+            // Окно между чтением и сохранением, в которое без блокировки попало бы второе изменение
+            Thread.sleep(20);
+            Appointment appointment = invocation.getArgument(0);
+            stored.set(AppointmentSlotIndex.snapshot(appointment));
+            return appointment;
+        };
+        when(appointmentRepository.saveAndFlush(any(Appointment.class))).thenAnswer(store);
+        when(appointmentRepository.save(any(Appointment.class))).thenAnswer(store);
+        when(workingHours.isOpen(eq(MASTER_ID), any(LocalDate.class), any(LocalTime.class), anyInt()))
+            .thenReturn(true);
+        when(slotIndex.isFree(eq(MASTER_ID), any(LocalDate.class), any(LocalTime.class), eq(SERVICE_ID),
+            eq(EXISTING_ID))).thenReturn(true);
+
+        Appointment details = new Appointment();
+        details.setDate(DATE.plusDays(1));
+        details.setTime(LocalTime.of(15, 0));
+        for (int round = 0; round < 10; round++) {
+            Appointment existing = appointment(1);
+            existing.setId(EXISTING_ID);
+            existing.setStatus(AppointmentStatus.PLANNED);
+            stored.set(existing);
+
+            runConcurrently(() -> appointmentService.updateAppointment(EXISTING_ID, details),
+                () -> appointmentService.completeAppointment(EXISTING_ID));
+
+            assertEquals(DATE.plusDays(1), stored.get().getDate());
+            assertEquals(LocalTime.of(15, 0), stored.get().getTime());
+            assertEquals(AppointmentStatus.COMPLETED, stored.get().getStatus());
+        }
+    }
+
+    private static void runConcurrently(Runnable... actions) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(actions.length);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (Runnable action : actions) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    action.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<String> bookConcurrently() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                int clientId = i + 1;
+                Callable<String> booking = () -> {
+                    start.await();
+                    try {
+                        appointmentService.createAppointment(appointment(clientId));
+                        return "OK";
+                    } catch (RuntimeException e) {
+                        return e.getMessage();
+                    }
+                };
+                futures.add(executor.submit(booking));
+            }
+            start.countDown();
+            List<String> outcomes = new ArrayList<>();
+            for (Future<String> future : futures) {
+                outcomes.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return outcomes;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void assertSingleBooking(List<String> outcomes) {
+        assertEquals(THREADS, outcomes.size());
+        assertEquals(1, outcomes.stream().filter("OK"::equals).count(), outcomes.toString());
+        assertTrue(outcomes.stream().filter(outcome -> !"OK".equals(outcome))
+            .allMatch("Это время уже занято"::equals), outcomes.toString());
+    }
+
+    private static Appointment appointment(Integer clientId) {
+        Appointment appointment = new Appointment();
+        appointment.setClientId(clientId);
+        appointment.setMasterId(MASTER_ID);
+        appointment.setServiceId(SERVICE_ID);
+        appointment.setDate(DATE);
+        appointment.setTime(TIME);
+        return appointment;
+    }
+
+    private Appointment saved(Appointment appointment) {
+        appointment.setId(ids.incrementAndGet());
+        return appointment;
+    }
+}
@@ -0,0 +1,162 @@
+package com.parik.service;
+
+import com.parik.model.Appointment;
+import com.parik.model.AppointmentStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Проверка кэша расписаний мастеров ({@link MasterScheduleCache}): сквозная запись изменений
+ * в закэшированные дни, срок хранения, вытеснение и гонка загрузки дня с изменением записи.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+class MasterScheduleCacheTest {
+
+    private static final Integer MASTER_ID = 1;
+    private static final LocalDate DATE = LocalDate.now().plusDays(1);
+
+    private MasterScheduleCache cache;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        cache = new MasterScheduleCache();
+        ReflectionTestUtils.setField(cache, "maxSize", 100);
+        ReflectionTestUtils.setField(cache, "ttlMinutes", 10L);
+    }
+
+    @Test
+    void dayIsLoadedOnceAndSortedByTime() {
+        Supplier<List<Appointment>> loader = loader(appointment(2, DATE, 12), appointment(1, DATE, 10));
+
+        List<Appointment> first = cache.get(MASTER_ID, DATE, loader);
+        List<Appointment> second = cache.get(MASTER_ID, DATE, loader);
+
+        assertEquals(1, loads.get());
+        assertEquals(List.of(1, 2), ids(first));
+        assertEquals(List.of(1, 2), ids(second));
+        assertEquals(1L, cache.getStatistics().get("hits"));
+        assertEquals(1L, cache.getStatistics().get("misses"));
+    }
+
+    @Test
+    void replaceUpdatesCachedDays() {
+        LocalDate nextDay = DATE.plusDays(1);
+        cache.get(MASTER_ID, DATE, loader(appointment(1, DATE, 10), appointment(2, DATE, 12)));
+        cache.get(MASTER_ID, nextDay, loader());
+
+        // Перенос записи 1 на следующий день и новая запись 3 перед записью 2
+        Appointment before = appointment(1, DATE, 10);
+        cache.replace(before, appointment(1, nextDay, 9));
+        cache.replace(null, appointment(3, DATE, 11));
+
+        assertEquals(List.of(3, 2), ids(cache.get(MASTER_ID, DATE, loader())));
+        assertEquals(List.of(1), ids(cache.get(MASTER_ID, nextDay, loader())));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void replaceSkipsDaysNotInCache() {
+        cache.replace(null, appointment(1, DATE, 10));
+
+        assertEquals(List.of(2), ids(cache.get(MASTER_ID, DATE, loader(appointment(2, DATE, 12)))));
+    }
+
+    /**
+     * Запись изменилась, пока день читался из базы: прочитанное состояние могло не включать
+     * изменение, поэтому день возвращается вызывающему, но в кэш не кладётся.
+     */
+    @Test
+    void dayLoadedDuringWriteIsNotCached() {
+        Supplier<List<Appointment>> racing = () -> {
+            loads.incrementAndGet();
+            cache.replace(null, appointment(2, DATE, 12));
+            return List.of(appointment(1, DATE, 10));
+        };
+
+        assertEquals(List.of(1), ids(cache.get(MASTER_ID, DATE, racing)));
+        assertEquals(List.of(1, 2),
+            ids(cache.get(MASTER_ID, DATE, loader(appointment(1, DATE, 10), appointment(2, DATE, 12)))));
+        assertEquals(2, loads.get());
+        // Загрузка после изменения уже кладётся в кэш
+        cache.get(MASTER_ID, DATE, loader());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void expiredDayIsReloaded() {
+        ReflectionTestUtils.setField(cache, "ttlMinutes", 0L);
+
+        cache.get(MASTER_ID, DATE, loader(appointment(1, DATE, 10)));
+        cache.get(MASTER_ID, DATE, loader(appointment(1, DATE, 10)));
+
+        assertEquals(2, loads.get());
+        assertEquals(1L, cache.getStatistics().get("expirations"));
+    }
+
+    @Test
+    void leastRecentlyReadDayIsEvicted() {
+        ReflectionTestUtils.setField(cache, "maxSize", 2);
+        cache.get(MASTER_ID, DATE, loader());
+        cache.get(MASTER_ID, DATE.plusDays(1), loader());
+        cache.get(MASTER_ID, DATE, loader());
+        cache.get(MASTER_ID, DATE.plusDays(2), loader());
+
+        cache.get(MASTER_ID, DATE, loader());
+        assertEquals(3, loads.get());
+        cache.get(MASTER_ID, DATE.plusDays(1), loader());
+        assertEquals(4, loads.get());
+        assertEquals(2L, cache.getStatistics().get("evictions"));
+    }
+
+    @Test
+    void updateStatusKeepsEarlierListsUnchanged() {
+        List<Appointment> earlier = cache.get(MASTER_ID, DATE, loader(appointment(1, DATE, 10)));
+
+        cache.updateStatus(MASTER_ID, DATE, 1, AppointmentStatus.COMPLETED);
+
+        assertEquals(AppointmentStatus.PLANNED, earlier.get(0).getStatus());
+        assertEquals(AppointmentStatus.COMPLETED, cache.get(MASTER_ID, DATE, loader()).get(0).getStatus());
+    }
+
+    private Supplier<List<Appointment>> loader(Appointment... appointments) {
+        return () -> {
+            loads.incrementAndGet();
+            return List.of(appointments);
+        };
+    }
+
+    private static Appointment appointment(Integer id, LocalDate date, int hour) {
+        Appointment appointment = new Appointment();
+        appointment.setId(id);
+        appointment.setClientId(1);
+        appointment.setMasterId(MASTER_ID);
+        appointment.setServiceId(1);
+        appointment.setDate(date);
+        appointment.setTime(LocalTime.of(hour, 0));
+        appointment.setDuration(60);
+        appointment.setStatus(AppointmentStatus.PLANNED);
+        return appointment;
+    }
+
+    private static List<Integer> ids(List<Appointment> appointments) {
+        List<Integer> ids = new ArrayList<>();
+        for (Appointment appointment : appointments) {
+            ids.add(appointment.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,90 @@
+package com.parik.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка реестра сортировок ({@link SortRegistry}): допускаются только
+ * зарегистрированные ключи и порядки, а id всегда замыкает упорядочение.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+class SortRegistryTest {
+
+    private final SortRegistry sorts = new SortRegistry("name")
+        .register("name")
+        .register("masterId", "masterId", "date", "time")
+        .register("id");
+
+    @Test
+    void registeredKeyMapsToIndexedOrderingWithIdLast() {
+        assertEquals(List.of("masterId", "date", "time", "id"), properties(sorts.resolve("masterId", "asc")));
+        assertEquals(List.of("name", "id"), properties(sorts.resolve("name", null)));
+        assertEquals(List.of("id"), properties(sorts.resolve("id", null)));
+    }
+
+    @Test
+    void missingKeyUsesDefault() {
+        assertEquals(List.of("name", "id"), properties(sorts.resolve(null, null)));
+    }
+
+    @Test
+    void orderAppliesToEveryField() {
+        Sort sort = sorts.resolve("masterId", "DESC");
+
+        assertTrue(sort.stream().allMatch(Sort.Order::isDescending), sort.toString());
+        assertTrue(sorts.resolve("masterId", null).stream().allMatch(Sort.Order::isAscending));
+    }
+
+    /**
+     * Произвольное поле сущности или выражение из запроса не попадает в ORDER BY:
+     * отклоняется всё, что не зарегистрировано.
+     */
+    @Test
+    void unknownKeyIsRejected() {
+        for (String key : List.of("price", "date", "name; DROP TABLE services", "NAME", "")) {
+            RuntimeException e = assertThrows(RuntimeException.class, () -> sorts.resolve(key, "asc"));
+            assertTrue(e.getMessage().contains("name, masterId, id"), e.getMessage());
+        }
+    }
+
+    @Test
+    void unknownOrderIsRejected() {
+        RuntimeException e = assertThrows(RuntimeException.class, () -> sorts.resolve("name", "random"));
+        assertEquals("Неверный порядок сортировки: random", e.getMessage());
+    }
+
+    @Test
+    void pageUsesResolvedSort() {
+        Pageable page = sorts.page("masterId", "desc", 2, 20);
+
+        assertEquals(2, page.getPageNumber());
+        assertEquals(20, page.getPageSize());
+        assertEquals(List.of("masterId", "date", "time", "id"), properties(page.getSort()));
+        assertEquals(0, sorts.page(null, null, null, 20).getPageNumber());
+        assertThrows(RuntimeException.class, () -> sorts.page("name", "asc", -1, 20));
+    }
+
+    @Test
+    void serviceAndAppointmentSortsEndWithId() {
+        for (SortRegistry registry : List.of(JpaServiceService.SORTS, JpaAppointmentService.SORTS)) {
+            List<String> fields = properties(registry.resolve(null, null));
+            assertEquals("id", fields.get(fields.size() - 1));
+        }
+    }
+
+    private static List<String> properties(Sort sort) {
+        List<String> properties = new ArrayList<>();
+        sort.forEach(order -> properties.add(order.getProperty()));
+        return properties;
+    }
+}
@@ -0,0 +1,170 @@
+package com.parik.service;
+
+import com.parik.model.Appointment;
+import com.parik.model.WaitlistEntry;
+import com.parik.model.WaitlistStatus;
+import com.parik.repository.JpaAppointmentRepository;
+import com.parik.repository.JpaWaitlistRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Проверка снятия просроченных предложений листа ожидания
+ * ({@link JpaAppointmentService#expireWaitlistOffers}): время, на которое клиент
+ * не ответил, предлагается следующей подходящей заявке.
+ *
+ * @author Курбанов Умар Рашидович
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class WaitlistOfferExpiryTest {
+
+    private static final Integer MASTER_ID = 1;
+    private static final Integer SERVICE_ID = 2;
+    private static final LocalDate DATE = LocalDate.now().plusDays(1);
+
+    @Mock
+    private JpaWaitlistRepository waitlistRepository;
+
+    @Mock
+    private JpaAppointmentRepository appointmentRepository;
+
+    @Mock
+    private AppointmentSlotIndex slotIndex;
+
+    @Mock
+    private WorkingHoursService workingHours;
+
+    @Mock
+    private MasterScheduleCache scheduleCache;
+
+    @Mock
+    private AppointmentEventBus eventBus;
+
+    @Spy
+    private AppointmentAvailabilityService availabilityService = new AppointmentAvailabilityService();
+
+    @Spy
+    private MasterDayLocks dayLocks = new MasterDayLocks();
+
+    @InjectMocks
+    private WaitlistService waitlistService;
+
+    @InjectMocks
+    private JpaAppointmentService appointmentService;
+
+    private WaitlistEntry expired;
+    private WaitlistEntry outsideWindow;
+    private WaitlistEntry next;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(waitlistService, "offerTtlMinutes", 30);
+        ReflectionTestUtils.setField(appointmentService, "waitlistService", waitlistService);
+        ReflectionTestUtils.setField(appointmentService, "transactionTemplate",
+            new TransactionTemplate(mock(PlatformTransactionManager.class)));
+
+        // Мастер работает с 9:00 до 18:00, занято 10:00-11:00 и 12:00-13:00:
+        // промежуток 11:00-12:00 был предложен первой заявке и остался свободным
+        when(workingHours.openOn(MASTER_ID, DATE)).thenReturn(List.<int[]>of(new int[]{540, 1080}));
+        when(appointmentRepository.findBookedIntervals(MASTER_ID, DATE)).thenReturn(List.of(
+            new Object[]{10, LocalTime.of(10, 0), 60},
+            new Object[]{11, LocalTime.of(12, 0), 60}));
+        when(slotIndex.durationOf(SERVICE_ID)).thenReturn(30);
+        when(slotIndex.priceOf(SERVICE_ID)).thenReturn(new BigDecimal("1000"));
+
+        expired = entry(1, WaitlistStatus.OFFERED, LocalTime.of(9, 0), LocalTime.of(18, 0));
+        expired.setOfferedTime(LocalTime.of(11, 0));
+        expired.setOfferExpiresAt(LocalDateTime.now().minusMinutes(1));
+        outsideWindow = entry(2, WaitlistStatus.WAITING, LocalTime.of(14, 0), LocalTime.of(15, 0));
+        next = entry(3, WaitlistStatus.WAITING, LocalTime.of(10, 30), LocalTime.of(12, 30));
+
+        when(waitlistRepository.findExpiredOffers(any(LocalDateTime.class))).thenReturn(List.of(expired));
+        when(waitlistRepository.findById(1)).thenReturn(Optional.of(expired));
+        when(waitlistRepository.findWaitingForUpdate(MASTER_ID, DATE)).thenReturn(List.of(outsideWindow, next));
+        when(waitlistRepository.save(any(WaitlistEntry.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void expiredOfferIsReofferedToNextEntry() {
+        appointmentService.expireWaitlistOffers();
+
+        assertEquals(WaitlistStatus.EXPIRED, expired.getStatus());
+        assertEquals(WaitlistStatus.WAITING, outsideWindow.getStatus());
+        assertEquals(WaitlistStatus.OFFERED, next.getStatus());
+        assertEquals(LocalTime.of(11, 0), next.getOfferedTime());
+        verify(appointmentRepository, never()).saveAndFlush(any(Appointment.class));
+    }
+
+    @Test
+    void reofferedEntryWithAutoBookGetsAppointment() {
+        next.setAutoBook(true);
+        when(appointmentRepository.saveAndFlush(any(Appointment.class))).thenAnswer(invocation -> {
+            Appointment appointment = invocation.getArgument(0);
+            appointment.setId(100);
+            return appointment;
+        });
+
+        appointmentService.expireWaitlistOffers();
+
+        assertEquals(WaitlistStatus.EXPIRED, expired.getStatus());
+        assertEquals(WaitlistStatus.BOOKED, next.getStatus());
+        assertEquals(100, next.getAppointmentId());
+    }
+
+    /**
+     * Клиент принял предложение, пока задача ждала блокировку дня мастера:
+     * перечитанная заявка уже не в состоянии OFFERED, и время не предлагается другим.
+     */
+    @Test
+    void acceptedOfferIsNotExpired() {
+        WaitlistEntry accepted = entry(1, WaitlistStatus.BOOKED, LocalTime.of(9, 0), LocalTime.of(18, 0));
+        when(waitlistRepository.findById(1)).thenReturn(Optional.of(accepted));
+
+        appointmentService.expireWaitlistOffers();
+
+        assertEquals(WaitlistStatus.BOOKED, accepted.getStatus());
+        assertEquals(WaitlistStatus.WAITING, next.getStatus());
+        assertNull(next.getOfferedTime());
+        verify(waitlistRepository, never()).findWaitingForUpdate(MASTER_ID, DATE);
+    }
+
+    private static WaitlistEntry entry(Integer id, WaitlistStatus status, LocalTime windowStart, LocalTime windowEnd) {
+        WaitlistEntry entry = new WaitlistEntry();
+        entry.setId(id);
+        entry.setClientId(10 + id);
+        entry.setMasterId(MASTER_ID);
+        entry.setServiceId(SERVICE_ID);
+        entry.setDate(DATE);
+        entry.setWindowStart(windowStart);
+        entry.setWindowEnd(windowEnd);
+        entry.setStatus(status);
+        return entry;
+    }
+}